@@ -0,0 +1,38 @@
+package graph;
+
+import java.io.IOException;
+
+/** The graphs benchmarks run on: a synthetic graph of a SyntheticGraphs
+ * shape, or, for the shape DB1B, the airline network in a DB1B coupon CSV
+ * file. The nodes and degree parameters do not apply to a DB1B file, so
+ * pin them to one value, for example:
+ *     ./gradlew jmh -PjmhArgs="ComputeBenchmark -p shape=DB1B -p nodes=0
+ *         -p db1bFile=/data/Origin_and_Destination_Survey_DB1BCoupon.csv"
+ *  */
+final class BenchmarkGraphs {
+
+    /** The shape that reads the graph from the db1bFile parameter. */
+    static final String DB1B = "DB1B";
+
+    /* Not instantiable. */
+    private BenchmarkGraphs() {
+    }
+
+    /** Return the graph for a benchmark's shape and db1bFile parameters:
+     * the DB1B file, parsed with the memory-mapped parser, if shape is DB1B,
+     * and otherwise a graph of that SyntheticGraphs shape with about nodes
+     * nodes and degree edges per node. Throws IllegalArgumentException if
+     * shape is DB1B and db1bFile is empty. */
+    static Graph load(String shape, String db1bFile, int nodes, int degree)
+            throws IOException {
+        if (!shape.equals(DB1B)) {
+            return SyntheticGraphs.Shape.valueOf(shape).generate(nodes, degree,
+                    42);
+        }
+        if (db1bFile.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Shape DB1B needs -p db1bFile=<csv file>");
+        }
+        return ShortestPaths.parseGraph("db1b-mmap", db1bFile);
+    }
+}
@@ -0,0 +1,91 @@
+package graph;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the latency of one full ShortestPaths.compute on synthetic
+ * graphs of each shape, size, degree, queue kind and engine, both on the
+ * Graph itself and on its frozen CsrGraph. Origins cycle through a fixed
+ * random sequence so that no single search dominates. To compare the
+ * queues on the airline network instead, run with shape DB1B and a DB1B
+ * file (see BenchmarkGraphs):
+ *     ./gradlew jmh -PjmhArgs="ComputeBenchmark -p shape=DB1B -p nodes=0
+ *         -p db1bFile=coupons.csv"
+ *  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ComputeBenchmark {
+
+    @Param({"RANDOM", "GRID", "HUB_AND_SPOKE"})
+    public String shape;
+
+    // the DB1B file read when shape is DB1B
+    @Param({""})
+    public String db1bFile;
+
+    @Param({"10000", "100000"})
+    public int nodes;
+
+    @Param({"4"})
+    public int degree;
+
+    @Param({"DARY_HEAP", "PAIRING_HEAP", "LAZY_BINARY_HEAP"})
+    public QueueKind queue;
+
+    @Param({"DIJKSTRA"})
+    public ShortestPaths.Engine engine;
+
+    private Graph graph;
+    private Node[] nodeOrigins;
+    private CsrGraph csr;
+    private int[] origins;
+    private ShortestPaths sp;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = BenchmarkGraphs.load(shape, db1bFile, nodes, degree);
+        csr = graph.freeze();
+        Random random = new Random(7);
+        origins = new int[64];
+        nodeOrigins = new Node[origins.length];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = random.nextInt(csr.size());
+            nodeOrigins[i] = csr.node(origins[i]);
+        }
+        sp = new ShortestPaths();
+        sp.setQueue(queue);
+        sp.setEngine(engine);
+    }
+
+    @Benchmark
+    public double computeGraph() {
+        int i = next++ & (origins.length - 1);
+        sp.compute(nodeOrigins[i]);
+        return sp.shortestPathLength(nodeOrigins[(i + 1) & (origins.length - 1)]);
+    }
+
+    @Benchmark
+    public double computeCsr() {
+        int i = next++ & (origins.length - 1);
+        sp.compute(csr, origins[i]);
+        return sp.shortestPathLength(origins[(i + 1) & (origins.length - 1)]);
+    }
+}
@@ -0,0 +1,84 @@
+package graph;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures ContractionHierarchy: building the hierarchy, and
+ * point-to-point queries against Dijkstra's algorithm stopping at the
+ * target. To measure the airline network instead, run with shape DB1B and
+ * a DB1B file (see BenchmarkGraphs):
+ *     ./gradlew jmh -PjmhArgs="HierarchyBenchmark -p shape=DB1B -p nodes=0
+ *         -p db1bFile=coupons.csv"
+ *  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HierarchyBenchmark {
+
+    @Param({"GRID", "HUB_AND_SPOKE"})
+    public String shape;
+
+    // the DB1B file read when shape is DB1B
+    @Param({""})
+    public String db1bFile;
+
+    @Param({"10000"})
+    public int nodes;
+
+    private CsrGraph csr;
+    private ContractionHierarchy ch;
+    private int[] origins;
+    private int[] targets;
+    private DijkstraWorkspace ws;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        csr = BenchmarkGraphs.load(shape, db1bFile, nodes, 4).freeze();
+        ch = ContractionHierarchy.build(csr);
+        Random random = new Random(7);
+        origins = new int[64];
+        targets = new int[64];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = random.nextInt(csr.size());
+            targets[i] = random.nextInt(csr.size());
+        }
+        ws = new DijkstraWorkspace(csr.size());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ContractionHierarchy build() {
+        return ContractionHierarchy.build(csr);
+    }
+
+    @Benchmark
+    public double query() {
+        int i = next++ & (origins.length - 1);
+        return ch.query(origins[i], targets[i]);
+    }
+
+    @Benchmark
+    public double dijkstra() {
+        int i = next++ & (origins.length - 1);
+        ws.run(csr, origins[i], targets[i]);
+        return ws.distance(targets[i]);
+    }
+}
@@ -0,0 +1,106 @@
+package graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures full Dijkstra searches on a CsrGraph whose nodes are numbered
+ * at random (SHUFFLED), in creation order (NONE), or by each NodeOrder.
+ * The differences come from cache behavior alone; to see cache misses per
+ * search, run with the perfnorm profiler:
+ *     ./gradlew jmh -PjmhArgs="LocalityBenchmark -prof perfnorm"
+ * To measure the airline network instead, run with shape DB1B and a DB1B
+ * file (see BenchmarkGraphs):
+ *     ./gradlew jmh -PjmhArgs="LocalityBenchmark -p shape=DB1B -p nodes=0
+ *         -p db1bFile=coupons.csv"
+ *  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalityBenchmark {
+
+    @Param({"HUB_AND_SPOKE", "GRID"})
+    public String shape;
+
+    // the DB1B file read when shape is DB1B
+    @Param({""})
+    public String db1bFile;
+
+    @Param({"100000"})
+    public int nodes;
+
+    @Param({"4"})
+    public int degree;
+
+    @Param({"SHUFFLED", "NONE", "BFS", "REVERSE_CUTHILL_MCKEE", "HUBS_FIRST"})
+    public String order;
+
+    private CsrGraph csr;
+    private int[] origins;
+    private DijkstraWorkspace ws;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Graph loaded = BenchmarkGraphs.load(shape, db1bFile, nodes, degree);
+        CsrGraph created = loaded.freeze();
+        if (order.equals("NONE")) {
+            csr = created;
+        } else if (order.equals("SHUFFLED")) {
+            csr = shuffled(loaded, 3).freeze();
+        } else {
+            csr = shuffled(loaded, 3).freeze(NodeOrder.valueOf(order));
+        }
+        // the same origins, by id, whatever the order
+        Random random = new Random(7);
+        origins = new int[64];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = csr.indexOf(
+                    created.id(random.nextInt(created.size())));
+        }
+        ws = new DijkstraWorkspace(csr.size());
+    }
+
+    /* Return a copy of g whose nodes are created in a random order. */
+    private static Graph shuffled(Graph g, long seed) {
+        ArrayList<Node> order = new ArrayList<>(g.getNodes().values());
+        Collections.shuffle(order, new Random(seed));
+        Graph copy = new Graph();
+        for (Node v : order) {
+            copy.getNode(v.getId());
+        }
+        for (Node v : order) {
+            Node u = copy.getNode(v.getId());
+            for (Map.Entry<Node,Double> edge : v.getNeighbors().entrySet()) {
+                copy.addEdge(u, copy.getNode(edge.getKey().getId()),
+                        edge.getValue());
+            }
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public double search() {
+        int i = next++ & (origins.length - 1);
+        ws.run(csr, origins[i]);
+        return ws.distance(origins[(i + 1) & (origins.length - 1)]);
+    }
+}
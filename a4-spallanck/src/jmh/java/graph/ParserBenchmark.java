@@ -0,0 +1,113 @@
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures how long each parser takes to load the same synthetic
+ * hub-and-spoke network, written as a basic file, as a DB1B CSV with
+ * several rows per route, and as a snapshot. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"10000"})
+    public int nodes;
+
+    @Param({"4"})
+    public int degree;
+
+    // rows written to the DB1B file for each route, as in real itinerary
+    // data where popular routes repeat
+    @Param({"4"})
+    public int rowsPerEdge;
+
+    private File basic;
+    private File db1b;
+    private File snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        Graph g = SyntheticGraphs.hubAndSpoke(nodes, degree, 42);
+        basic = File.createTempFile("bench", ".txt");
+        db1b = File.createTempFile("bench", ".csv");
+        snapshot = File.createTempFile("bench", ".snap");
+        try (PrintWriter out = new PrintWriter(basic)) {
+            for (Node u : g.getNodes().values()) {
+                for (Map.Entry<Node,Double> e : u.getNeighbors().entrySet()) {
+                    out.println(u.getId() + " " + e.getKey().getId() + " "
+                            + e.getValue());
+                }
+            }
+        }
+        try (PrintWriter out = new PrintWriter(db1b)) {
+            out.println("\"ItinID\",\"Year\",\"Origin\",\"Dest\",\"Distance\",");
+            long itin = 0;
+            for (int r = 0; r < rowsPerEdge; r++) {
+                for (Node u : g.getNodes().values()) {
+                    for (Map.Entry<Node,Double> e
+                            : u.getNeighbors().entrySet()) {
+                        out.println(itin++ + ",2019,\"" + u.getId() + "\",\""
+                                + e.getKey().getId() + "\","
+                                + String.format(Locale.ROOT, "%.2f",
+                                        e.getValue()) + ",");
+                    }
+                }
+            }
+        }
+        GraphSnapshot.write(g.freeze(), snapshot);
+    }
+
+    @TearDown
+    public void tearDown() {
+        basic.delete();
+        db1b.delete();
+        snapshot.delete();
+    }
+
+    @Benchmark
+    public Graph basicParser() throws IOException {
+        BasicParser p = new BasicParser();
+        p.open(basic);
+        return p.parse();
+    }
+
+    @Benchmark
+    public Graph db1bParser() throws IOException {
+        DB1BParser p = new DB1BParser();
+        p.open(db1b);
+        return p.parse();
+    }
+
+    @Benchmark
+    public Graph mappedDB1BParser() throws IOException {
+        MappedDB1BParser p = new MappedDB1BParser();
+        p.open(db1b);
+        return p.parse();
+    }
+
+    @Benchmark
+    public CsrGraph snapshotLoad() throws IOException {
+        return GraphSnapshot.load(snapshot);
+    }
+}
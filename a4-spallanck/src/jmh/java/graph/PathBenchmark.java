@@ -0,0 +1,71 @@
+package graph;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures extracting the shortest paths to every node after one compute,
+ * as a full report does: as LinkedLists, as arrays, and by hop count
+ * alone. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PathBenchmark {
+
+    @Param({"HUB_AND_SPOKE", "GRID"})
+    public SyntheticGraphs.Shape shape;
+
+    @Param({"10000"})
+    public int nodes;
+
+    @Param({"4"})
+    public int degree;
+
+    private Node[] all;
+    private ShortestPaths sp;
+
+    @Setup
+    public void setUp() {
+        Graph graph = shape.generate(nodes, degree, 42);
+        all = graph.getNodes().values().toArray(new Node[0]);
+        sp = new ShortestPaths();
+        sp.compute(all[0]);
+    }
+
+    @Benchmark
+    public void linkedLists(Blackhole bh) {
+        for (Node v : all) {
+            bh.consume(sp.shortestPath(v));
+        }
+    }
+
+    @Benchmark
+    public void arrays(Blackhole bh) {
+        for (Node v : all) {
+            PathView p = sp.path(v);
+            bh.consume(p == null ? null : p.toArray());
+        }
+    }
+
+    @Benchmark
+    public void hopCounts(Blackhole bh) {
+        for (Node v : all) {
+            PathView p = sp.path(v);
+            bh.consume(p == null ? -1 : p.hopCount());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package graph;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures CustomizableRoutes on a grid: re-customizing it for new
+ * weights, and point-to-point queries against Dijkstra's algorithm
+ * stopping at the target. To measure the airline network instead, run with
+ * shape DB1B and a DB1B file (see BenchmarkGraphs):
+ *     ./gradlew jmh -PjmhArgs="RoutesBenchmark -p shape=DB1B -p nodes=0
+ *         -p db1bFile=coupons.csv"
+ *  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoutesBenchmark {
+
+    @Param({"GRID"})
+    public String shape;
+
+    // the DB1B file read when shape is DB1B
+    @Param({""})
+    public String db1bFile;
+
+    @Param({"100000"})
+    public int nodes;
+
+    private CsrGraph csr;
+    private CustomizableRoutes routes;
+    private double[] weights; // the graph's weights, scaled at random
+    private int[] origins;
+    private int[] targets;
+    private DijkstraWorkspace ws;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        csr = BenchmarkGraphs.load(shape, db1bFile, nodes, 4).freeze();
+        routes = CustomizableRoutes.build(csr);
+        Random random = new Random(7);
+        weights = new double[csr.edgeCount()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = csr.weights[e] * (0.5 + random.nextDouble());
+        }
+        origins = new int[64];
+        targets = new int[64];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = random.nextInt(csr.size());
+            targets[i] = random.nextInt(csr.size());
+        }
+        ws = new DijkstraWorkspace(csr.size());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void customize() {
+        routes.customize(weights);
+    }
+
+    @Benchmark
+    public double query() {
+        int i = next++ & (origins.length - 1);
+        return routes.query(origins[i], targets[i]);
+    }
+
+    @Benchmark
+    public double dijkstra() {
+        int i = next++ & (origins.length - 1);
+        ws.run(csr, origins[i], targets[i]);
+        return ws.distance(targets[i]);
+    }
+}
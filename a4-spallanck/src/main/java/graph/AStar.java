@@ -0,0 +1,83 @@
+package graph;
+
+/** Point-to-point shortest paths with A* search. Like Dijkstra's algorithm,
+ * but the frontier is ordered by distance from the origin plus a Heuristic
+ * lower bound on the remaining distance, so the search heads towards the
+ * target and settles fewer nodes. Nodes whose distance improves after they
+ * were settled are searched again, so the result is exact for any
+ * admissible heuristic, even one that is not consistent.
+ * Example usage:
+ *     CsrGraph g = // freeze your graph
+ *     AStar astar = new AStar(g, new GreatCircleHeuristic(g, coordFile));
+ *     double ab = astar.query(g.indexOf("A"), g.indexOf("B"));
+ *     int[] path = astar.path();
+ *  */
+public class AStar {
+
+    private final CsrGraph graph;
+    private final Heuristic heuristic;
+    private final DijkstraWorkspace search; // distances from the origin
+
+    private int target; // target of the last query
+    private int settled; // number of nodes settled by the last query
+
+    /** Constructor: prepare to answer queries on g guided by h. */
+    public AStar(CsrGraph g, Heuristic h) {
+        graph = g;
+        heuristic = h;
+        search = new DijkstraWorkspace(g.size());
+        target = -1;
+    }
+
+    /** Return the length of the shortest path from the node with index
+     * origin to the node with index target, or Double.POSITIVE_INFINITY if
+     * there is none. Precondition: both indices are in [0, g.size()). */
+    public double query(int origin, int target) {
+        this.target = target;
+        settled = 0;
+        search.start(origin, heuristic.estimate(origin, target));
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+        while (!search.queue.isEmpty()) {
+            int f = search.queue.poll();
+            settled++;
+            if (f == target) {
+                return search.dist[f];
+            }
+            double fD = search.dist[f];
+            for (int e = offsets[f]; e < offsets[f + 1]; e++) {
+                int w = targets[e];
+                double d = fD + weights[e];
+                if (!search.reached(w) || d < search.dist[w]) {
+                    search.relax(f, w, d, d + heuristic.estimate(w, target));
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /** Return the nodes on the shortest path found by the last query,
+     * including both ends, or null if there is no path.
+     * Precondition: query has been called. */
+    public int[] path() {
+        if (target < 0 || !search.reached(target)) {
+            return null;
+        }
+        int count = 0;
+        for (int v = target; v != -1; v = search.previous(v)) {
+            count++;
+        }
+        int[] path = new int[count];
+        for (int v = target; v != -1; v = search.previous(v)) {
+            path[--count] = v;
+        }
+        return path;
+    }
+
+    /** Return the number of nodes the last query settled, counting a node
+     * again each time it was searched again. */
+    public int settledCount() {
+        return settled;
+    }
+}
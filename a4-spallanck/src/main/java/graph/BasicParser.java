@@ -25,7 +25,8 @@ public class BasicParser extends GraphParser {
      * the file. Precondition: open() has been successfully called. */
     @Override
     public Graph parse() {
-        Graph graph = new Graph();
+        long startTime = System.nanoTime();
+        Graph graph = new Graph(aggregation);
 
         while (sc.hasNextLine()) {
             String[] data = sc.nextLine().split(" ");
@@ -37,6 +38,7 @@ public class BasicParser extends GraphParser {
             Node dest = graph.getNode(destCode);
             graph.addEdge(orig, dest, distance);
         }
+        recordPhase("parse", startTime);
 
         return graph;
     }
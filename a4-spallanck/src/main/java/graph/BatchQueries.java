@@ -0,0 +1,199 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Answers a stream of shortest path queries on one CsrGraph, so that many
+ * queries need only one process and one parse of the graph. Each line of
+ * input is either "ORIGIN DESTINATION", asking for one path, or "ORIGIN"
+ * alone, asking for the paths to every node reachable from it; ids are
+ * separated by whitespace, and blank lines and lines starting with '#' are
+ * skipped. Queries are read in chunks of CHUNK lines and grouped by origin,
+ * so each origin's shortest path tree is computed once per chunk. Results
+ * are written grouped by origin rather than in input order; every record
+ * names its origin and destination.
+ *
+ * In TSV format each result is one line:
+ *     origin TAB destination TAB distance TAB path
+ * where the path is the node ids separated by spaces, and the distance is
+ * Infinity and the path empty if there is none.
+ * In BINARY format, big-endian as written by DataOutputStream, a header
+ *     int magic "GBQ1", int nodes n, n node ids in modified UTF-8
+ * is followed by one record per result:
+ *     int origin, int destination, double distance, int count,
+ *     int[count] node indices along the path (count is 0 if there is none).
+ * Queries naming an unknown node are reported on standard error and
+ * skipped.
+ * Example usage:
+ *     BatchQueries batch = new BatchQueries(g.freeze(), Format.TSV);
+ *     batch.run(new InputStreamReader(System.in), System.out);
+ *  */
+public class BatchQueries {
+
+    /** The output formats. */
+    public enum Format {
+        /** Tab-separated text, one result per line. */
+        TSV,
+        /** Compact binary records with node indices. */
+        BINARY
+    }
+
+    /** The number of queries read before they are grouped and answered. */
+    public static final int CHUNK = 1 << 16;
+
+    /** The first int of BINARY output, "GBQ1". */
+    public static final int MAGIC = 0x47425131;
+
+    private final CsrGraph graph;
+    private final Format format;
+    private final DijkstraWorkspace workspace;
+    private final int[] path; // scratch space for one path, in reverse
+
+    // the queries of the current chunk: origins[i] and dests[i] are node
+    // indices, dests[i] is -1 to ask for every node
+    private final int[] origins = new int[CHUNK];
+    private final int[] dests = new int[CHUNK];
+    private final long[] order = new long[CHUNK]; // (origin << 32) | i
+
+    // exactly one of these is used, depending on format
+    private BufferedWriter text;
+    private DataOutputStream data;
+
+    /** Constructor: answer queries on g, writing results in format. */
+    public BatchQueries(CsrGraph g, Format format) {
+        this.graph = g;
+        this.format = format;
+        workspace = new DijkstraWorkspace(g.size());
+        path = new int[g.size()];
+    }
+
+    /** Answer every query read from in, writing the results to out, and
+     * return the number of queries answered. out is flushed but not
+     * closed. */
+    public long run(Reader in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        if (format == Format.TSV) {
+            text = new BufferedWriter(new OutputStreamWriter(out,
+                        StandardCharsets.UTF_8), 1 << 16);
+        } else {
+            data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            data.writeInt(MAGIC);
+            data.writeInt(graph.size());
+            for (int v = 0; v < graph.size(); v++) {
+                data.writeUTF(graph.id(v));
+            }
+        }
+        long answered = 0;
+        long lineNumber = 0;
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            String[] ids = line.split("\\s+");
+            int o = graph.indexOf(ids[0]);
+            int d = ids.length > 1 ? graph.indexOf(ids[1]) : -1;
+            if (o < 0 || (ids.length > 1 && d < 0) || ids.length > 2) {
+                System.err.println("Skipping bad query on line " + lineNumber
+                        + ": " + line);
+                continue;
+            }
+            origins[count] = o;
+            dests[count] = d;
+            count++;
+            if (count == CHUNK) {
+                answer(count);
+                answered += count;
+                count = 0;
+            }
+        }
+        answer(count);
+        answered += count;
+        if (text != null) {
+            text.flush();
+        } else {
+            data.flush();
+        }
+        return answered;
+    }
+
+    /* Answer the first count queries of the chunk, one search per origin. */
+    private void answer(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            order[i] = (long) origins[i] << 32 | i;
+        }
+        Arrays.sort(order, 0, count);
+        int start = 0;
+        while (start < count) {
+            int o = (int) (order[start] >>> 32);
+            int end = start + 1;
+            while (end < count && (int) (order[end] >>> 32) == o) {
+                end++;
+            }
+            int only = dests[(int) order[start]];
+            if (end - start == 1 && only != -1) {
+                workspace.run(graph, o, only); // one pair; stop early
+            } else {
+                workspace.run(graph, o);
+            }
+            for (int i = start; i < end; i++) {
+                int d = dests[(int) order[i]];
+                if (d != -1) {
+                    write(o, d);
+                } else {
+                    for (int v = 0; v < graph.size(); v++) {
+                        if (workspace.reached(v)) {
+                            write(o, v);
+                        }
+                    }
+                }
+            }
+            start = end;
+        }
+    }
+
+    /* Write the result for the path from o to d found by the last search. */
+    private void write(int o, int d) throws IOException {
+        int hops = 0;
+        if (workspace.reached(d)) {
+            for (int v = d; v != -1; v = workspace.previous(v)) {
+                path[hops++] = v;
+            }
+        }
+        double distance = workspace.distance(d);
+        if (text != null) {
+            text.write(graph.id(o));
+            text.write('\t');
+            text.write(graph.id(d));
+            text.write('\t');
+            text.write(Double.toString(distance));
+            text.write('\t');
+            for (int i = hops - 1; i >= 0; i--) {
+                text.write(graph.id(path[i]));
+                if (i > 0) {
+                    text.write(' ');
+                }
+            }
+            text.write('\n');
+        } else {
+            data.writeInt(o);
+            data.writeInt(d);
+            data.writeDouble(distance);
+            data.writeInt(hops);
+            for (int i = hops - 1; i >= 0; i--) {
+                data.writeInt(path[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package graph;
+
+/** Point-to-point shortest paths with bidirectional Dijkstra. A forward
+ * search from the origin and a backward search from the destination over
+ * the reversed graph take turns settling nodes; the query stops once the
+ * sum of the two frontiers' smallest keys is at least the length of the
+ * best path found through a node reached by both searches.
+ * Example usage:
+ *     BidirectionalDijkstra bd = new BidirectionalDijkstra(g.freeze());
+ *     double ab = bd.query(a, b);
+ *     int[] path = bd.path();
+ *  */
+public class BidirectionalDijkstra {
+
+    private final CsrGraph graph; // the graph searched forward
+    private final CsrGraph reverse; // the graph searched backward
+    private final DijkstraWorkspace forward; // the search from the origin
+    private final DijkstraWorkspace backward; // the search from the target
+
+    private double best; // length of the best path found by the last query
+    private int meeting; // node on the best path reached by both searches
+
+    /** Constructor: prepare to answer queries on g. */
+    public BidirectionalDijkstra(CsrGraph g) {
+        graph = g;
+        reverse = g.reverse();
+        forward = new DijkstraWorkspace(g.size());
+        backward = new DijkstraWorkspace(g.size());
+        best = Double.POSITIVE_INFINITY;
+        meeting = -1;
+    }
+
+    /** Return the length of the shortest path from the node with index
+     * origin to the node with index target, or Double.POSITIVE_INFINITY if
+     * there is none. Precondition: both indices are in [0, g.size()). */
+    public double query(int origin, int target) {
+        forward.start(origin);
+        backward.start(target);
+        best = origin == target ? 0.0 : Double.POSITIVE_INFINITY;
+        meeting = origin == target ? origin : -1;
+        while (!forward.queue.isEmpty() && !backward.queue.isEmpty()) {
+            double fMin = forward.queue.minPriority();
+            double bMin = backward.queue.minPriority();
+            if (fMin + bMin >= best) {
+                break;
+            }
+            if (fMin <= bMin) {
+                step(forward, backward, graph);
+            } else {
+                step(backward, forward, reverse);
+            }
+        }
+        return best;
+    }
+
+    /** Return the nodes on the shortest path found by the last query,
+     * including both ends, or null if there is no path.
+     * Precondition: query has been called. */
+    public int[] path() {
+        if (meeting < 0) {
+            return null;
+        }
+        int fCount = 0; // nodes from the origin up to the meeting node
+        for (int v = meeting; v != -1; v = forward.previous(v)) {
+            fCount++;
+        }
+        int bCount = 0; // nodes after the meeting node
+        for (int v = backward.previous(meeting); v != -1;
+                v = backward.previous(v)) {
+            bCount++;
+        }
+        int[] path = new int[fCount + bCount];
+        int i = fCount - 1;
+        for (int v = meeting; v != -1; v = forward.previous(v)) {
+            path[i--] = v;
+        }
+        i = fCount;
+        for (int v = backward.previous(meeting); v != -1;
+                v = backward.previous(v)) {
+            path[i++] = v;
+        }
+        return path;
+    }
+
+    /* Settle the closest node on search's frontier, relaxing its edges in
+     * g, and update the best path with nodes the other search has
+     * reached. */
+    private void step(DijkstraWorkspace search, DijkstraWorkspace other,
+            CsrGraph g) {
+        double fD = search.queue.minPriority();
+        int f = search.queue.poll();
+        if (fD > search.dist[f]) {
+            return; // stale duplicate entry
+        }
+        for (int e = g.offsets[f]; e < g.offsets[f + 1]; e++) {
+            int w = g.targets[e];
+            double d = fD + g.weights[e];
+            search.relax(f, w, d);
+            if (other.reached(w)) {
+                double through = d + other.dist[w];
+                if (through < best) {
+                    best = through;
+                    meeting = w;
+                }
+            }
+        }
+    }
+}
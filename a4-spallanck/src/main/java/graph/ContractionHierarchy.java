@@ -0,0 +1,564 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/** A Contraction Hierarchy for fast point-to-point shortest path queries.
+ * Preprocessing contracts the nodes one at a time in order of importance.
+ * Contracting node v removes it from the remaining graph and adds a
+ * shortcut edge u -> w for each path u -> v -> w that is the only shortest
+ * path from u to w. A query then runs a bidirectional Dijkstra that only
+ * follows edges towards more important nodes, which settles very few
+ * nodes. Shortcuts are unpacked into the original edges before paths are
+ * returned.
+ * Example usage:
+ *     ContractionHierarchy ch = ContractionHierarchy.build(g);
+ *     LinkedList<Node> abPath = ch.shortestPath(a, b);
+ *     double abPathLength = ch.shortestPathLength(a, b);
+ *  */
+public class ContractionHierarchy {
+
+    // a witness search gives up after settling this many nodes; it may then
+    // add a shortcut that is not needed, which is safe
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    // the searches that only estimate how many shortcuts a node needs, to
+    // pick the contraction order, give up much sooner: after settling this
+    // many nodes, and they only follow paths of at most this many edges
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+    private static final int SIMULATION_HOP_LIMIT = Integer.getInteger("shop", 5);
+    // a node with more in-out pairs of edges than this, such as a hub, is
+    // estimated to need a shortcut for every pair without searching
+    private static final int SIMULATION_PAIR_LIMIT = Integer.getInteger("spairs", 100);
+
+    private final CsrGraph graph; // the original graph
+    // up holds the edges a -> b of the hierarchy with rank[a] < rank[b];
+    // down holds b -> a for the edges a -> b with rank[a] > rank[b], so
+    // that a backward search from the target also climbs the hierarchy
+    private final CsrGraph up;
+    private final CsrGraph down;
+    // maps key(a, b) of each hierarchy edge a -> b to the node the shortcut
+    // bypasses, or -1 if it is an original edge
+    private final LongIntHashMap middle;
+    private final int shortcuts; // number of shortcuts added
+
+    private final DijkstraWorkspace forward; // the search from the origin
+    private final DijkstraWorkspace backward; // the search from the target
+    private double best; // length of the best path found by the last query
+    private int meeting; // highest node on that path, or -1 if there is none
+    private int[] stack; // work space for unpacking shortcuts
+
+    /* Constructor: wrap a finished hierarchy. */
+    private ContractionHierarchy(CsrGraph graph, CsrGraph up, CsrGraph down,
+            LongIntHashMap middle, int shortcuts) {
+        this.graph = graph;
+        this.up = up;
+        this.down = down;
+        this.middle = middle;
+        this.shortcuts = shortcuts;
+        forward = new DijkstraWorkspace(graph.size());
+        backward = new DijkstraWorkspace(graph.size());
+        meeting = -1;
+        stack = new int[16];
+    }
+
+    /** Build a hierarchy for the graph g. Later changes to g are not
+     * reflected in the hierarchy. */
+    public static ContractionHierarchy build(Graph g) {
+        return build(g.freeze());
+    }
+
+    /** Build a hierarchy for the graph g. */
+    public static ContractionHierarchy build(CsrGraph g) {
+        return new Contractor(g).contract();
+    }
+
+    /** Return the number of shortcuts preprocessing added. */
+    public int shortcutCount() {
+        return shortcuts;
+    }
+
+    /** Return the length of the shortest path from the node with index
+     * origin to the node with index target in the original graph, or
+     * Double.POSITIVE_INFINITY if there is none.
+     * Precondition: both indices are in [0, g.size()). */
+    public double query(int origin, int target) {
+        forward.start(origin);
+        backward.start(target);
+        best = Double.POSITIVE_INFINITY;
+        meeting = -1;
+        while (true) {
+            boolean goForward = !forward.queue.isEmpty()
+                && forward.queue.minPriority() < best;
+            boolean goBackward = !backward.queue.isEmpty()
+                && backward.queue.minPriority() < best;
+            if (goForward && (!goBackward || forward.queue.minPriority()
+                        <= backward.queue.minPriority())) {
+                settle(forward, backward, up, down);
+            } else if (goBackward) {
+                settle(backward, forward, down, up);
+            } else {
+                return best;
+            }
+        }
+    }
+
+    /** Return the nodes on the shortest path found by the last query in the
+     * original graph, including both ends, or null if there is no path.
+     * Precondition: query has been called. */
+    public int[] path() {
+        if (meeting < 0) {
+            return null;
+        }
+        // the path in the hierarchy: up to the meeting node, then down
+        int upCount = 0;
+        for (int v = meeting; v != -1; v = forward.previous(v)) {
+            upCount++;
+        }
+        int downCount = 0;
+        for (int v = backward.previous(meeting); v != -1;
+                v = backward.previous(v)) {
+            downCount++;
+        }
+        int[] hierarchyPath = new int[upCount + downCount];
+        int i = upCount - 1;
+        for (int v = meeting; v != -1; v = forward.previous(v)) {
+            hierarchyPath[i--] = v;
+        }
+        i = upCount;
+        for (int v = backward.previous(meeting); v != -1;
+                v = backward.previous(v)) {
+            hierarchyPath[i++] = v;
+        }
+
+        // replace each shortcut by the edges it bypasses
+        int[] path = new int[hierarchyPath.length];
+        int count = 0;
+        path[count++] = hierarchyPath[0];
+        for (int j = 0; j + 1 < hierarchyPath.length; j++) {
+            int top = 0;
+            stack = push(stack, top, hierarchyPath[j], hierarchyPath[j + 1]);
+            top += 2;
+            while (top > 0) {
+                int b = stack[--top];
+                int a = stack[--top];
+                int m = middle.get(LongIntHashMap.key(a, b));
+                if (m < 0) {
+                    if (count == path.length) {
+                        path = Arrays.copyOf(path, 2 * count);
+                    }
+                    path[count++] = b;
+                } else {
+                    // visit a -> m before m -> b
+                    stack = push(stack, top, m, b);
+                    top += 2;
+                    stack = push(stack, top, a, m);
+                    top += 2;
+                }
+            }
+        }
+        return Arrays.copyOf(path, count);
+    }
+
+    /** Returns the length of the shortest path from origin to destination.
+     * If no path exists, return Double.POSITIVE_INFINITY.
+     * Precondition: origin and destination are nodes in the graph the
+     * hierarchy was built from. */
+    public double shortestPathLength(Node origin, Node destination) {
+        int s = graph.indexOf(origin);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return query(s, t);
+    }
+
+    /** Returns a LinkedList of the nodes along the shortest path from origin
+     * to destination, as ShortestPaths.shortestPath does. This path includes
+     * the origin and destination. If origin and destination are the same
+     * node, it is included only once. If no path exists, return null.
+     * Precondition: origin and destination are nodes in the graph the
+     * hierarchy was built from. */
+    public LinkedList<Node> shortestPath(Node origin, Node destination) {
+        int s = graph.indexOf(origin);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) {
+            return null;
+        }
+        query(s, t);
+        int[] indices = path();
+        if (indices == null) {
+            return null;
+        }
+        LinkedList<Node> path = new LinkedList<>();
+        for (int v : indices) {
+            path.addLast(graph.node(v));
+        }
+        return path;
+    }
+
+    /* Settle the closest node on search's frontier, relaxing its edges in
+     * g, and update the best path if the other search has reached it.
+     * stall holds the edges of g reversed: the edges that reach each node
+     * from more important nodes. If one of those gives a shorter path to
+     * the node, its distance is not a shortest one and its edges are not
+     * relaxed (stall-on-demand). */
+    private void settle(DijkstraWorkspace search, DijkstraWorkspace other,
+            CsrGraph g, CsrGraph stall) {
+        double fD = search.queue.minPriority();
+        int f = search.queue.poll();
+        if (fD > search.dist[f]) {
+            return; // stale duplicate entry
+        }
+        if (other.reached(f) && fD + other.dist[f] < best) {
+            best = fD + other.dist[f];
+            meeting = f;
+        }
+        for (int e = stall.offsets[f]; e < stall.offsets[f + 1]; e++) {
+            if (search.distance(stall.targets[e]) + stall.weights[e] < fD) {
+                return;
+            }
+        }
+        for (int e = g.offsets[f]; e < g.offsets[f + 1]; e++) {
+            search.relax(f, g.targets[e], fD + g.weights[e]);
+        }
+    }
+
+    /* Store a and b at stack[top] and stack[top + 1], growing the stack if
+     * needed, and return the stack. */
+    private static int[] push(int[] stack, int top, int a, int b) {
+        if (top + 2 > stack.length) {
+            stack = Arrays.copyOf(stack, 2 * stack.length);
+        }
+        stack[top] = a;
+        stack[top + 1] = b;
+        return stack;
+    }
+
+    /** The state of preprocessing: the remaining graph as editable edge
+     * lists, and the edges of the nodes already contracted. */
+    private static class Contractor {
+
+        private final CsrGraph graph;
+        private final int n;
+        // out[u] and in[u] hold the edges leaving and entering u in the
+        // remaining graph; once u is contracted they are no longer changed
+        // and hold u's edges to more important nodes
+        private final EdgeList[] out;
+        private final EdgeList[] in;
+        // map key(u, w) of each remaining edge u -> w to its position in
+        // out[u] and in[w], so that edges are found without scanning
+        private final LongIntHashMap outIndex;
+        private final LongIntHashMap inIndex;
+        // deleted[v] is the number of contracted neighbours of v
+        private final int[] deleted;
+        private final DijkstraWorkspace witness;
+        private final int[] hops; // hops[w] is the edge count of w's path
+        // target[w] is the number of the witness search that must reach w;
+        // searches are numbered by round
+        private final int[] target;
+        private int round;
+        private final double[] bound; // bound[w] is the length via v
+        private int shortcuts;
+
+        /** Constructor: copy the edges of g into editable lists, dropping
+         * self loops and keeping the lightest of any parallel edges. */
+        Contractor(CsrGraph g) {
+            graph = g;
+            n = g.size();
+            out = new EdgeList[n];
+            in = new EdgeList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new EdgeList();
+                in[v] = new EdgeList();
+            }
+            outIndex = new LongIntHashMap(g.edgeCount(), -1);
+            inIndex = new LongIntHashMap(g.edgeCount(), -1);
+            for (int u = 0; u < n; u++) {
+                for (int e = g.firstEdge(u); e < g.lastEdge(u); e++) {
+                    int w = g.target(e);
+                    if (w != u) {
+                        putEdge(u, w, g.weight(e), -1);
+                    }
+                }
+            }
+            deleted = new int[n];
+            witness = new DijkstraWorkspace(n);
+            hops = new int[n];
+            target = new int[n];
+            bound = new double[n];
+        }
+
+        /** Contract every node, least important first, and return the
+         * resulting hierarchy. */
+        ContractionHierarchy contract() {
+            DaryHeap order = new DaryHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.offer(v, priority(v));
+            }
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                shortcuts += shortcut(v, true);
+                EdgeList vOut = out[v];
+                EdgeList vIn = in[v];
+                for (int i = 0; i < vOut.size; i++) {
+                    removeIn(vOut.node[i], v);
+                    deleted[vOut.node[i]]++;
+                }
+                for (int i = 0; i < vIn.size; i++) {
+                    removeOut(vIn.node[i], v);
+                    deleted[vIn.node[i]]++;
+                }
+                // contracting v changed the edges and deleted counts of its
+                // neighbours, so bring their priorities up to date
+                for (int i = 0; i < vOut.size; i++) {
+                    order.update(vOut.node[i], priority(vOut.node[i]));
+                }
+                for (int i = 0; i < vIn.size; i++) {
+                    order.update(vIn.node[i], priority(vIn.node[i]));
+                }
+            }
+            return hierarchy();
+        }
+
+        /* Return the priority of v: the number of shortcuts contracting it
+         * would add, minus the edges it would remove, plus the number of
+         * its neighbours already contracted (to spread contraction evenly
+         * over the graph). Less important nodes have smaller priorities. */
+        private double priority(int v) {
+            return shortcut(v, false) - out[v].size - in[v].size + deleted[v];
+        }
+
+        /* Return the number of shortcuts needed to contract v. If add is
+         * true, also add them to the edge lists; otherwise this is only an
+         * estimate from witness searches cut short. */
+        private int shortcut(int v, boolean add) {
+            int count = 0;
+            EdgeList vOut = out[v];
+            EdgeList vIn = in[v];
+            if (!add && vIn.size * vOut.size > SIMULATION_PAIR_LIMIT) {
+                return vIn.size * vOut.size;
+            }
+            for (int i = 0; i < vIn.size; i++) {
+                int u = vIn.node[i];
+                double uv = vIn.weight[i];
+                double limit = -1.0; // longest path u -> v -> w
+                int targets = 0;
+                round++;
+                for (int j = 0; j < vOut.size; j++) {
+                    int w = vOut.node[j];
+                    if (w != u) {
+                        limit = Math.max(limit, uv + vOut.weight[j]);
+                        target[w] = round;
+                        bound[w] = uv + vOut.weight[j];
+                        targets++;
+                    }
+                }
+                if (targets == 0) {
+                    continue;
+                }
+                if (add) {
+                    witnessSearch(u, v, limit, targets, WITNESS_SETTLE_LIMIT,
+                            Integer.MAX_VALUE);
+                } else {
+                    witnessSearch(u, v, limit, targets,
+                            SIMULATION_SETTLE_LIMIT, SIMULATION_HOP_LIMIT);
+                }
+                for (int j = 0; j < vOut.size; j++) {
+                    int w = vOut.node[j];
+                    if (w == u) {
+                        continue;
+                    }
+                    double via = uv + vOut.weight[j];
+                    if (witness.reached(w) && witness.distance(w) <= via) {
+                        continue; // a path avoiding v is as short
+                    }
+                    count++;
+                    if (add) {
+                        putEdge(u, w, via, v);
+                    }
+                }
+            }
+            return count;
+        }
+
+        /* Search from u in the remaining graph without v, until the
+         * frontier is farther than limit, all the nodes w with target[w] ==
+         * u (there are targets of them) are settled, or maxSettled nodes are
+         * settled, following paths of at most maxHops edges. */
+        private void witnessSearch(int u, int v, double limit, int targets,
+                int maxSettled, int maxHops) {
+            witness.start(u);
+            hops[u] = 0;
+            int settled = 0;
+            while (!witness.queue.isEmpty()) {
+                double fD = witness.queue.minPriority();
+                int f = witness.queue.poll();
+                if (fD > witness.dist[f]) {
+                    continue; // stale duplicate entry
+                }
+                if (fD > limit || ++settled > maxSettled) {
+                    return;
+                }
+                if (target[f] == round) {
+                    target[f] = 0;
+                    if (--targets == 0) {
+                        return;
+                    }
+                    limit = pendingLimit(v);
+                }
+                if (hops[f] == maxHops) {
+                    continue;
+                }
+                EdgeList fOut = out[f];
+                for (int i = 0; i < fOut.size; i++) {
+                    int w = fOut.node[i];
+                    double d = fD + fOut.weight[i];
+                    if (w != v && d <= limit && witness.relax(f, w, d, d)) {
+                        hops[w] = hops[f] + 1;
+                        if (target[w] == round && d <= bound[w]) {
+                            target[w] = 0;
+                            if (--targets == 0) {
+                                return;
+                            }
+                            limit = pendingLimit(v);
+                        }
+                    }
+                }
+            }
+        }
+
+        /* Return the longest path via v to a target the current witness
+         * search has not yet reached by a path as short; the search need
+         * not go farther. */
+        private double pendingLimit(int v) {
+            double limit = -1.0;
+            EdgeList vOut = out[v];
+            for (int j = 0; j < vOut.size; j++) {
+                if (target[vOut.node[j]] == round) {
+                    limit = Math.max(limit, bound[vOut.node[j]]);
+                }
+            }
+            return limit;
+        }
+
+        /* Add the edge u -> w with the given weight and middle node, or if
+         * there already is one, lower it to this weight. */
+        private void putEdge(int u, int w, double weight, int m) {
+            long k = LongIntHashMap.key(u, w);
+            int i = outIndex.get(k);
+            if (i < 0) {
+                outIndex.put(k, out[u].add(w, weight, m));
+                inIndex.put(k, in[w].add(u, weight, m));
+            } else if (weight < out[u].weight[i]) {
+                out[u].set(i, weight, m);
+                in[w].set(inIndex.get(k), weight, m);
+            }
+        }
+
+        /* Remove the edge u -> w from out[u]. */
+        private void removeOut(int u, int w) {
+            int i = outIndex.get(LongIntHashMap.key(u, w));
+            int moved = out[u].remove(i);
+            if (moved >= 0) {
+                outIndex.put(LongIntHashMap.key(u, moved), i);
+            }
+        }
+
+        /* Remove the edge u -> w from in[w]. */
+        private void removeIn(int w, int u) {
+            int i = inIndex.get(LongIntHashMap.key(u, w));
+            int moved = in[w].remove(i);
+            if (moved >= 0) {
+                inIndex.put(LongIntHashMap.key(moved, w), i);
+            }
+        }
+
+        /* Gather the edges each node had to more important nodes when it
+         * was contracted into upward and downward CSR graphs. */
+        private ContractionHierarchy hierarchy() {
+            int[] upOffsets = new int[n + 1];
+            int[] downOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                upOffsets[v + 1] = upOffsets[v] + out[v].size;
+                downOffsets[v + 1] = downOffsets[v] + in[v].size;
+            }
+            int[] upTargets = new int[upOffsets[n]];
+            double[] upWeights = new double[upOffsets[n]];
+            int[] downTargets = new int[downOffsets[n]];
+            double[] downWeights = new double[downOffsets[n]];
+            LongIntHashMap middle = new LongIntHashMap(2 * shortcuts, -1);
+            for (int v = 0; v < n; v++) {
+                EdgeList vOut = out[v];
+                EdgeList vIn = in[v];
+                System.arraycopy(vOut.node, 0, upTargets, upOffsets[v],
+                        vOut.size);
+                System.arraycopy(vOut.weight, 0, upWeights, upOffsets[v],
+                        vOut.size);
+                System.arraycopy(vIn.node, 0, downTargets, downOffsets[v],
+                        vIn.size);
+                System.arraycopy(vIn.weight, 0, downWeights, downOffsets[v],
+                        vIn.size);
+                for (int i = 0; i < vOut.size; i++) {
+                    if (vOut.middle[i] >= 0) {
+                        middle.put(LongIntHashMap.key(v, vOut.node[i]),
+                                vOut.middle[i]);
+                    }
+                }
+                for (int i = 0; i < vIn.size; i++) {
+                    if (vIn.middle[i] >= 0) {
+                        middle.put(LongIntHashMap.key(vIn.node[i], v),
+                                vIn.middle[i]);
+                    }
+                }
+            }
+            CsrGraph up = new CsrGraph(graph.ids, upOffsets, upTargets,
+                    upWeights);
+            CsrGraph down = new CsrGraph(graph.ids, downOffsets, downTargets,
+                    downWeights);
+            return new ContractionHierarchy(graph, up, down, middle,
+                    shortcuts);
+        }
+    }
+
+    /** A growable list of the edges at one end of a node. The Contractor
+     * keeps at most one edge per neighbour. */
+    private static class EdgeList {
+        int[] node = new int[4]; // node[i] is the neighbour of edge i
+        double[] weight = new double[4]; // weight[i] is the weight of edge i
+        int[] middle = new int[4]; // middle[i] is the bypassed node, or -1
+        int size; // number of edges
+
+        /** Append an edge to v with the given weight and middle node, and
+         * return its position. */
+        int add(int v, double w, int m) {
+            if (size == node.length) {
+                node = Arrays.copyOf(node, 2 * size);
+                weight = Arrays.copyOf(weight, 2 * size);
+                middle = Arrays.copyOf(middle, 2 * size);
+            }
+            node[size] = v;
+            weight[size] = w;
+            middle[size] = m;
+            return size++;
+        }
+
+        /** Set the weight and middle node of edge i. */
+        void set(int i, double w, int m) {
+            weight[i] = w;
+            middle[i] = m;
+        }
+
+        /** Remove edge i by moving the last edge into its place, and return
+         * the neighbour of the moved edge, or -1 if i was the last. */
+        int remove(int i) {
+            size--;
+            if (i == size) {
+                return -1;
+            }
+            node[i] = node[size];
+            weight[i] = weight[size];
+            middle[i] = middle[size];
+            return node[i];
+        }
+    }
+}
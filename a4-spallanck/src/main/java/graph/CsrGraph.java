@@ -0,0 +1,327 @@
+package graph;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/** An immutable compressed-sparse-row (CSR) representation of a Graph.
+ * Every node is interned to an int index in [0, size()). The outgoing edges
+ * of node u occupy the edge indices firstEdge(u) .. lastEdge(u) - 1, and
+ * edge e leads to target(e) with weight weight(e). No boxed values or hash
+ * lookups are needed to traverse the graph.
+ * Example usage:
+ *     Graph g = // create your graph
+ *     CsrGraph csr = g.freeze();
+ *     int a = csr.indexOf("A");
+ *     for (int e = csr.firstEdge(a); e < csr.lastEdge(a); e++) {
+ *         int b = csr.target(e);
+ *         double w = csr.weight(e);
+ *     }
+ *  */
+public class CsrGraph implements IndexedGraph {
+
+    // ids[i] is the unique identifier of the node with index i
+    final String[] ids;
+
+    // nodes[i] is the Node with index i in the Graph this was frozen from,
+    // or null if this graph was not built from a Graph
+    private final Node[] nodes;
+
+    // maps node ids to node indices
+    private final HashMap<String,Integer> index;
+
+    // edges of node u are offsets[u] .. offsets[u+1] - 1
+    final int[] offsets;
+    final int[] targets; // targets[e] is the node index edge e leads to
+    final double[] weights; // weights[e] is the weight of edge e
+
+    // the graph with every edge reversed, built on first use
+    private volatile CsrGraph reverse;
+
+    /** Constructor: create a CSR graph from the given arrays. The arrays are
+     * not copied. Precondition: offsets has length ids.length + 1, is
+     * non-decreasing, starts at 0 and ends at targets.length, and targets and
+     * weights have the same length. */
+    CsrGraph(String[] ids, int[] offsets, int[] targets, double[] weights) {
+        this(ids, null, offsets, targets, weights);
+    }
+
+    /** Constructor: as above, additionally remembering the Node objects the
+     * indices were assigned to. nodes may be null. */
+    CsrGraph(String[] ids, Node[] nodes, int[] offsets, int[] targets,
+            double[] weights) {
+        this(ids, nodes, indexIds(ids), offsets, targets, weights);
+    }
+
+    /* Constructor: as above, sharing an id index that is already built. */
+    private CsrGraph(String[] ids, Node[] nodes, HashMap<String,Integer> index,
+            int[] offsets, int[] targets, double[] weights) {
+        this.ids = ids;
+        this.nodes = nodes;
+        this.index = index;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /* Return a map from each id in ids to its position. */
+    private static HashMap<String,Integer> indexIds(String[] ids) {
+        HashMap<String,Integer> index = new HashMap<String,Integer>();
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+        }
+        return index;
+    }
+
+    /** Return a CSR graph with the same nodes and edges as g. Nodes are
+     * indexed in the iteration order of g.getNodes(). */
+    public static CsrGraph of(Graph g) {
+        Map<String,Node> nodes = g.getNodes();
+        int n = nodes.size();
+        String[] ids = new String[n];
+        Node[] byIndex = new Node[n];
+        HashMap<Node,Integer> nodeIndex = new HashMap<Node,Integer>();
+        int i = 0;
+        int m = 0;
+        for (Node v : nodes.values()) {
+            ids[i] = v.getId();
+            byIndex[i] = v;
+            nodeIndex.put(v, i);
+            m += v.getNeighbors().size();
+            i++;
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        int e = 0;
+        i = 0;
+        for (Node v : nodes.values()) {
+            offsets[i] = e;
+            for (Map.Entry<Node,Double> edge : v.getNeighbors().entrySet()) {
+                targets[e] = nodeIndex.get(edge.getKey());
+                weights[e] = edge.getValue();
+                e++;
+            }
+            i++;
+        }
+        offsets[n] = e;
+        return new CsrGraph(ids, byIndex, offsets, targets, weights);
+    }
+
+    /** Return a CSR graph of the nodes reachable from origin and the edges
+     * between them, with origin at index 0 and the other nodes indexed in
+     * breadth-first order. */
+    public static CsrGraph reachableFrom(Node origin) {
+        ArrayList<Node> order = new ArrayList<>();
+        HashMap<Node,Integer> nodeIndex = new HashMap<Node,Integer>();
+        order.add(origin);
+        nodeIndex.put(origin, 0);
+        int m = 0;
+        for (int i = 0; i < order.size(); i++) {
+            for (Node w : order.get(i).getNeighbors().keySet()) {
+                if (!nodeIndex.containsKey(w)) {
+                    nodeIndex.put(w, order.size());
+                    order.add(w);
+                }
+                m++;
+            }
+        }
+
+        int n = order.size();
+        String[] ids = new String[n];
+        Node[] byIndex = order.toArray(new Node[n]);
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        int e = 0;
+        for (int i = 0; i < n; i++) {
+            ids[i] = byIndex[i].getId();
+            offsets[i] = e;
+            for (Map.Entry<Node,Double> edge
+                    : byIndex[i].getNeighbors().entrySet()) {
+                targets[e] = nodeIndex.get(edge.getKey());
+                weights[e] = edge.getValue();
+                e++;
+            }
+        }
+        offsets[n] = e;
+        return new CsrGraph(ids, byIndex, offsets, targets, weights);
+    }
+
+    /** Return a new mutable Graph with the same nodes and edges as this
+     * one, with nodes created in index order. */
+    public Graph toGraph() {
+        return toGraph(EdgeAggregation.LAST);
+    }
+
+    /** As above, combining parallel edges according to aggregation. */
+    public Graph toGraph(EdgeAggregation aggregation) {
+        Graph g = new Graph(aggregation);
+        Node[] byIndex = new Node[size()];
+        for (int i = 0; i < byIndex.length; i++) {
+            byIndex[i] = g.getNode(ids[i]);
+        }
+        for (int u = 0; u < byIndex.length; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                g.addEdge(byIndex[u], byIndex[targets[e]], weights[e]);
+            }
+        }
+        return g;
+    }
+
+    /** Return the graph with the same nodes as this one and every edge
+     * reversed: for each edge u -> v of weight w, the result has an edge
+     * v -> u of weight w. Node indices are the same in both graphs. The
+     * result is computed once and then cached. */
+    public CsrGraph reverse() {
+        CsrGraph r = reverse;
+        if (r == null) {
+            r = transpose();
+            r.reverse = this;
+            reverse = r;
+        }
+        return r;
+    }
+
+    /* Build the reverse of this graph with a counting sort on targets. */
+    private CsrGraph transpose() {
+        int n = size();
+        int m = edgeCount();
+        int[] rOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            rOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            rOffsets[v + 1] += rOffsets[v];
+        }
+        int[] next = Arrays.copyOf(rOffsets, n);
+        int[] rTargets = new int[m];
+        double[] rWeights = new double[m];
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int slot = next[targets[e]]++;
+                rTargets[slot] = u;
+                rWeights[slot] = weights[e];
+            }
+        }
+        return new CsrGraph(ids, nodes, index, rOffsets, rTargets, rWeights);
+    }
+
+    /** Return a copy of this graph with the nodes relabeled in the given
+     * order and the edges of each node sorted by target, so that searches
+     * touch memory in a more predictable pattern. Ids and Nodes keep their
+     * identity; only their indices change, so use indexOf and id to
+     * translate. Parallel edges keep their relative order. */
+    public CsrGraph reorder(NodeOrder order) {
+        int n = size();
+        int[] oldIndex = order.order(this);
+        int[] newIndex = new int[n];
+        for (int i = 0; i < n; i++) {
+            newIndex[oldIndex[i]] = i;
+        }
+        String[] pIds = new String[n];
+        Node[] pNodes = nodes == null ? null : new Node[n];
+        int[] pOffsets = new int[n + 1];
+        int[] pTargets = new int[edgeCount()];
+        double[] pWeights = new double[edgeCount()];
+        int slot = 0;
+        for (int i = 0; i < n; i++) {
+            int u = oldIndex[i];
+            pIds[i] = ids[u];
+            if (nodes != null) {
+                pNodes[i] = nodes[u];
+            }
+            pOffsets[i] = slot;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                pTargets[slot] = newIndex[targets[e]];
+                pWeights[slot] = weights[e];
+                slot++;
+            }
+        }
+        pOffsets[n] = slot;
+        // each transpose lists edges in increasing order of their source,
+        // so transposing twice sorts every adjacency by target, and the
+        // first transpose is the reverse of the result
+        CsrGraph r = new CsrGraph(pIds, pNodes, pOffsets, pTargets, pWeights)
+            .transpose();
+        CsrGraph sorted = r.transpose();
+        sorted.reverse = r;
+        r.reverse = sorted;
+        return sorted;
+    }
+
+    /** Return the number of nodes in this graph. */
+    public int size() {
+        return ids.length;
+    }
+
+    /** Return the number of edges in this graph. */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /** Return the index of the node with id s, or -1 if there is no such
+     * node. */
+    public int indexOf(String s) {
+        Integer i = index.get(s);
+        return i == null ? -1 : i;
+    }
+
+    /** Return the index of node v, or -1 if v is not in this graph. */
+    public int indexOf(Node v) {
+        return indexOf(v.getId());
+    }
+
+    /** Return the id of the node with index i.
+     * Precondition: 0 <= i < size(). */
+    public String id(int i) {
+        return ids[i];
+    }
+
+    /** Return the Node with index i. If this graph was frozen from a Graph,
+     * this is the original Node; otherwise it is a new Node with the right
+     * id and no neighbors. Precondition: 0 <= i < size(). */
+    public Node node(int i) {
+        return nodes != null ? nodes[i] : new Node(ids[i]);
+    }
+
+    /** Return the index of the first outgoing edge of node u.
+     * Precondition: 0 <= u < size(). */
+    public int firstEdge(int u) {
+        return offsets[u];
+    }
+
+    /** Return one past the index of the last outgoing edge of node u.
+     * Precondition: 0 <= u < size(). */
+    public int lastEdge(int u) {
+        return offsets[u + 1];
+    }
+
+    /** Print the number of nodes and edges and the average degree, as
+     * Graph.report does. */
+    public void report() {
+        System.out.println("Graph has: ");
+        System.out.println(size() + " nodes.");
+        System.out.println(edgeCount() + " edges.");
+        System.out.println("Average degree " +
+                ((double) edgeCount()) / ((double) size()));
+    }
+
+    /** Return the out-degree of node u. Precondition: 0 <= u < size(). */
+    public int degree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /** Return the node index that edge e leads to.
+     * Precondition: 0 <= e < edgeCount(). */
+    public int target(int e) {
+        return targets[e];
+    }
+
+    /** Return the weight of edge e. Precondition: 0 <= e < edgeCount(). */
+    public double weight(int e) {
+        return weights[e];
+    }
+}
@@ -0,0 +1,568 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/** Customizable route planning: fast point-to-point shortest path queries
+ * on a graph whose weights change often. Preprocessing has two phases.
+ * The first, done once, partitions the nodes into nested cells on several
+ * levels (see MultiLevelPartition) and finds the boundary nodes of each
+ * cell, those with an edge to or from another cell on that level; it does
+ * not look at weights. The second, customization, takes a weight for each
+ * edge and computes, for each cell, the distances between all pairs of
+ * its boundary nodes within the cell. Cells on level 1 are searched in the
+ * graph itself and cells on higher levels in the cliques of the level
+ * below, so customization is a few small searches per cell, and the cells
+ * of a level are customized in parallel. Re-weighting the graph repeats
+ * only the second phase.
+ *
+ * A query runs Dijkstra's algorithm on an overlay of the graph: a node in
+ * the level 1 cell of the origin or the target follows its edges in the
+ * graph, and any other node follows the clique of its highest-level cell
+ * that contains neither of them, plus its edges leaving that cell. Clique
+ * edges are unpacked into edges of the graph, by a search inside their
+ * cell, before paths are returned.
+ * Queries pay off on graphs with small separators, such as road networks
+ * and grids, where they settle a small fraction of the nodes Dijkstra's
+ * algorithm does. On graphs without them, such as random graphs or
+ * airline networks with large hubs like those parsed from DB1B data, cell
+ * boundaries are large, the cliques are dense, and queries are many times
+ * slower than ShortestPaths or ContractionHierarchy.
+ * Queries are not thread-safe; use one instance per thread.
+ * Example usage:
+ *     CustomizableRoutes routes = CustomizableRoutes.build(g.freeze());
+ *     double minutes = routes.query(a, b);
+ *     routes.customize(trafficWeights);
+ *     minutes = routes.query(a, b);
+ *     int[] path = routes.path();
+ *  */
+public class CustomizableRoutes {
+
+    // the default number of nodes in a cell on level 1
+    private static final int DEFAULT_CELL_SIZE = 32;
+
+    private final CsrGraph graph; // the original graph
+    private final MultiLevelPartition partition;
+    private final int levels;
+    // cells[l - 1][v] is the cell of node v on level l
+    private final int[][] cells;
+    // the boundary nodes of cell c on level l are boundary[l - 1][i] for
+    // boundaryStart[l - 1][c] <= i < boundaryStart[l - 1][c + 1], and node
+    // v is number boundaryIndex[l - 1][v] among those of its cell, or -1
+    private final int[][] boundary;
+    private final int[][] boundaryStart;
+    private final int[][] boundaryIndex;
+    // the clique of cell c on level l with k boundary nodes is stored
+    // row-major from cliqueStart[l - 1][c]: the entry for boundary nodes
+    // i and j is the distance from the ith to the jth within the cell
+    private final int[][] cliqueStart;
+    // the edges entering v are edges inEdges[i] of the graph, from node
+    // inSources[i], for inOffsets[v] <= i < inOffsets[v + 1]
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inEdges;
+
+    private Metric metric; // the weights and cliques of the customization
+
+    private final Side search; // the query search from the origin
+    private final Side backward; // the query search from the target
+    private final Side unpacker; // searches inside one cell
+    // searches customize borrows, one per cell customized at a time, kept
+    // for the next customization
+    private final ConcurrentLinkedQueue<Side> customizers =
+        new ConcurrentLinkedQueue<>();
+    private int target; // the target of the last query, or -1
+    private double best; // length of the best path found by the last query
+    private int meeting; // a node on that path, or -1 if there is none
+
+    /** The weights of one customization and the cliques computed from
+     * them; cliques[l - 1] holds the cliques of every cell on level l. */
+    private static final class Metric {
+        final double[] weights;
+        final double[][] cliques;
+
+        Metric(double[] weights, double[][] cliques) {
+            this.weights = weights;
+            this.cliques = cliques;
+        }
+    }
+
+    /** A search over the overlay. */
+    private static final class Side {
+        final DijkstraWorkspace ws;
+        // via[v] is the level of the clique edge by which the search last
+        // improved v, or 0 if it was an edge of the graph; null if not kept
+        final int[] via;
+
+        Side(int n, boolean keepVia) {
+            ws = new DijkstraWorkspace(n);
+            via = keepVia ? new int[n] : null;
+        }
+    }
+
+    /** Constructor: prepare queries on g over the cells of partition, and
+     * customize them with the weights of g. Later changes to g are not
+     * reflected. Precondition: partition was built for g. */
+    public CustomizableRoutes(CsrGraph g, MultiLevelPartition partition) {
+        this.graph = g;
+        this.partition = partition;
+        int n = g.size();
+        levels = partition.levels();
+        cells = new int[levels][];
+        boundary = new int[levels][];
+        boundaryStart = new int[levels][];
+        boundaryIndex = new int[levels][];
+        cliqueStart = new int[levels][];
+        for (int l = 1; l <= levels; l++) {
+            findBoundary(l);
+        }
+        inOffsets = new int[n + 1];
+        inSources = new int[g.edgeCount()];
+        inEdges = new int[g.edgeCount()];
+        findIncoming();
+        search = new Side(n, true);
+        backward = new Side(n, true);
+        unpacker = new Side(n, false);
+        customize(g.weights);
+    }
+
+    /** Return routes for the graph g, over a partition with at most
+     * cellSize nodes per cell on level 1 and enough levels that the cells
+     * on the top level hold less than all of g. Later changes to g are not
+     * reflected. */
+    public static CustomizableRoutes build(Graph g) {
+        return build(g.freeze());
+    }
+
+    /** As build(Graph), for the graph g. */
+    public static CustomizableRoutes build(CsrGraph g) {
+        int levels = 1;
+        long size = (long) DEFAULT_CELL_SIZE * MultiLevelPartition.FANOUT;
+        while (size < g.size() / 2) {
+            levels++;
+            size *= MultiLevelPartition.FANOUT;
+        }
+        return new CustomizableRoutes(g,
+                MultiLevelPartition.build(g, DEFAULT_CELL_SIZE, levels));
+    }
+
+    /** Return the partition the overlay is built on. */
+    public MultiLevelPartition partition() {
+        return partition;
+    }
+
+    /** Return the number of clique edges on all levels of the overlay. */
+    public long overlayEdgeCount() {
+        long count = 0;
+        for (int l = 0; l < levels; l++) {
+            int[] start = cliqueStart[l];
+            count += start[start.length - 1];
+        }
+        return count;
+    }
+
+    /* Find the boundary nodes of every cell on level l, and lay out the
+     * cliques of those cells. */
+    private void findBoundary(int l) {
+        int n = graph.size();
+        int[] cell = partition.cells(l);
+        int count = partition.cellCount(l);
+        cells[l - 1] = cell;
+        boolean[] isBoundary = new boolean[n];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int w = graph.targets[e];
+                if (cell[u] != cell[w]) {
+                    isBoundary[u] = true;
+                    isBoundary[w] = true;
+                }
+            }
+        }
+        // group the boundary nodes by cell, counting sort style
+        int[] start = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            if (isBoundary[v]) {
+                start[cell[v] + 1]++;
+            }
+        }
+        for (int c = 0; c < count; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] nodes = new int[start[count]];
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int[] next = Arrays.copyOf(start, count);
+        for (int v = 0; v < n; v++) {
+            if (isBoundary[v]) {
+                int c = cell[v];
+                index[v] = next[c] - start[c];
+                nodes[next[c]++] = v;
+            }
+        }
+        int[] clique = new int[count + 1];
+        long total = 0;
+        for (int c = 0; c < count; c++) {
+            clique[c] = (int) total;
+            long k = start[c + 1] - start[c];
+            total += k * k;
+            if (total > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Cells on level " + l
+                        + " have too many boundary nodes for their cliques");
+            }
+        }
+        clique[count] = (int) total;
+        boundary[l - 1] = nodes;
+        boundaryStart[l - 1] = start;
+        boundaryIndex[l - 1] = index;
+        cliqueStart[l - 1] = clique;
+    }
+
+    /* Fill inOffsets, inSources and inEdges with the edges entering each
+     * node, counting sort style. */
+    private void findIncoming() {
+        int n = graph.size();
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            inOffsets[graph.targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int i = next[graph.targets[e]]++;
+                inSources[i] = u;
+                inEdges[i] = e;
+            }
+        }
+    }
+
+    /** Recompute the cliques for new edge weights: weights[e] is the weight
+     * of edge e of the graph, as numbered by CsrGraph. The weights are
+     * copied. Throws IllegalArgumentException if there is not one weight
+     * per edge or a weight is negative or NaN. */
+    public void customize(double[] weights) {
+        if (weights.length != graph.edgeCount()) {
+            throw new IllegalArgumentException("Expected "
+                    + graph.edgeCount() + " weights, got " + weights.length);
+        }
+        for (double w : weights) {
+            if (!(w >= 0)) {
+                throw new IllegalArgumentException("Bad edge weight: " + w);
+            }
+        }
+        double[][] cliques = new double[levels][];
+        for (int l = 0; l < levels; l++) {
+            int[] start = cliqueStart[l];
+            cliques[l] = new double[start[start.length - 1]];
+        }
+        Metric m = new Metric(weights.clone(), cliques);
+        // each level is searched in the cliques of the level below
+        for (int l = 1; l <= levels; l++) {
+            int level = l;
+            IntStream.range(0, partition.cellCount(l)).parallel().forEach(c -> {
+                Side side = borrowCustomizer();
+                try {
+                    customizeCell(m, level, c, side);
+                } finally {
+                    customizers.offer(side);
+                }
+            });
+        }
+        metric = m;
+        target = -1;
+    }
+
+    /* Take a search from the customizers, or create one if there is none
+     * free. */
+    private Side borrowCustomizer() {
+        Side side = customizers.poll();
+        return side != null ? side : new Side(graph.size(), false);
+    }
+
+    /* Fill in the clique of cell c on level l in m, with one search inside
+     * the cell from each of its boundary nodes, in the graph if l is 1 and
+     * otherwise in the overlay of level l - 1. */
+    private void customizeCell(Metric m, int l, int c, Side side) {
+        DijkstraWorkspace ws = side.ws;
+        int[] nodes = boundary[l - 1];
+        int first = boundaryStart[l - 1][c];
+        int k = boundaryStart[l - 1][c + 1] - first;
+        int[] index = boundaryIndex[l - 1];
+        double[] clique = m.cliques[l - 1];
+        int row = cliqueStart[l - 1][c];
+        for (int i = 0; i < k; i++) {
+            ws.start(nodes[first + i]);
+            int left = k; // boundary nodes not yet settled
+            while (left > 0 && !ws.queue.isEmpty()) {
+                double fD = ws.queue.minPriority();
+                int f = ws.queue.poll();
+                if (fD > ws.dist[f]) {
+                    continue; // stale duplicate entry
+                }
+                if (index[f] >= 0) {
+                    left--;
+                }
+                relax(m, side, null, f, fD, l - 1, l);
+            }
+            for (int j = 0; j < k; j++) {
+                int v = nodes[first + j];
+                clique[row + j] = ws.reached(v) ? ws.dist[v]
+                    : Double.POSITIVE_INFINITY;
+            }
+            row += k;
+        }
+    }
+
+    /* Relax the edges leaving f, at distance fD, for side on level l of the
+     * overlay of m: if l is 0 the edges of the graph, and otherwise the
+     * clique of f's cell on level l and the edges of the graph leaving that
+     * cell. If inside is positive, only edges to nodes in f's cell on level
+     * inside are relaxed. If other is not null, paths that reach nodes
+     * other has reached are offered to meet. */
+    private void relax(Metric m, Side side, Side other, int f, double fD,
+            int l, int inside) {
+        DijkstraWorkspace ws = side.ws;
+        int[] home = inside > 0 ? cells[inside - 1] : null;
+        int[] own = l > 0 ? cells[l - 1] : null;
+        if (l > 0) {
+            int c = own[f];
+            int first = boundaryStart[l - 1][c];
+            int k = boundaryStart[l - 1][c + 1] - first;
+            int row = cliqueStart[l - 1][c] + boundaryIndex[l - 1][f] * k;
+            int[] nodes = boundary[l - 1];
+            double[] clique = m.cliques[l - 1];
+            for (int j = 0; j < k; j++) {
+                double d = fD + clique[row + j];
+                if (d < Double.POSITIVE_INFINITY) {
+                    improve(side, other, f, nodes[first + j], d, l);
+                }
+            }
+        }
+        for (int e = graph.offsets[f]; e < graph.offsets[f + 1]; e++) {
+            int w = graph.targets[e];
+            if ((own == null || own[w] != own[f])
+                    && (home == null || home[w] == home[f])) {
+                improve(side, other, f, w, fD + m.weights[e], 0);
+            }
+        }
+    }
+
+    /* Relax the edges entering f, at distance fD from the target, for the
+     * backward query search from t to s: the edges of the overlay of m that
+     * the search from s would follow into f. f is on level l of the
+     * overlay, so these are the column of f in the clique of its cell on
+     * level l, and the edges of the graph from each node u that leave u's
+     * cell on u's own level. */
+    private void relaxBackward(Metric m, int f, double fD, int l, int s,
+            int t) {
+        if (l > 0) {
+            int c = cells[l - 1][f];
+            int first = boundaryStart[l - 1][c];
+            int k = boundaryStart[l - 1][c + 1] - first;
+            int entry = cliqueStart[l - 1][c] + boundaryIndex[l - 1][f];
+            int[] nodes = boundary[l - 1];
+            double[] clique = m.cliques[l - 1];
+            for (int i = 0; i < k; i++) {
+                double d = fD + clique[entry + i * k];
+                if (d < Double.POSITIVE_INFINITY) {
+                    improve(backward, search, f, nodes[first + i], d, l);
+                }
+            }
+        }
+        for (int i = inOffsets[f]; i < inOffsets[f + 1]; i++) {
+            int u = inSources[i];
+            int lu = queryLevel(u, s, t);
+            if (lu == 0 || cells[lu - 1][u] != cells[lu - 1][f]) {
+                improve(backward, search, f, u, fD + m.weights[inEdges[i]],
+                        0);
+            }
+        }
+    }
+
+    /* Offer side a path to w through f of length d whose last edge is on
+     * level l, and if it is better and other has reached w, offer the
+     * joined path to meet. */
+    private void improve(Side side, Side other, int f, int w, double d,
+            int l) {
+        if (side.ws.relax(f, w, d, d)) {
+            if (side.via != null) {
+                side.via[w] = l;
+            }
+            if (other != null && other.ws.reached(w)
+                    && d + other.ws.dist[w] < best) {
+                best = d + other.ws.dist[w];
+                meeting = w;
+            }
+        }
+    }
+
+    /** Return the length of the shortest path from the node with index
+     * origin to the node with index target under the weights of the last
+     * customization, or Double.POSITIVE_INFINITY if there is none.
+     * Precondition: both indices are in [0, g.size()). */
+    public double query(int origin, int target) {
+        Metric m = metric;
+        DijkstraWorkspace forward = search.ws;
+        DijkstraWorkspace back = backward.ws;
+        this.target = target;
+        forward.start(origin);
+        back.start(target);
+        search.via[origin] = 0;
+        backward.via[target] = 0;
+        best = origin == target ? 0.0 : Double.POSITIVE_INFINITY;
+        meeting = origin == target ? origin : -1;
+        // stop when no path through the unsettled nodes can be shorter
+        while (!forward.queue.isEmpty() && !back.queue.isEmpty()
+                && forward.queue.minPriority() + back.queue.minPriority()
+                    < best) {
+            if (forward.queue.minPriority() <= back.queue.minPriority()) {
+                double fD = forward.queue.minPriority();
+                int f = forward.queue.poll();
+                if (fD <= forward.dist[f]) {
+                    relax(m, search, backward, f, fD,
+                            queryLevel(f, origin, target), 0);
+                }
+            } else {
+                double fD = back.queue.minPriority();
+                int f = back.queue.poll();
+                if (fD <= back.dist[f]) {
+                    relaxBackward(m, f, fD, queryLevel(f, origin, target),
+                            origin, target);
+                }
+            }
+        }
+        return best;
+    }
+
+    /* Return the highest level on which v is in a different cell from both
+     * s and t, or 0 if there is none. A node reached on level l > 0 is
+     * always a boundary node of its cell on level l. */
+    private int queryLevel(int v, int s, int t) {
+        for (int l = levels; l > 0; l--) {
+            int[] cell = cells[l - 1];
+            if (cell[v] != cell[s] && cell[v] != cell[t]) {
+                return l;
+            }
+        }
+        return 0;
+    }
+
+    /** Return the nodes on the shortest path found by the last query in the
+     * original graph, including both ends, or null if there is no path.
+     * Precondition: query has been called since the last customization. */
+    public int[] path() {
+        if (target < 0 || meeting < 0) {
+            return null;
+        }
+        // the path in the overlay, with the level of the edge into each
+        // node: from the origin to the meeting node, then on to the target
+        int hops = 0;
+        for (int v = meeting; v != -1; v = search.ws.previous(v)) {
+            hops++;
+        }
+        int forwardHops = hops;
+        for (int v = meeting; v != target; v = backward.ws.previous(v)) {
+            hops++;
+        }
+        int[] overlayPath = new int[hops];
+        int[] edgeLevel = new int[hops];
+        int i = forwardHops - 1;
+        for (int v = meeting; v != -1; v = search.ws.previous(v)) {
+            overlayPath[i] = v;
+            edgeLevel[i--] = search.via[v];
+        }
+        i = forwardHops;
+        for (int v = meeting; v != target; v = backward.ws.previous(v)) {
+            overlayPath[i] = backward.ws.previous(v);
+            edgeLevel[i++] = backward.via[v];
+        }
+
+        // replace each clique edge by a path inside its cell
+        int[] path = new int[hops];
+        int count = 0;
+        path[count++] = overlayPath[0];
+        for (i = 1; i < hops; i++) {
+            int a = overlayPath[i - 1];
+            int b = overlayPath[i];
+            int edges = edgeLevel[i] == 0 ? 1 : unpack(a, b, edgeLevel[i]);
+            if (count + edges > path.length) {
+                path = Arrays.copyOf(path, Math.max(2 * path.length,
+                            count + edges));
+            }
+            if (edgeLevel[i] == 0) {
+                path[count] = b;
+            } else {
+                int j = count + edges - 1;
+                for (int v = b; v != a; v = unpacker.ws.previous(v)) {
+                    path[j--] = v;
+                }
+            }
+            count += edges;
+        }
+        return Arrays.copyOf(path, count);
+    }
+
+    /** Returns the length of the shortest path from origin to destination
+     * under the weights of the last customization. If no path exists,
+     * return Double.POSITIVE_INFINITY.
+     * Precondition: origin and destination are nodes in the graph the
+     * routes were built for. */
+    public double shortestPathLength(Node origin, Node destination) {
+        int s = graph.indexOf(origin);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return query(s, t);
+    }
+
+    /** Returns a LinkedList of the nodes along the shortest path from origin
+     * to destination, as ShortestPaths.shortestPath does, under the weights
+     * of the last customization. If no path exists, return null.
+     * Precondition: origin and destination are nodes in the graph the
+     * routes were built for. */
+    public LinkedList<Node> shortestPath(Node origin, Node destination) {
+        int s = graph.indexOf(origin);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) {
+            return null;
+        }
+        query(s, t);
+        int[] indices = path();
+        if (indices == null) {
+            return null;
+        }
+        LinkedList<Node> path = new LinkedList<>();
+        for (int v : indices) {
+            path.addLast(graph.node(v));
+        }
+        return path;
+    }
+
+    /* Search the graph inside the cell of a on level l from a to b, and
+     * return the number of edges on the path found. */
+    private int unpack(int a, int b, int l) {
+        Metric m = metric;
+        DijkstraWorkspace ws = unpacker.ws;
+        ws.start(a);
+        while (!ws.queue.isEmpty()) {
+            double fD = ws.queue.minPriority();
+            int f = ws.queue.poll();
+            if (fD > ws.dist[f]) {
+                continue; // stale duplicate entry
+            }
+            if (f == b) {
+                break;
+            }
+            relax(m, unpacker, null, f, fD, 0, l);
+        }
+        int edges = 0;
+        for (int v = b; v != a; v = ws.previous(v)) {
+            edges++;
+        }
+        return edges;
+    }
+}
@@ -23,18 +23,22 @@ public class DB1BParser extends GraphParser {
     /** Open the given file and prepare to parse it. */
     @Override
     public void open(File f) throws FileNotFoundException {
+        long startTime = System.nanoTime();
         sc = new Scanner(f);
         parseHeaders(sc.nextLine());
+        recordPhase("header", startTime);
     }
 
     /** Parse an opened file and return a Graph representing the data in the
      * file. Precondition: open() has been successfully called. */
     @Override
     public Graph parse() {
-        graph = new Graph();
+        long startTime = System.nanoTime();
+        graph = new Graph(aggregation);
         while (sc.hasNextLine()) {
             parseFlight(sc.nextLine().split(","));
         }
+        recordPhase("parse", startTime);
         return graph;
     }
 
@@ -0,0 +1,173 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A d-ary min-heap of int node indices with double priorities. An int[]
+ * position index maps each node to its slot in the heap, so lowering a
+ * node's priority takes O(log_d n) time and no priority is ever boxed.
+ * Larger arities make the heap shallower, which makes offer cheaper and
+ * poll more expensive. */
+class DaryHeap implements IntPriorityQueue {
+
+    /** The arity used when none is given. */
+    static final int DEFAULT_ARITY = 4;
+
+    private final int arity; // number of children of each slot
+    private int[] heap; // heap[i] is the node in slot i
+    private double[] priority; // priority[i] is the priority of heap[i]
+    private int[] pos; // pos[v] is the slot of node v, or -1 if v is absent
+    private int size; // number of nodes in the heap
+
+    /** Constructor: create an empty heap with the default arity for node
+     * indices in [0, capacity). */
+    DaryHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /** Constructor: create an empty heap for node indices in [0, capacity)
+     * in which each slot has up to arity children.
+     * Precondition: arity >= 2. */
+    DaryHeap(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2: "
+                    + arity);
+        }
+        this.arity = arity;
+        heap = new int[capacity];
+        priority = new double[capacity];
+        pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Return true if the heap contains node v. */
+    boolean contains(int v) {
+        return pos[v] >= 0;
+    }
+
+    @Override
+    public void offer(int v, double p) {
+        int i = pos[v];
+        if (i < 0) {
+            i = size++;
+            heap[i] = v;
+            pos[v] = i;
+            priority[i] = p;
+            bubbleUp(i);
+        } else if (p < priority[i]) {
+            priority[i] = p;
+            bubbleUp(i);
+        }
+    }
+
+    /** Set the priority of node v, which must be in the heap, to p, whether
+     * that raises or lowers it. */
+    void update(int v, double p) {
+        int i = pos[v];
+        double old = priority[i];
+        priority[i] = p;
+        if (p < old) {
+            bubbleUp(i);
+        } else {
+            bubbleDown(i);
+        }
+    }
+
+    @Override
+    public double minPriority() {
+        return priority[0];
+    }
+
+    @Override
+    public int poll() {
+        int v = heap[0];
+        pos[v] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            priority[0] = priority[size];
+            pos[heap[0]] = 0;
+            bubbleDown(0);
+        }
+        return v;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity <= pos.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, 2 * pos.length);
+        int oldCapacity = pos.length;
+        heap = Arrays.copyOf(heap, newCapacity);
+        priority = Arrays.copyOf(priority, newCapacity);
+        pos = Arrays.copyOf(pos, newCapacity);
+        Arrays.fill(pos, oldCapacity, newCapacity, -1);
+    }
+
+    /* Move the node in slot i up until its parent has a smaller priority. */
+    private void bubbleUp(int i) {
+        int v = heap[i];
+        double p = priority[i];
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            if (priority[parent] <= p) {
+                break;
+            }
+            heap[i] = heap[parent];
+            priority[i] = priority[parent];
+            pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        priority[i] = p;
+        pos[v] = i;
+    }
+
+    /* Move the node in slot i down until its children have larger
+     * priorities. */
+    private void bubbleDown(int i) {
+        int v = heap[i];
+        double p = priority[i];
+        while (true) {
+            int first = arity * i + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + arity, size);
+            int c = first;
+            for (int j = first + 1; j < last; j++) {
+                if (priority[j] < priority[c]) {
+                    c = j;
+                }
+            }
+            if (priority[c] >= p) {
+                break;
+            }
+            heap[i] = heap[c];
+            priority[i] = priority[c];
+            pos[heap[i]] = i;
+            i = c;
+        }
+        heap[i] = v;
+        priority[i] = p;
+        pos[v] = i;
+    }
+}
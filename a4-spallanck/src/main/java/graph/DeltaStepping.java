@@ -0,0 +1,386 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Parallel single-source shortest paths with delta-stepping (Meyer and
+ * Sanders). Tentative distances are kept in buckets of width delta. The
+ * nodes of the lowest non-empty bucket are settled together: their light
+ * edges (weight at most delta), which may refill the same bucket, are
+ * relaxed in parallel rounds until the bucket stays empty, and then their
+ * heavy edges are relaxed once. Only the buckets a relaxation can reach,
+ * up to the heaviest edge beyond the current one, are kept, in a cyclic
+ * array, and empty buckets are skipped, so the work does not grow with
+ * the longest distance over delta. Distances live in a primitive array of
+ * double bits updated with compare-and-set, so worker threads never lock.
+ * The distances are exactly those Dijkstra's algorithm computes.
+ * Example usage:
+ *     CsrGraph g = // freeze your graph
+ *     DeltaStepping ds = new DeltaStepping(g);
+ *     ds.run(g.indexOf("A"));
+ *     double ab = ds.distance(g.indexOf("B"));
+ *  */
+public class DeltaStepping {
+
+    // relaxation batches smaller than this are not split between threads
+    private static final int SEQUENTIAL_THRESHOLD = 256;
+
+    // the most buckets kept in the cyclic array; further ones overflow
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private final CsrGraph graph;
+    private final double delta; // width of a bucket
+    private final int bucketCount; // length of the cyclic bucket array
+    private final ForkJoinPool pool; // the worker threads
+
+    // dist holds the raw long bits of each node's tentative distance
+    private final AtomicLongArray dist;
+    private final int[] prev; // predecessors, filled in after the search
+    private final int[] mark; // mark[v] == round if v was taken this round
+    private int round;
+    private int origin;
+
+    /** Constructor: prepare to search g on the common ForkJoinPool with the
+     * mean edge weight as bucket width. */
+    public DeltaStepping(CsrGraph g) {
+        this(g, meanWeight(g), ForkJoinPool.commonPool());
+    }
+
+    /** Constructor: prepare to search g on pool with buckets of width
+     * delta. Precondition: delta > 0. */
+    public DeltaStepping(CsrGraph g, double delta, ForkJoinPool pool) {
+        if (!(delta > 0)) {
+            throw new IllegalArgumentException("Delta must be positive: "
+                    + delta);
+        }
+        graph = g;
+        this.delta = delta;
+        this.pool = pool;
+        double maxWeight = 0.0;
+        for (int e = 0; e < g.edgeCount(); e++) {
+            maxWeight = Math.max(maxWeight, g.weights[e]);
+        }
+        // an edge leads at most maxWeight / delta + 1 buckets ahead
+        bucketCount = (int) Math.min(MAX_BUCKETS,
+                Math.floor(maxWeight / delta) + 2);
+        dist = new AtomicLongArray(g.size());
+        prev = new int[g.size()];
+        mark = new int[g.size()];
+        origin = -1;
+    }
+
+    /** Compute the shortest paths from the node with index origin to all
+     * nodes. Precondition: 0 <= origin < g.size(). */
+    public void run(int origin) {
+        this.origin = origin;
+        long inf = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for (int v = 0; v < graph.size(); v++) {
+            dist.set(v, inf);
+        }
+        dist.set(origin, Double.doubleToRawLongBits(0.0));
+        Buckets buckets = new Buckets();
+        buckets.add(0, origin);
+
+        IntList settled = new IntList();
+        for (long i = buckets.next(); i >= 0; i = buckets.next()) {
+            settled.clear();
+            // light edges may put nodes back in bucket i; repeat until not
+            while (buckets.size(i) > 0) {
+                IntList current = take(buckets, i);
+                settled.addAll(current);
+                bucket(buckets, relaxAll(current, true));
+            }
+            bucket(buckets, relaxAll(settled, false));
+        }
+        buildTree();
+    }
+
+    /** Return the graph this engine searches. */
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    /** Return the length of the shortest path from the origin of the last
+     * run to v, or Double.POSITIVE_INFINITY if v is unreachable. */
+    public double distance(int v) {
+        return Double.longBitsToDouble(dist.get(v));
+    }
+
+    /** Return the node before v on a shortest path from the origin of the
+     * last run, or -1 if v is the origin or unreachable. */
+    public int previous(int v) {
+        return prev[v];
+    }
+
+    /* Remove the nodes in bucket i, keeping each node once and only if its
+     * distance still belongs to bucket i. */
+    private IntList take(Buckets buckets, long i) {
+        round++;
+        IntList raw = buckets.remove(i);
+        IntList current = new IntList();
+        for (int j = 0; j < raw.size; j++) {
+            int v = raw.items[j];
+            if (mark[v] != round && bucketOf(distance(v)) == i) {
+                mark[v] = round;
+                current.add(v);
+            }
+        }
+        return current;
+    }
+
+    /* Put each improved node into the bucket of its new distance. */
+    private void bucket(Buckets buckets, IntList improved) {
+        for (int j = 0; j < improved.size; j++) {
+            int v = improved.items[j];
+            buckets.add(bucketOf(distance(v)), v);
+        }
+    }
+
+    /* Return the index of the bucket for distance d. */
+    private long bucketOf(double d) {
+        return (long) Math.floor(d / delta);
+    }
+
+    /* Relax the light (if light is true) or heavy edges of the given nodes
+     * in parallel, and return the nodes whose distances improved. */
+    private IntList relaxAll(IntList nodes, boolean light) {
+        if (nodes.size <= SEQUENTIAL_THRESHOLD) {
+            return relaxRange(nodes, 0, nodes.size, light);
+        }
+        return pool.invoke(new RelaxTask(nodes, 0, nodes.size, light));
+    }
+
+    /* Relax the light or heavy edges of nodes lo .. hi-1 of the list. */
+    private IntList relaxRange(IntList nodes, int lo, int hi, boolean light) {
+        IntList improved = new IntList();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+        for (int j = lo; j < hi; j++) {
+            int u = nodes.items[j];
+            double du = distance(u);
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                double w = weights[e];
+                if ((w <= delta) == light && relax(targets[e], du + w)) {
+                    improved.add(targets[e]);
+                }
+            }
+        }
+        return improved;
+    }
+
+    /* Lower the distance of v to d if d is smaller. Return true if it was
+     * lowered. */
+    private boolean relax(int v, double d) {
+        long bits = Double.doubleToRawLongBits(d);
+        while (true) {
+            long current = dist.get(v);
+            if (Double.longBitsToDouble(current) <= d) {
+                return false;
+            }
+            if (dist.compareAndSet(v, current, bits)) {
+                return true;
+            }
+        }
+    }
+
+    /* Fill in prev by a breadth-first search from the origin over tight
+     * edges, those with dist[u] + w == dist[v]. Every edge of a shortest
+     * path is tight, so this reaches every reachable node, and the search
+     * order keeps the predecessors free of cycles. */
+    private void buildTree() {
+        Arrays.fill(prev, -1);
+        round++;
+        int[] queue = new int[graph.size()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = origin;
+        mark[origin] = round;
+        while (head < tail) {
+            int u = queue[head++];
+            double du = distance(u);
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int v = graph.targets[e];
+                if (mark[v] != round && du + graph.weights[e] == distance(v)) {
+                    mark[v] = round;
+                    prev[v] = u;
+                    queue[tail++] = v;
+                }
+            }
+        }
+    }
+
+    /* Return the mean edge weight of g, or 1 if that is not positive. */
+    private static double meanWeight(CsrGraph g) {
+        double sum = 0.0;
+        for (int e = 0; e < g.edgeCount(); e++) {
+            sum += g.weights[e];
+        }
+        double mean = g.edgeCount() == 0 ? 0.0 : sum / g.edgeCount();
+        return mean > 0 ? mean : 1.0;
+    }
+
+    /** Relaxes the edges of a range of a node list, splitting the range
+     * among workers while it is large. */
+    private class RelaxTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+
+        private final IntList nodes;
+        private final int lo;
+        private final int hi;
+        private final boolean light;
+
+        /** Constructor: a task for nodes lo .. hi-1 of the list. */
+        RelaxTask(IntList nodes, int lo, int hi, boolean light) {
+            this.nodes = nodes;
+            this.lo = lo;
+            this.hi = hi;
+            this.light = light;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (hi - lo <= SEQUENTIAL_THRESHOLD) {
+                return relaxRange(nodes, lo, hi, light);
+            }
+            int mid = (lo + hi) >>> 1;
+            RelaxTask left = new RelaxTask(nodes, lo, mid, light);
+            left.fork();
+            IntList result = new RelaxTask(nodes, mid, hi, light).compute();
+            result.addAll(left.join());
+            return result;
+        }
+    }
+
+    /** The buckets of tentative distances, indexed from 0. The buckets
+     * base .. base + bucketCount - 1 live in a cyclic array, bucket i in
+     * slot i % bucketCount; nodes in later buckets wait in an overflow list
+     * until the window reaches them. A node may be in several buckets;
+     * stale copies are dropped when a bucket is taken. */
+    private class Buckets {
+        private final IntList[] slots = new IntList[bucketCount];
+        private final BitSet used = new BitSet(bucketCount); // non-empty slots
+        private IntList overflow = new IntList();
+        // no overflow node was in a bucket below this when it was added
+        private long overflowLow = Long.MAX_VALUE;
+        private long base; // the lowest bucket in the window
+        private long done = -1; // the last bucket next returned
+
+        /** Return the lowest non-empty bucket after the last one returned,
+         * or -1 if every bucket is empty. */
+        long next() {
+            while (true) {
+                int s = (int) (base % bucketCount);
+                int t = used.nextSetBit(s);
+                if (t < 0) {
+                    t = used.nextSetBit(0); // wrap around
+                }
+                long i = t < 0 ? -1
+                    : base + (t - s + bucketCount) % bucketCount;
+                if (overflow.size > 0 && (i < 0 || overflowLow <= i)) {
+                    refill(i < 0);
+                } else {
+                    if (i >= 0) {
+                        base = i;
+                        done = i;
+                    }
+                    return i;
+                }
+            }
+        }
+
+        /* Move the overflow nodes whose buckets fit in the window into it,
+         * first moving the window to the lowest of them if it is empty, and
+         * drop the copies whose buckets are already settled. */
+        private void refill(boolean empty) {
+            IntList waiting = overflow;
+            overflow = new IntList();
+            overflowLow = Long.MAX_VALUE;
+            if (empty) {
+                long lowest = Long.MAX_VALUE;
+                for (int j = 0; j < waiting.size; j++) {
+                    long i = bucketOf(distance(waiting.items[j]));
+                    if (i > done) {
+                        lowest = Math.min(lowest, i);
+                    }
+                }
+                if (lowest == Long.MAX_VALUE) {
+                    return; // every copy was stale
+                }
+                base = lowest;
+            }
+            for (int j = 0; j < waiting.size; j++) {
+                int v = waiting.items[j];
+                long i = bucketOf(distance(v));
+                if (i > done) {
+                    add(i, v);
+                }
+            }
+        }
+
+        /** Return the number of entries in bucket i.
+         * Precondition: i is the bucket next returned last. */
+        int size(long i) {
+            IntList list = slots[(int) (i % bucketCount)];
+            return list != null ? list.size : 0;
+        }
+
+        /** Add v to bucket i. Precondition: i is at least the bucket next
+         * returned last. */
+        void add(long i, int v) {
+            if (i - base >= bucketCount) {
+                overflow.add(v);
+                overflowLow = Math.min(overflowLow, i);
+                return;
+            }
+            int s = (int) (i % bucketCount);
+            if (slots[s] == null) {
+                slots[s] = new IntList();
+                used.set(s);
+            }
+            slots[s].add(v);
+        }
+
+        /** Remove and return the entries of bucket i.
+         * Precondition: i is the bucket next returned last. */
+        IntList remove(long i) {
+            int s = (int) (i % bucketCount);
+            IntList list = slots[s];
+            slots[s] = null;
+            used.clear(s);
+            return list != null ? list : new IntList();
+        }
+    }
+
+    /** A growable list of ints. */
+    private static class IntList {
+        int[] items = new int[8];
+        int size;
+
+        /** Append v. */
+        void add(int v) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, 2 * size);
+            }
+            items[size++] = v;
+        }
+
+        /** Append every entry of other. */
+        void addAll(IntList other) {
+            if (size + other.size > items.length) {
+                items = Arrays.copyOf(items,
+                        Math.max(size + other.size, 2 * items.length));
+            }
+            System.arraycopy(other.items, 0, items, size, other.size);
+            size += other.size;
+        }
+
+        /** Remove every entry. */
+        void clear() {
+            size = 0;
+        }
+    }
+}
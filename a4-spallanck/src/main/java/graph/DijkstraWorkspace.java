@@ -0,0 +1,338 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** Preallocated state for running Dijkstra's algorithm on a CsrGraph many
+ * times. The distance and predecessor arrays are only valid for nodes whose
+ * stamp equals the current generation, so starting a new search just bumps
+ * the generation instead of clearing the arrays. Once a workspace has been
+ * created, later searches allocate nothing.
+ * A workspace is not thread-safe; use one per thread.
+ * Example usage:
+ *     CsrGraph g = // freeze your graph
+ *     DijkstraWorkspace ws = new DijkstraWorkspace(g.size());
+ *     ws.run(g, g.indexOf("A"));
+ *     double ab = ws.distance(g.indexOf("B"));
+ *  */
+public class DijkstraWorkspace {
+
+    // dist[v] is the best known distance to v in the current search, valid
+    // only if stamp[v] == generation:
+    final double[] dist;
+    // prev[v] is the node before v on the best known path to v, or -1 if v
+    // is the source; valid only if stamp[v] == generation:
+    final int[] prev;
+    private final int[] stamp; // the generation in which v was last reached
+    private int generation; // number of the current search
+
+    // touched[0 .. touchedCount-1] are the nodes reached by the current
+    // search, in the order they were first reached:
+    private final int[] touched;
+    private int touchedCount;
+
+    final IntPriorityQueue queue; // the frontier
+
+    // counts for the current search, kept only if Metrics.ENABLED
+    private long settled;
+    private long relaxed;
+    private long decreaseKeys;
+    private int peakQueueSize;
+    private QueryStats stats; // the stats of the last run, or null
+
+    /** Constructor: create a workspace for graphs with at most capacity
+     * nodes, using a d-ary heap with the default arity. */
+    public DijkstraWorkspace(int capacity) {
+        this(capacity, QueueKind.DARY_HEAP, DaryHeap.DEFAULT_ARITY);
+    }
+
+    /** Constructor: create a workspace for graphs with at most capacity
+     * nodes, using a frontier of the given kind and arity. */
+    public DijkstraWorkspace(int capacity, QueueKind kind, int arity) {
+        dist = new double[capacity];
+        prev = new int[capacity];
+        stamp = new int[capacity];
+        touched = new int[capacity];
+        generation = 1;
+        queue = kind.create(capacity, arity);
+    }
+
+    /** Return the largest number of nodes a graph used with this workspace
+     * may have. */
+    public int capacity() {
+        return dist.length;
+    }
+
+    /** Compute the shortest path to all nodes of g from the node with index
+     * origin. Results replace those of any earlier search.
+     * Precondition: g.size() <= capacity() and 0 <= origin < g.size(). */
+    public void run(IndexedGraph g, int origin) {
+        run(g, origin, -1);
+    }
+
+    /** Compute the shortest path on g from the node with index origin to the
+     * node with index target, stopping as soon as target is settled.
+     * Distances to nodes other than target may be incomplete. If target is
+     * -1, compute the shortest paths to all nodes.
+     * Precondition: g.size() <= capacity(), 0 <= origin < g.size() and
+     * -1 <= target < g.size(). */
+    public void run(IndexedGraph g, int origin, int target) {
+        if (!Metrics.ENABLED) {
+            search(g, origin, target);
+            return;
+        }
+        long startTime = System.nanoTime();
+        search(g, origin, target);
+        finishStats(startTime);
+    }
+
+    /* Run Dijkstra's algorithm as described for run, through g's methods
+     * unless it is a CsrGraph whose arrays can be read directly. */
+    private void search(IndexedGraph g, int origin, int target) {
+        if (g instanceof CsrGraph) {
+            search((CsrGraph) g, origin, target);
+            return;
+        }
+        start(origin);
+        while (!queue.isEmpty()) {
+            double fD = queue.minPriority();
+            int f = queue.poll();
+            if (fD > dist[f]) {
+                continue; // stale duplicate entry
+            }
+            if (Metrics.ENABLED) {
+                settled++;
+            }
+            if (f == target) {
+                return;
+            }
+            int last = g.lastEdge(f);
+            if (Metrics.ENABLED) {
+                relaxed += last - g.firstEdge(f);
+            }
+            for (int e = g.firstEdge(f); e < last; e++) {
+                relax(f, g.target(e), fD + g.weight(e));
+            }
+        }
+    }
+
+    /* As above, reading g's arrays directly. */
+    private void search(CsrGraph g, int origin, int target) {
+        start(origin);
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+        while (!queue.isEmpty()) {
+            double fD = queue.minPriority();
+            int f = queue.poll();
+            if (fD > dist[f]) {
+                continue; // stale duplicate entry
+            }
+            if (Metrics.ENABLED) {
+                settled++;
+            }
+            if (f == target) {
+                return;
+            }
+            if (Metrics.ENABLED) {
+                relaxed += offsets[f + 1] - offsets[f];
+            }
+            for (int e = offsets[f]; e < offsets[f + 1]; e++) {
+                relax(f, targets[e], fD + weights[e]);
+            }
+        }
+    }
+
+    /** Settle the nodes of g in increasing order of distance from origin,
+     * stopping after maxCount nodes other than origin or at the first node
+     * farther than radius, and return the nodes settled other than origin.
+     * Only the nodes within one edge of those are ever touched. */
+    NearbyNodes nearest(CsrGraph g, int origin, double radius,
+            int maxCount) {
+        start(origin);
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+        int[] found = new int[Math.max(1, Math.min(maxCount, 16))];
+        double[] foundDist = new double[found.length];
+        int count = 0;
+        while (!queue.isEmpty() && count < maxCount) {
+            double fD = queue.minPriority();
+            int f = queue.poll();
+            if (fD > dist[f]) {
+                continue; // stale duplicate entry
+            }
+            if (fD > radius) {
+                break;
+            }
+            if (f != origin) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, 2 * count);
+                    foundDist = Arrays.copyOf(foundDist, 2 * count);
+                }
+                found[count] = f;
+                foundDist[count] = fD;
+                count++;
+                if (count == maxCount) {
+                    break; // no need to relax its edges
+                }
+            }
+            for (int e = offsets[f]; e < offsets[f + 1]; e++) {
+                relax(f, targets[e], fD + weights[e]);
+            }
+        }
+        return new NearbyNodes(g, origin, found, foundDist, count);
+    }
+
+    /** As run(g, origin, target), but ignore the edges whose indices are in
+     * blockedEdges and never enter the nodes in blockedNodes, and give up
+     * once every node left on the frontier is farther than limit from
+     * origin. Return true if target was settled, in which case its distance
+     * and path are final. */
+    boolean runMasked(CsrGraph g, int origin, int target, BitSet blockedEdges,
+            BitSet blockedNodes, double limit) {
+        start(origin);
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+        while (!queue.isEmpty()) {
+            double fD = queue.minPriority();
+            int f = queue.poll();
+            if (fD > dist[f]) {
+                continue; // stale duplicate entry
+            }
+            if (fD > limit) {
+                return false;
+            }
+            if (f == target) {
+                return true;
+            }
+            for (int e = offsets[f]; e < offsets[f + 1]; e++) {
+                int w = targets[e];
+                if (!blockedEdges.get(e) && !blockedNodes.get(w)) {
+                    relax(f, w, fD + weights[e]);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return what the last run did, or null if Metrics.ENABLED is false. */
+    public QueryStats stats() {
+        return stats;
+    }
+
+    /* Save the counts of the search that started at startTime as its stats
+     * and add them to the global registry. */
+    private void finishStats(long startTime) {
+        stats = new QueryStats(settled, relaxed, decreaseKeys, peakQueueSize,
+                System.nanoTime() - startTime);
+        MetricsRegistry.global().record(stats);
+    }
+
+    /** Return the length of the shortest path from the origin of the last
+     * search to v, or Double.POSITIVE_INFINITY if v was not reached. */
+    public double distance(int v) {
+        return stamp[v] == generation ? dist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Return the node before v on the shortest path from the origin of the
+     * last search, or -1 if v is the origin or was not reached. */
+    public int previous(int v) {
+        return stamp[v] == generation ? prev[v] : -1;
+    }
+
+    /** Return true if the last search reached v. */
+    public boolean reached(int v) {
+        return stamp[v] == generation;
+    }
+
+    /** Return the number of nodes reached by the last search. */
+    public int reachedCount() {
+        return touchedCount;
+    }
+
+    /** Return the i'th node reached by the last search, in the order the
+     * nodes were first reached. Precondition: 0 <= i < reachedCount(). */
+    public int reachedNode(int i) {
+        return touched[i];
+    }
+
+    /** Replace the results of the last search with the distances and
+     * predecessors that engine computed from origin, as if run had been
+     * called. */
+    void load(DeltaStepping engine, int origin, int n) {
+        start(origin);
+        queue.clear();
+        for (int v = 0; v < n; v++) {
+            double d = engine.distance(v);
+            if (v != origin && d != Double.POSITIVE_INFINITY) {
+                reach(v, d, engine.previous(v));
+            }
+        }
+    }
+
+    /** Forget the previous search and make origin the only reached node,
+     * at distance 0 and on the frontier. */
+    void start(int origin) {
+        start(origin, 0.0);
+    }
+
+    /** Forget the previous search and make origin the only reached node,
+     * at distance 0 and on the frontier with priority key. */
+    void start(int origin, double key) {
+        queue.clear();
+        touchedCount = 0;
+        if (Metrics.ENABLED) {
+            settled = 0;
+            relaxed = 0;
+            decreaseKeys = 0;
+            peakQueueSize = 1;
+        }
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            // stamps could collide after wrapping around; start over
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        reach(origin, 0.0, -1);
+        queue.offer(origin, key);
+    }
+
+    /** If a path to w through f of length d is better than the best known
+     * path to w, record it and update the frontier. */
+    void relax(int f, int w, double d) {
+        relax(f, w, d, d);
+    }
+
+    /** As relax(f, w, d), but put w on the frontier with priority key
+     * instead of d. Return true if the path through f was better. */
+    boolean relax(int f, int w, double d, double key) {
+        if (stamp[w] != generation) {
+            reach(w, d, f);
+            queue.offer(w, key);
+            if (Metrics.ENABLED) {
+                peakQueueSize = Math.max(peakQueueSize, queue.size());
+            }
+            return true;
+        } else if (d < dist[w]) {
+            dist[w] = d;
+            prev[w] = f;
+            queue.offer(w, key);
+            if (Metrics.ENABLED) {
+                decreaseKeys++;
+                peakQueueSize = Math.max(peakQueueSize, queue.size());
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /* Mark w as reached with distance d and predecessor f. */
+    private void reach(int w, double d, int f) {
+        stamp[w] = generation;
+        dist[w] = d;
+        prev[w] = f;
+        touched[touchedCount++] = w;
+    }
+}
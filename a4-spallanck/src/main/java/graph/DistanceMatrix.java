@@ -0,0 +1,302 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/** A dense matrix of shortest path distances from a set of source nodes to
+ * a set of target nodes of a CsrGraph. Rows are sources and columns are
+ * targets; entry (i, j) is the distance from source(i) to target(j), or
+ * Double.POSITIVE_INFINITY if there is no path. Entries are stored
+ * row-major in one flat array, or in a direct buffer outside the Java heap.
+ * Example usage:
+ *     CsrGraph g = // freeze your graph
+ *     DistanceMatrix m = DistanceMatrix.allPairs(g);
+ *     double ab = m.get(g.indexOf("A"), g.indexOf("B"));
+ *  */
+public class DistanceMatrix {
+
+    /** How to compute a matrix. */
+    public enum Strategy {
+        /** Pick whichever of the others is estimated to be cheaper. */
+        AUTO,
+        /** One Dijkstra search per source, run in parallel. */
+        DIJKSTRA,
+        /** Blocked Floyd-Warshall over all pairs of nodes, then copy out the
+         * requested rows and columns. Only for small graphs. */
+        FLOYD_WARSHALL
+    }
+
+    /** The largest graph Floyd-Warshall is used for; its n * n working
+     * matrix must fit comfortably in memory. */
+    public static final int FLOYD_WARSHALL_MAX_NODES = 2048;
+
+    // side length of the square tiles blocked Floyd-Warshall works on
+    private static final int BLOCK = 64;
+
+    private final int[] sources; // sources[i] is the node of row i
+    private final int[] targets; // targets[j] is the node of column j
+    private final double[] values; // row-major entries, or null if off-heap
+    private final DoubleBuffer offHeap; // row-major entries, or null
+
+    /* Constructor: create a matrix of infinities for the given sources and
+     * targets, stored off the heap if offHeap is true. */
+    private DistanceMatrix(int[] sources, int[] targets, boolean offHeap) {
+        this.sources = sources.clone();
+        this.targets = targets.clone();
+        long size = (long) sources.length * targets.length;
+        if (size > Integer.MAX_VALUE / (offHeap ? Double.BYTES : 1)) {
+            throw new IllegalArgumentException("Matrix too large: "
+                    + sources.length + " x " + targets.length);
+        }
+        if (offHeap) {
+            values = null;
+            this.offHeap = ByteBuffer.allocateDirect((int) size * Double.BYTES)
+                .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        } else {
+            values = new double[(int) size];
+            this.offHeap = null;
+        }
+    }
+
+    /** Return the matrix of distances between all pairs of nodes of g, with
+     * row and column i belonging to the node with index i. */
+    public static DistanceMatrix allPairs(CsrGraph g) {
+        int[] all = new int[g.size()];
+        for (int v = 0; v < all.length; v++) {
+            all[v] = v;
+        }
+        return compute(g, all, all, Strategy.AUTO, false);
+    }
+
+    /** Return the matrix of distances in g from each node index in sources
+     * to each node index in targets, stored on the heap. */
+    public static DistanceMatrix compute(CsrGraph g, int[] sources,
+            int[] targets) {
+        return compute(g, sources, targets, Strategy.AUTO, false);
+    }
+
+    /** Return the matrix of distances in g from each node index in sources
+     * to each node index in targets, computed with the given strategy on
+     * the common ForkJoinPool. If offHeap is true, the entries are stored
+     * in a direct buffer instead of on the Java heap. Throws
+     * IllegalArgumentException if strategy is FLOYD_WARSHALL and g has more
+     * than FLOYD_WARSHALL_MAX_NODES nodes.
+     * Precondition: every index is in [0, g.size()). */
+    public static DistanceMatrix compute(CsrGraph g, int[] sources,
+            int[] targets, Strategy strategy, boolean offHeap) {
+        if (strategy == Strategy.FLOYD_WARSHALL
+                && g.size() > FLOYD_WARSHALL_MAX_NODES) {
+            throw new IllegalArgumentException("Too many nodes for "
+                    + "Floyd-Warshall: " + g.size() + " > "
+                    + FLOYD_WARSHALL_MAX_NODES);
+        }
+        DistanceMatrix m = new DistanceMatrix(sources, targets, offHeap);
+        if (strategy == Strategy.AUTO) {
+            strategy = floydWarshallIsCheaper(g, sources.length)
+                ? Strategy.FLOYD_WARSHALL : Strategy.DIJKSTRA;
+        }
+        if (strategy == Strategy.FLOYD_WARSHALL) {
+            m.fillFloydWarshall(g);
+        } else {
+            m.fillDijkstra(g, ForkJoinPool.commonPool());
+        }
+        return m;
+    }
+
+    /** Return the number of rows (sources). */
+    public int rows() {
+        return sources.length;
+    }
+
+    /** Return the number of columns (targets). */
+    public int columns() {
+        return targets.length;
+    }
+
+    /** Return the node index of the source of row i. */
+    public int source(int i) {
+        return sources[i];
+    }
+
+    /** Return the node index of the target of column j. */
+    public int target(int j) {
+        return targets[j];
+    }
+
+    /** Return the distance from source(i) to target(j).
+     * Precondition: 0 <= i < rows() and 0 <= j < columns(). */
+    public double get(int i, int j) {
+        int k = i * targets.length + j;
+        return values != null ? values[k] : offHeap.get(k);
+    }
+
+    /** Return true if the entries are stored outside the Java heap. */
+    public boolean isOffHeap() {
+        return offHeap != null;
+    }
+
+    /** Return a copy of the entries on the heap, in row-major order. */
+    public double[] toArray() {
+        if (values != null) {
+            return values.clone();
+        }
+        double[] copy = new double[offHeap.capacity()];
+        offHeap.duplicate().get(copy);
+        return copy;
+    }
+
+    /* Store value at row i, column j. */
+    private void set(int i, int j, double value) {
+        int k = i * targets.length + j;
+        if (values != null) {
+            values[k] = value;
+        } else {
+            offHeap.put(k, value);
+        }
+    }
+
+    /* Estimate whether Floyd-Warshall's n^3 steps are fewer than the steps
+     * of one Dijkstra search per source. */
+    private static boolean floydWarshallIsCheaper(CsrGraph g, int rows) {
+        int n = g.size();
+        if (n > FLOYD_WARSHALL_MAX_NODES) {
+            return false;
+        }
+        double logN = Math.max(1.0, Math.log(n) / Math.log(2));
+        double dijkstra = (double) rows * (g.edgeCount() + n * logN);
+        return (double) n * n * n < dijkstra;
+    }
+
+    /* Fill the matrix with one Dijkstra search per row, fanned out over
+     * pool. Rows borrow workspaces from a pool of their own, which never
+     * holds more workspaces than rows computed at once and is dropped with
+     * the call. */
+    private void fillDijkstra(CsrGraph g, ForkJoinPool pool) {
+        pool.invoke(new RowTask(g, new ConcurrentLinkedQueue<>(), 0,
+                    sources.length));
+    }
+
+    /** Computes the rows lo .. hi-1, splitting the range among workers
+     * while it is large. */
+    private class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CsrGraph g;
+        // workspaces not currently used by a row
+        private final ConcurrentLinkedQueue<DijkstraWorkspace> workspaces;
+        private final int lo;
+        private final int hi;
+
+        /** Constructor: a task for rows lo .. hi-1. */
+        RowTask(CsrGraph g,
+                ConcurrentLinkedQueue<DijkstraWorkspace> workspaces,
+                int lo, int hi) {
+            this.g = g;
+            this.workspaces = workspaces;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new RowTask(g, workspaces, lo, mid),
+                        new RowTask(g, workspaces, mid, hi));
+                return;
+            }
+            DijkstraWorkspace ws = workspaces.poll();
+            if (ws == null) {
+                ws = new DijkstraWorkspace(g.size());
+            }
+            ws.run(g, sources[lo]);
+            for (int j = 0; j < targets.length; j++) {
+                set(lo, j, ws.distance(targets[j]));
+            }
+            workspaces.offer(ws);
+        }
+    }
+
+    /* Fill the matrix from all-pairs distances computed by blocked
+     * Floyd-Warshall. */
+    private void fillFloydWarshall(CsrGraph g) {
+        int n = g.size();
+        double[] d = new double[n * n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        for (int u = 0; u < n; u++) {
+            d[u * n + u] = 0.0;
+            for (int e = g.firstEdge(u); e < g.lastEdge(u); e++) {
+                int k = u * n + g.target(e);
+                d[k] = Math.min(d[k], g.weight(e));
+            }
+        }
+        floydWarshall(d, n);
+        for (int i = 0; i < sources.length; i++) {
+            int row = sources[i] * n;
+            for (int j = 0; j < targets.length; j++) {
+                set(i, j, d[row + targets[j]]);
+            }
+        }
+    }
+
+    /* Replace the n x n row-major edge-weight matrix d with all-pairs
+     * shortest path distances. The matrix is processed in BLOCK x BLOCK
+     * tiles so that each phase works on a few tiles that fit in cache; for
+     * each diagonal tile, the tiles sharing its rows or columns are updated
+     * first and then all other tiles, in parallel. */
+    static void floydWarshall(double[] d, int n) {
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        for (int kb = 0; kb < blocks; kb++) {
+            final int k = kb;
+            // phase 1: the diagonal tile depends only on itself
+            relaxTile(d, n, k, k, k);
+            // phase 2: tiles in the same block row or column
+            IntStream.range(0, blocks).parallel().forEach(b -> {
+                if (b != k) {
+                    relaxTile(d, n, k, b, k);
+                    relaxTile(d, n, b, k, k);
+                }
+            });
+            // phase 3: all remaining tiles, which now read finished tiles
+            IntStream.range(0, blocks).parallel().forEach(ib -> {
+                if (ib != k) {
+                    for (int jb = 0; jb < blocks; jb++) {
+                        if (jb != k) {
+                            relaxTile(d, n, ib, jb, k);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /* Relax tile (ib, jb) through the intermediate nodes of block kb:
+     * d[i][j] = min(d[i][j], d[i][k] + d[k][j]). */
+    private static void relaxTile(double[] d, int n, int ib, int jb, int kb) {
+        int iEnd = Math.min(n, (ib + 1) * BLOCK);
+        int jEnd = Math.min(n, (jb + 1) * BLOCK);
+        int kEnd = Math.min(n, (kb + 1) * BLOCK);
+        for (int k = kb * BLOCK; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = ib * BLOCK; i < iEnd; i++) {
+                double ik = d[i * n + k];
+                if (ik == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                int iRow = i * n;
+                for (int j = jb * BLOCK; j < jEnd; j++) {
+                    double through = ik + d[kRow + j];
+                    if (through < d[iRow + j]) {
+                        d[iRow + j] = through;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package graph;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/** Shortest paths from one origin in a Graph that are kept up to date as
+ * the graph's edges change. The paths are computed once with Dijkstra's
+ * algorithm; afterwards every change made through Graph.addEdge or
+ * Graph.removeEdge is repaired in place instead of recomputing:
+ *  - when an edge is added or gets shorter, Dijkstra's algorithm continues
+ *    from the edge's destination, touching only nodes whose distance drops;
+ *  - when an edge of the shortest path tree gets longer or is removed, the
+ *    subtree below it is cut off, each cut node takes its best distance
+ *    through an in-edge from the rest of the tree, and Dijkstra's algorithm
+ *    runs on the cut nodes only (in the style of Ramalingam and Reps).
+ * Changes to edges outside the tree that do not shorten any path cost
+ * nothing. Every node must have been created by the graph's getNode, and
+ * edge weights must not be negative.
+ * Example usage:
+ *     DynamicShortestPaths dsp = new DynamicShortestPaths(g, g.getNode("A"));
+ *     g.addEdge(g.getNode("A"), g.getNode("B"), 5); // repaired right away
+ *     double ab = dsp.shortestPathLength(g.getNode("B"));
+ *  */
+public class DynamicShortestPaths implements EdgeListener {
+
+    private final Graph graph;
+    private final Node origin;
+
+    // nodes[i] is the node with index i; dist[i] its distance from origin,
+    // or infinity, and prev[i] its predecessor index, or -1
+    private Node[] nodes = new Node[0];
+    private double[] dist = new double[0];
+    private int[] prev = new int[0];
+
+    // incoming.get(i) maps each node with an edge to node i to that edge's
+    // weight, so that a cut-off node can find its best remaining in-edge
+    private final ArrayList<HashMap<Node,Double>> incoming = new ArrayList<>();
+
+    private final DaryHeap queue = new DaryHeap(16);
+    private int[] mark = new int[0]; // mark[i] == round if i is cut off
+    private int round;
+    private int lastRepair; // nodes settled by the latest computation
+
+    /** Constructor: compute the shortest paths in g from origin and keep
+     * them up to date as edges of g change, until detach is called.
+     * Precondition: origin was created by g.getNode. */
+    public DynamicShortestPaths(Graph g, Node origin) {
+        if (origin.index < 0) {
+            throw new IllegalArgumentException("Node " + origin
+                    + " was not created by this graph's getNode");
+        }
+        this.graph = g;
+        this.origin = origin;
+        recompute();
+        g.addEdgeListener(this);
+    }
+
+    /** Stop following changes to the graph. The paths are no longer
+     * updated afterwards. */
+    public void detach() {
+        graph.removeEdgeListener(this);
+    }
+
+    /** Compute the shortest paths again from scratch. Only needed if edges
+     * were changed through Node.addNeighbor instead of the graph. */
+    public void recompute() {
+        ensureNodes();
+        incoming.clear();
+        for (Node u : graph.getNodes().values()) {
+            for (Map.Entry<Node,Double> edge : u.getNeighbors().entrySet()) {
+                in(edge.getKey().index).put(u, edge.getValue());
+            }
+        }
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        lastRepair = 0;
+        dist[origin.index] = 0.0;
+        queue.offer(origin.index, 0.0);
+        propagate();
+    }
+
+    /** Repair the shortest paths after the edge from orig to dest changed
+     * weight from before to after; called by the graph. */
+    @Override
+    public void edgeChanged(Node orig, Node dest, double before,
+            double after) {
+        if (orig.index < 0 || dest.index < 0) {
+            throw new IllegalArgumentException("Nodes " + orig + " and "
+                    + dest + " were not created by this graph's getNode");
+        }
+        ensureNodes();
+        int u = orig.index;
+        int v = dest.index;
+        if (after == Double.POSITIVE_INFINITY) {
+            in(v).remove(orig);
+        } else {
+            in(v).put(orig, after);
+        }
+        lastRepair = 0;
+        if (after < before) {
+            double d = dist[u] + after;
+            if (d < dist[v]) {
+                dist[v] = d;
+                prev[v] = u;
+                queue.offer(v, d);
+                propagate();
+            }
+        } else if (prev[v] == u && dist[u] + after != dist[v]) {
+            repairIncrease(v);
+        }
+    }
+
+    /** Return the number of nodes settled by the latest computation or
+     * repair; a measure of its cost. */
+    public int lastRepairSize() {
+        return lastRepair;
+    }
+
+    /** Return the origin the paths start from. */
+    public Node origin() {
+        return origin;
+    }
+
+    /** Return the length of the shortest path from the origin to
+     * destination, or Double.POSITIVE_INFINITY if there is none. */
+    public double shortestPathLength(Node destination) {
+        int v = destination.index;
+        return v < 0 || v >= dist.length ? Double.POSITIVE_INFINITY : dist[v];
+    }
+
+    /** Return the nodes along the shortest path from the origin to
+     * destination, including both, or null if there is no path. */
+    public LinkedList<Node> shortestPath(Node destination) {
+        if (shortestPathLength(destination) == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        LinkedList<Node> path = new LinkedList<>();
+        for (int v = destination.index; v != -1; v = prev[v]) {
+            path.addFirst(nodes[v]);
+        }
+        return path;
+    }
+
+    /* Cut off the subtree of the shortest path tree below v, whose paths
+     * all used an edge that got longer, and find new paths for it. */
+    private void repairIncrease(int v) {
+        round++;
+        int[] cut = new int[16];
+        int count = 0;
+        cut[count++] = v;
+        mark[v] = round;
+        for (int i = 0; i < count; i++) {
+            int x = cut[i];
+            for (Node y : nodes[x].getNeighbors().keySet()) {
+                int w = y.index;
+                if (prev[w] == x && mark[w] != round) {
+                    if (count == cut.length) {
+                        cut = Arrays.copyOf(cut, 2 * count);
+                    }
+                    mark[w] = round;
+                    cut[count++] = w;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            dist[cut[i]] = Double.POSITIVE_INFINITY;
+            prev[cut[i]] = -1;
+        }
+        // each cut node starts from its best in-edge from the rest
+        for (int i = 0; i < count; i++) {
+            int x = cut[i];
+            for (Map.Entry<Node,Double> edge : in(x).entrySet()) {
+                int y = edge.getKey().index;
+                double d = dist[y] + edge.getValue();
+                if (mark[y] != round && d < dist[x]) {
+                    dist[x] = d;
+                    prev[x] = y;
+                }
+            }
+            if (dist[x] < Double.POSITIVE_INFINITY) {
+                queue.offer(x, dist[x]);
+            }
+        }
+        propagate();
+    }
+
+    /* Run Dijkstra's algorithm from the nodes in the queue, whose distances
+     * are already set. */
+    private void propagate() {
+        while (!queue.isEmpty()) {
+            int x = queue.poll();
+            lastRepair++;
+            double dx = dist[x];
+            for (Map.Entry<Node,Double> edge
+                    : nodes[x].getNeighbors().entrySet()) {
+                int y = edge.getKey().index;
+                double d = dx + edge.getValue();
+                if (d < dist[y]) {
+                    dist[y] = d;
+                    prev[y] = x;
+                    queue.offer(y, d);
+                }
+            }
+        }
+    }
+
+    /* Return the map of edges into node i. */
+    private HashMap<Node,Double> in(int i) {
+        while (incoming.size() <= i) {
+            incoming.add(new HashMap<Node,Double>());
+        }
+        return incoming.get(i);
+    }
+
+    /* Grow the per-node arrays to cover every node created in the graph
+     * since they were last grown. Nodes are indexed in creation order. */
+    private void ensureNodes() {
+        int n = graph.getNodes().size();
+        if (n <= nodes.length) {
+            return;
+        }
+        int old = nodes.length;
+        nodes = graph.getNodes().values().toArray(new Node[n]);
+        dist = Arrays.copyOf(dist, n);
+        prev = Arrays.copyOf(prev, n);
+        mark = Arrays.copyOf(mark, n);
+        Arrays.fill(dist, old, n, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, old, n, -1);
+        queue.ensureCapacity(n);
+    }
+}
@@ -0,0 +1,79 @@
+package graph;
+
+/** How a Graph combines several edges added between the same pair of nodes.
+ * Each policy folds the weights into a primitive accumulator and a count,
+ * so duplicates are combined in place without boxing.
+ * Example usage:
+ *     Graph g = new Graph(EdgeAggregation.MIN);
+ *     g.addEdge(a, b, 94);
+ *     g.addEdge(a, b, 90); // the edge a -> b now has weight 90
+ *  */
+public enum EdgeAggregation {
+
+    /** Keep the weight of the edge added last (the default). */
+    LAST {
+        @Override
+        double fold(double acc, double w) {
+            return w;
+        }
+    },
+
+    /** Keep the smallest weight. */
+    MIN {
+        @Override
+        double fold(double acc, double w) {
+            return Math.min(acc, w);
+        }
+    },
+
+    /** Keep the largest weight. */
+    MAX {
+        @Override
+        double fold(double acc, double w) {
+            return Math.max(acc, w);
+        }
+    },
+
+    /** Use the mean of the weights. */
+    MEAN {
+        @Override
+        double fold(double acc, double w) {
+            return acc + w;
+        }
+
+        @Override
+        double result(double acc, int count) {
+            return acc / count;
+        }
+    },
+
+    /** Use the number of edges added as the weight. */
+    COUNT {
+        @Override
+        double fold(double acc, double w) {
+            return acc;
+        }
+
+        @Override
+        double result(double acc, int count) {
+            return count;
+        }
+    },
+
+    /** Use the sum of the weights. */
+    SUM {
+        @Override
+        double fold(double acc, double w) {
+            return acc + w;
+        }
+    };
+
+    /** Return the accumulator after adding weight w to accumulator acc.
+     * The accumulator of the first edge is its weight. */
+    abstract double fold(double acc, double w);
+
+    /** Return the edge weight for accumulator acc after count edges. */
+    double result(double acc, int count) {
+        return acc;
+    }
+}
@@ -0,0 +1,239 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/** Combines a stream of weighted edges into a compact graph in one pass.
+ * Nodes are interned to int indices in the order they are first seen.
+ * Edges between a pair of nodes that already has an edge are folded into
+ * that edge with an EdgeAggregation policy, in primitive arrays, so millions
+ * of raw rows reduce to one entry per distinct edge before any Graph is
+ * built. A multigraph aggregator instead keeps every edge; only a CsrGraph
+ * can hold the resulting parallel edges.
+ * Example usage:
+ *     EdgeAggregator edges = new EdgeAggregator(EdgeAggregation.MEAN);
+ *     edges.add("YUL", "YOW", 94);
+ *     edges.add("YUL", "YOW", 95);
+ *     Graph g = edges.toGraph(); // YUL -> YOW has weight 94.5
+ *  */
+public class EdgeAggregator {
+
+    private final EdgeAggregation policy; // null for a multigraph
+
+    // node ids in index order, and the index of each id
+    private final ArrayList<String> ids = new ArrayList<>();
+    private final HashMap<String,Integer> index = new HashMap<>();
+
+    // maps an ordered pair of node indices to the slot of its edge
+    private final LongIntHashMap slots = new LongIntHashMap(16, -1);
+
+    // the edge in slot s goes from origins[s] to dests[s]; values[s] is its
+    // accumulator and counts[s] the number of edges folded into it
+    private int[] origins = new int[16];
+    private int[] dests = new int[16];
+    private double[] values = new double[16];
+    private int[] counts = new int[16];
+    private int size; // number of slots in use
+
+    /** Constructor: create an aggregator that folds edges between the same
+     * pair of nodes with the given policy. */
+    public EdgeAggregator(EdgeAggregation policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy must not be null");
+        }
+        this.policy = policy;
+    }
+
+    /* Constructor: create a multigraph aggregator. */
+    private EdgeAggregator() {
+        this.policy = null;
+    }
+
+    /** Return an aggregator that keeps every edge, including parallel
+     * edges between the same pair of nodes. */
+    public static EdgeAggregator multigraph() {
+        return new EdgeAggregator();
+    }
+
+    /** Return true if this aggregator keeps parallel edges. */
+    public boolean isMultigraph() {
+        return policy == null;
+    }
+
+    /** Return the index of the node with the given id, adding the node if
+     * it has not been seen before. */
+    public int node(String id) {
+        Integer i = index.get(id);
+        if (i == null) {
+            i = ids.size();
+            ids.add(id);
+            index.put(id, i);
+        }
+        return i;
+    }
+
+    /** Return the id of the node with index i.
+     * Precondition: 0 <= i < nodeCount(). */
+    String id(int i) {
+        return ids.get(i);
+    }
+
+    /** Return the number of nodes seen. */
+    public int nodeCount() {
+        return ids.size();
+    }
+
+    /** Return the number of edges kept: distinct pairs of nodes, or every
+     * edge added for a multigraph. */
+    public int edgeCount() {
+        return size;
+    }
+
+    /** Add an edge between the nodes with the given ids. */
+    public void add(String orig, String dest, double weight) {
+        add(node(orig), node(dest), weight);
+    }
+
+    /** Add an edge between the nodes with the given indices.
+     * Precondition: both indices were returned by node. */
+    public void add(int orig, int dest, double weight) {
+        if (policy == null) {
+            append(orig, dest, weight);
+        } else {
+            fold(orig, dest, weight);
+        }
+    }
+
+    /** Fold an edge from orig to dest into the edge between them, creating
+     * it if there is none, and return the combined weight. Unlike add, the
+     * indices need not have been returned by node; Graph uses its own node
+     * indices. Precondition: this is not a multigraph aggregator. */
+    double fold(int orig, int dest, double weight) {
+        long key = LongIntHashMap.key(orig, dest);
+        int s = slots.get(key);
+        if (s < 0) {
+            s = append(orig, dest, weight);
+            slots.put(key, s);
+        } else if (counts[s] == 0) {
+            values[s] = weight; // the edge was removed; start over
+            counts[s] = 1;
+        } else {
+            values[s] = policy.fold(values[s], weight);
+            counts[s]++;
+        }
+        return policy.result(values[s], counts[s]);
+    }
+
+    /** Forget the aggregate of the edge from orig to dest, so that the
+     * next edge between them starts a new one. Used by Graph when an edge
+     * is removed. Precondition: this is not a multigraph aggregator. */
+    void reset(int orig, int dest) {
+        int s = slots.get(LongIntHashMap.key(orig, dest));
+        if (s >= 0) {
+            counts[s] = 0;
+        }
+    }
+
+    /* Store an edge in a new slot and return the slot. */
+    private int append(int orig, int dest, double weight) {
+        if (size == origins.length) {
+            origins = Arrays.copyOf(origins, 2 * size);
+            dests = Arrays.copyOf(dests, 2 * size);
+            values = Arrays.copyOf(values, 2 * size);
+            counts = Arrays.copyOf(counts, 2 * size);
+        }
+        origins[size] = orig;
+        dests[size] = dest;
+        values[size] = weight;
+        counts[size] = 1;
+        return size++;
+    }
+
+    /* Return the weight of the edge in slot s. */
+    private double weight(int s) {
+        return policy == null ? values[s] : policy.result(values[s], counts[s]);
+    }
+
+    /** Return a Graph with the nodes and combined edges seen so far, with
+     * nodes created in index order. The Graph uses this aggregator's
+     * policy for edges added to it later.
+     * Throws IllegalStateException for a multigraph aggregator, because a
+     * Graph cannot hold parallel edges; use toCsrGraph instead. */
+    public Graph toGraph() {
+        if (policy == null) {
+            throw new IllegalStateException(
+                    "A Graph cannot hold parallel edges; use toCsrGraph");
+        }
+        Graph g = new Graph(policy);
+        Node[] nodes = new Node[ids.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = g.getNode(ids.get(i));
+        }
+        g.load(policy == EdgeAggregation.LAST ? this : copy(), nodes);
+        return g;
+    }
+
+    /** Return a CsrGraph with the nodes and edges seen so far. The edges of
+     * each node keep the order in which they were first added. */
+    public CsrGraph toCsrGraph() {
+        int n = ids.size();
+        int[] offsets = new int[n + 1];
+        for (int s = 0; s < size; s++) {
+            offsets[origins[s] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] targets = new int[size];
+        double[] weights = new double[size];
+        for (int s = 0; s < size; s++) {
+            int e = next[origins[s]]++;
+            targets[e] = dests[s];
+            weights[e] = weight(s);
+        }
+        return new CsrGraph(ids.toArray(new String[n]), offsets, targets,
+                weights);
+    }
+
+    /** Return a copy of this aggregator, including its accumulators. */
+    EdgeAggregator copy() {
+        EdgeAggregator c = policy == null ? new EdgeAggregator()
+            : new EdgeAggregator(policy);
+        for (String id : ids) {
+            c.node(id);
+        }
+        c.origins = origins.clone();
+        c.dests = dests.clone();
+        c.values = values.clone();
+        c.counts = counts.clone();
+        c.size = size;
+        if (policy != null) {
+            for (int s = 0; s < size; s++) {
+                c.slots.put(LongIntHashMap.key(origins[s], dests[s]), s);
+            }
+        }
+        return c;
+    }
+
+    /** Return the number of slots in use. */
+    int slotCount() {
+        return size;
+    }
+
+    /** Return the origin index of the edge in slot s. */
+    int origin(int s) {
+        return origins[s];
+    }
+
+    /** Return the destination index of the edge in slot s. */
+    int dest(int s) {
+        return dests[s];
+    }
+
+    /** Return the combined weight of the edge in slot s. */
+    double slotWeight(int s) {
+        return weight(s);
+    }
+}
@@ -0,0 +1,11 @@
+package graph;
+
+/** Receives the changes made to the edges of a Graph; see
+ * Graph.addEdgeListener. */
+public interface EdgeListener {
+
+    /** Called after the edge from orig to dest changed weight from before
+     * to after. A weight of Double.POSITIVE_INFINITY means there was no
+     * edge before, or there is none after. */
+    void edgeChanged(Node orig, Node dest, double before, double after);
+}
@@ -1,21 +1,44 @@
 package graph;
 
 import java.util.Map;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Collections;
 
 /** A graph class representing a graph in adjacency-list style format. The
  * Graph stores a mapping from unique String node identifiers to respective
- * Node objects. Edges are stored in each Node's neighbors, accessible by its
- * getNeighbors field. */
+ * Node objects, in the order the nodes were created. Edges are stored in each
+ * Node's neighbors, accessible by its getNeighbors field. Adding an edge
+ * that already exists combines the two according to the graph's
+ * EdgeAggregation policy; by default the new weight replaces the old. */
 public class Graph {
 
     // maps node ids to nodes:
-    private HashMap<String,Node> nodes;
+    private LinkedHashMap<String,Node> nodes;
+
+    // how an edge added twice is combined
+    private final EdgeAggregation aggregation;
+
+    // the accumulators of every edge, indexed by the nodes' positions, or
+    // null if the policy is LAST and none are needed
+    private EdgeAggregator edges;
+
+    // notified of every edge added, changed or removed through this graph
+    private final ArrayList<EdgeListener> listeners = new ArrayList<>();
 
     /** Constructor: create an empty graph */
     public Graph() {
-        nodes = new HashMap<String,Node>();
+        this(EdgeAggregation.LAST);
+    }
+
+    /** Constructor: create an empty graph that combines edges added more
+     * than once according to aggregation. */
+    public Graph(EdgeAggregation aggregation) {
+        nodes = new LinkedHashMap<String,Node>();
+        this.aggregation = aggregation;
+        if (aggregation != EdgeAggregation.LAST) {
+            edges = new EdgeAggregator(aggregation);
+        }
     }
 
     /** Return the node with id s. If no such node exists already, create
@@ -25,10 +48,17 @@ public class Graph {
             return nodes.get(s);
         }
         Node n = new Node(s);
+        n.index = nodes.size();
         nodes.put(s, n);
         return n;
     }
 
+    /** Return the node with id s, or null if there is no such node. Unlike
+     * getNode, this never changes the graph. */
+    public Node findNode(String s) {
+        return nodes.get(s);
+    }
+
     /** Return a read-only view on the map from node ids to nodes. This is
      * read-only to avoid modification by client code that could create nodes
      * with duplicate id's. Node creation should be done exclusively with
@@ -37,10 +67,98 @@ public class Graph {
         return Collections.unmodifiableMap(nodes);
     }
 
-    /** Add an edge to the graph. If an edge from orig to
-     * dest exists already, overwrite it. */
+    /** Return the policy for combining an edge added more than once. */
+    public EdgeAggregation getAggregation() {
+        return aggregation;
+    }
+
+    /** Add an edge to the graph. If an edge from orig to dest exists
+     * already, combine the two according to the aggregation policy; with
+     * the default policy, LAST, overwrite it. For other policies, orig and
+     * dest must have been created by this graph's getNode, and edges must
+     * not be changed through Node.addNeighbor. */
     public void addEdge(Node orig, Node dest, double distance) {
-        orig.addNeighbor(dest, distance);
+        Double old = listeners.isEmpty() ? null
+            : orig.getNeighbors().get(dest);
+        if (edges == null) {
+            orig.addNeighbor(dest, distance);
+        } else {
+            if (orig.index < 0 || dest.index < 0) {
+                throw new IllegalArgumentException("Nodes " + orig + " and "
+                        + dest + " were not created by this graph's getNode");
+            }
+            orig.addNeighbor(dest,
+                    edges.fold(orig.index, dest.index, distance));
+        }
+        if (!listeners.isEmpty()) {
+            notifyListeners(orig, dest, old, orig.getNeighbors().get(dest));
+        }
+    }
+
+    /** Remove the edge from orig to dest, if there is one. An edge added
+     * again later starts a new aggregate. */
+    public void removeEdge(Node orig, Node dest) {
+        Double old = orig.getNeighbors().get(dest);
+        if (old == null) {
+            return;
+        }
+        orig.removeNeighbor(dest);
+        if (edges != null) {
+            edges.reset(orig.index, dest.index);
+        }
+        notifyListeners(orig, dest, old, null);
+    }
+
+    /** Notify listener of every later change to an edge made through
+     * addEdge or removeEdge. Changes made with Node.addNeighbor directly are
+     * not seen. */
+    public void addEdgeListener(EdgeListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Stop notifying listener of changes. */
+    public void removeEdgeListener(EdgeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /* Tell the listeners that the edge orig -> dest changed from weight old
+     * to weight now, where null means no edge. */
+    private void notifyListeners(Node orig, Node dest, Double old,
+            Double now) {
+        if (old != null && old.equals(now)) {
+            return;
+        }
+        double before = old == null ? Double.POSITIVE_INFINITY : old;
+        double after = now == null ? Double.POSITIVE_INFINITY : now;
+        for (EdgeListener listener : new ArrayList<>(listeners)) {
+            listener.edgeChanged(orig, dest, before, after);
+        }
+    }
+
+    /* Add the combined edges of agg, whose node i is nodes[i], and keep its
+     * accumulators for later edges. Used by EdgeAggregator.toGraph on a
+     * graph with the same policy and no edges. */
+    void load(EdgeAggregator agg, Node[] nodes) {
+        for (int s = 0; s < agg.slotCount(); s++) {
+            nodes[agg.origin(s)].addNeighbor(nodes[agg.dest(s)],
+                    agg.slotWeight(s));
+        }
+        if (edges != null) {
+            edges = agg;
+        }
+    }
+
+    /** Return an immutable compressed-sparse-row copy of this graph, with
+     * nodes indexed in creation order. Later changes to this graph are not
+     * reflected in the returned CsrGraph. */
+    public CsrGraph freeze() {
+        return CsrGraph.of(this);
+    }
+
+    /** As freeze(), with nodes relabeled in the given order and the edges
+     * of each node sorted by target (see CsrGraph.reorder). */
+    public CsrGraph freeze(NodeOrder order) {
+        return freeze().reorder(order);
     }
 
     /** Print a report of the graph's statistics, including number of nodes,
@@ -11,6 +11,15 @@ import java.io.FileNotFoundException;
  *     Graph g = p.parse() */
 public abstract class GraphParser {
 
+    // how rows describing an edge that already exists are combined
+    protected EdgeAggregation aggregation = EdgeAggregation.LAST;
+
+    /** Set how rows describing an edge that already exists are combined.
+     * The default, LAST, keeps the weight of the last such row. */
+    public void setAggregation(EdgeAggregation aggregation) {
+        this.aggregation = aggregation;
+    }
+
     /** Open the given file and prepare to parse it. */
     public abstract void open(File f) throws FileNotFoundException;
 
@@ -18,4 +27,15 @@ public abstract class GraphParser {
      * the file. Precondition: open() has been successfully called. */
     public abstract Graph parse();
 
+    /** Record that the given phase of parsing, which started at System
+     * time startTime in nanoseconds, has ended, in MetricsRegistry.global()
+     * under this parser's class name. Does nothing unless
+     * Metrics.ENABLED. */
+    protected void recordPhase(String phase, long startTime) {
+        if (Metrics.ENABLED) {
+            MetricsRegistry.global().recordPhase(getClass().getSimpleName(),
+                    phase, System.nanoTime() - startTime);
+        }
+    }
+
 }
@@ -0,0 +1,306 @@
+package graph;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/** Reads and writes graphs in a compact binary snapshot format, so that a
+ * graph parsed once from text can be loaded again without parsing. Loading
+ * memory-maps the file and copies its arrays out in bulk; OffHeapGraph.map
+ * reads them in place instead. Files are mapped in segments (see
+ * SegmentedBuffer), so a snapshot may be larger than 2GB; only the node ids
+ * must take less than 2GB in UTF-8. A snapshot can be written from a
+ * CsrGraph, or straight from the EdgeAggregator a parser fills, without
+ * building the graph on the heap first.
+ *
+ * A snapshot is little-endian and laid out as:
+ *     int magic "GSNP", int version, int nodes n, int edges m,
+ *     int string bytes b, int 0,
+ *     int[n+1] string offsets, int[n+1] edge offsets, int[m] targets,
+ *     padding to 8 bytes, double[m] weights,
+ *     byte[b] UTF-8 node ids, padding to 8 bytes,
+ *     long CRC32 of everything before it.
+ * The string offsets index the UTF-8 bytes; node i's id is the bytes from
+ * string offset i to string offset i+1.
+ * Example usage:
+ *     GraphSnapshot.write(g.freeze(), new File("graph.snap"));
+ *     CsrGraph csr = GraphSnapshot.load(new File("graph.snap"));
+ *  */
+public class GraphSnapshot {
+
+    // identifies snapshot files
+    private static final int MAGIC = 0x504e5347; // "GSNP" in little-endian
+
+    /** The format version written by this class. */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 24;
+
+    /* Not instantiable. */
+    private GraphSnapshot() {
+    }
+
+    /** Write g to f in the snapshot format, replacing f if it exists.
+     * Throws IllegalArgumentException if the node ids take 2GB or more in
+     * UTF-8. */
+    public static void write(CsrGraph g, File f) throws IOException {
+        int n = g.size();
+        SegmentedBuffer buf = create(f, encodeIds(g::id, n), g.offsets);
+        buf.putInts(targetsAt(n), g.targets);
+        buf.putDoubles(weightsAt(n, g.edgeCount()), g.weights);
+        finish(buf);
+    }
+
+    /** Write the nodes and edges added to edges to f in the snapshot
+     * format, replacing f if it exists. The snapshot is the one
+     * write(edges.toCsrGraph(), f) would write, but each edge goes straight
+     * from edges to its place in the mapped file, so only the edge offsets
+     * are held on the heap besides edges itself. Throws
+     * IllegalArgumentException if the node ids take 2GB or more in UTF-8. */
+    public static void write(EdgeAggregator edges, File f)
+            throws IOException {
+        int n = edges.nodeCount();
+        int m = edges.slotCount();
+        int[] offsets = new int[n + 1];
+        for (int s = 0; s < m; s++) {
+            offsets[edges.origin(s) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        SegmentedBuffer buf = create(f, encodeIds(edges::id, n), offsets);
+        long targetsAt = targetsAt(n);
+        long weightsAt = weightsAt(n, m);
+        // each node's edges keep the order in which they were added
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int s = 0; s < m; s++) {
+            int e = next[edges.origin(s)]++;
+            buf.putInt(targetsAt + 4L * e, edges.dest(s));
+            buf.putDouble(weightsAt + 8L * e, edges.slotWeight(s));
+        }
+        finish(buf);
+    }
+
+    /* Return the UTF-8 bytes of the ids id.apply(0) .. id.apply(n - 1). */
+    static byte[][] encodeIds(IntFunction<String> id, int n) {
+        byte[][] bytes = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            bytes[i] = id.apply(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /* Replace f with a snapshot of the graph with the given UTF-8 ids and
+     * edge offsets, mapped read-write, and fill in all but its targets,
+     * weights and checksum. Return the mapping. */
+    private static SegmentedBuffer create(File f, byte[][] ids, int[] offsets)
+            throws IOException {
+        long size = size(ids, offsets[offsets.length - 1]);
+        try (RandomAccessFile out = new RandomAccessFile(f, "rw")) {
+            out.setLength(0);
+            out.setLength(size);
+            SegmentedBuffer buf = SegmentedBuffer.map(out.getChannel(),
+                    FileChannel.MapMode.READ_WRITE, size,
+                    SegmentedBuffer.DEFAULT_SHIFT);
+            putLayout(buf, ids, offsets);
+            return buf;
+        }
+    }
+
+    /* Store the checksum of the snapshot in buf and write buf out to its
+     * file. */
+    private static void finish(SegmentedBuffer buf) {
+        long crcAt = buf.capacity() - 8;
+        CRC32 crc = new CRC32();
+        buf.update(crc, crcAt);
+        buf.putLong(crcAt, crc.getValue());
+        buf.force();
+    }
+
+    /** Return the number of bytes in a snapshot of a graph with the given
+     * UTF-8 ids and m edges. Throws IllegalArgumentException if the ids
+     * take 2GB or more. */
+    static long size(byte[][] ids, int m) {
+        long b = 0;
+        for (byte[] id : ids) {
+            b += id.length;
+        }
+        if (b > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Node ids too large for a "
+                    + "snapshot: " + b + " bytes");
+        }
+        return align(stringsAt(ids.length, m) + b) + 8;
+    }
+
+    /** Store the header, string offsets, edge offsets and ids of a snapshot
+     * of the graph with the given UTF-8 ids and edge offsets in buf, which
+     * holds size(ids, m) bytes. The targets, weights and checksum are left
+     * to the caller. */
+    static void putLayout(SegmentedBuffer buf, byte[][] ids, int[] offsets) {
+        int n = ids.length;
+        int m = offsets[n];
+        long stringsAt = stringsAt(n, m);
+        int b = 0;
+        buf.putInt(stringOffsetsAt(), b);
+        for (int i = 0; i < n; i++) {
+            buf.put(stringsAt + b, ids[i]);
+            b += ids[i].length;
+            buf.putInt(stringOffsetsAt() + 4L * (i + 1), b);
+        }
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putInt(8, n);
+        buf.putInt(12, m);
+        buf.putInt(16, b);
+        buf.putInt(20, 0);
+        buf.putInts(offsetsAt(n), offsets);
+    }
+
+    /** Read the graph in snapshot file f. Throws FileNotFoundException if f
+     * cannot be opened, and IOException if it is not a snapshot, has an
+     * unsupported version, or fails its checksum. */
+    public static CsrGraph load(File f) throws IOException {
+        SegmentedBuffer buf = map(f, SegmentedBuffer.DEFAULT_SHIFT);
+        int n = buf.getInt(8);
+        int m = buf.getInt(12);
+        int b = buf.getInt(16);
+
+        int[] stringOffsets = new int[n + 1];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        byte[] strings = new byte[b];
+        buf.getInts(stringOffsetsAt(), stringOffsets);
+        buf.getInts(offsetsAt(n), offsets);
+        buf.getInts(targetsAt(n), targets);
+        buf.getDoubles(weightsAt(n, m), weights);
+        buf.get(stringsAt(n, m), strings);
+
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = new String(strings, stringOffsets[i],
+                    stringOffsets[i + 1] - stringOffsets[i],
+                    StandardCharsets.UTF_8);
+        }
+        return new CsrGraph(ids, offsets, targets, weights);
+    }
+
+    /** Memory-map snapshot file f, in segments of 2^shift bytes, and check
+     * its header, size and checksum. Return the mapping of the whole file.
+     * Throws FileNotFoundException if f cannot be opened, and IOException
+     * if it is not a snapshot, has an unsupported version, or fails its
+     * checksum. */
+    static SegmentedBuffer map(File f, int shift) throws IOException {
+        SegmentedBuffer buf;
+        try (RandomAccessFile in = new RandomAccessFile(f, "r")) {
+            long length = in.length();
+            if (length < HEADER_BYTES + 8) {
+                throw new IOException("Not a graph snapshot: " + f);
+            }
+            buf = SegmentedBuffer.map(in.getChannel(),
+                    FileChannel.MapMode.READ_ONLY, length, shift);
+        }
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a graph snapshot: " + f);
+        }
+        int version = buf.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version
+                    + " in " + f);
+        }
+        int n = buf.getInt(8);
+        int m = buf.getInt(12);
+        int b = buf.getInt(16);
+        if (n < 0 || n == Integer.MAX_VALUE || m < 0 || b < 0
+                || align(stringsAt(n, m) + b) + 8 != buf.capacity()) {
+            throw new IOException("Corrupt graph snapshot: " + f);
+        }
+        long crcAt = buf.capacity() - 8;
+        CRC32 crc = new CRC32();
+        buf.update(crc, crcAt);
+        if (crc.getValue() != buf.getLong(crcAt)) {
+            throw new IOException("Checksum mismatch in graph snapshot: " + f);
+        }
+        return buf;
+    }
+
+    /** Return the byte position of the string offsets of a snapshot. */
+    static long stringOffsetsAt() {
+        return HEADER_BYTES;
+    }
+
+    /** Return the byte position of the edge offsets of a snapshot with n
+     * nodes. */
+    static long offsetsAt(int n) {
+        return HEADER_BYTES + Math.multiplyExact(4L, n + 1L);
+    }
+
+    /** Return the byte position of the edge targets of a snapshot with n
+     * nodes. */
+    static long targetsAt(int n) {
+        return HEADER_BYTES + Math.multiplyExact(8L, n + 1L);
+    }
+
+    /** Return the byte position of the edge weights of a snapshot with n
+     * nodes and m edges. */
+    static long weightsAt(int n, int m) {
+        return align(targetsAt(n) + Math.multiplyExact(4L, m));
+    }
+
+    /** Return the byte position of the node id bytes of a snapshot with n
+     * nodes and m edges. */
+    static long stringsAt(int n, int m) {
+        return weightsAt(n, m) + Math.multiplyExact(8L, m);
+    }
+
+    /* Round x up to a multiple of 8. */
+    private static long align(long x) {
+        return (x + 7) & ~7L;
+    }
+
+    /** Main method: parse a graph file and write it as a snapshot, which
+     * can then be read with the "snapshot" file type. A db1b-mmap file is
+     * written straight from the parser's edges, without building a Graph.
+     * Usage: GraphSnapshot fileType inputFile snapshotFile */
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println(
+                    "Usage: GraphSnapshot fileType inputFile snapshotFile");
+            return;
+        }
+        EdgeAggregator edges = null;
+        CsrGraph csr = null;
+        try {
+            if (args[0].equals("db1b-mmap")) {
+                MappedDB1BParser parser = new MappedDB1BParser();
+                parser.open(new File(args[1]));
+                edges = parser.parseEdges();
+                System.out.println(edges.nodeCount() + " nodes, "
+                        + edges.edgeCount() + " edges.");
+            } else {
+                Graph graph = ShortestPaths.parseGraph(args[0], args[1]);
+                graph.report();
+                csr = graph.freeze();
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("Could not open file " + args[1]);
+            return;
+        }
+        try {
+            if (edges != null) {
+                write(edges, new File(args[2]));
+            } else {
+                write(csr, new File(args[2]));
+            }
+        } catch (IOException e) {
+            System.out.println("Could not write snapshot " + args[2] + ": "
+                    + e.getMessage());
+        }
+    }
+}
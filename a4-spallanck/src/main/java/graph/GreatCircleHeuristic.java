@@ -0,0 +1,92 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Scanner;
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/** A Heuristic for airport graphs whose edge weights are flight miles: the
+ * great-circle distance between two airports is a lower bound on the miles
+ * flown between them. Airport coordinates are read from a side file in
+ * which each line contains:
+ *  CODE LATITUDE LONGITUDE
+ * separated by spaces or commas, with latitude and longitude in decimal
+ * degrees. CODE is the same airport code DB1BParser uses as the node id.
+ * Lines starting with # and codes not in the graph are ignored. Airports
+ * without coordinates get an estimate of 0, which keeps the heuristic
+ * admissible. */
+public class GreatCircleHeuristic implements Heuristic {
+
+    /** The mean radius of the earth, in miles. */
+    public static final double EARTH_RADIUS_MILES = 3958.8;
+
+    /** The default factor applied to great-circle distances. Published
+     * flight distances are rounded to whole miles and can be a little
+     * shorter than the computed great-circle distance, so estimates are
+     * scaled down slightly to stay below every edge weight. */
+    public static final double DEFAULT_SCALE = 0.99;
+
+    // latitude and longitude of each node in radians, or NaN if unknown
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] cosLat; // cosine of lat, precomputed
+    private final double scale; // miles per radian, times the scale factor
+
+    /** Constructor: read coordinates for the nodes of g from the given file,
+     * using the default scale. */
+    public GreatCircleHeuristic(CsrGraph g, File coordinates)
+        throws FileNotFoundException {
+        this(g, coordinates, DEFAULT_SCALE);
+    }
+
+    /** Constructor: read coordinates for the nodes of g from the given file.
+     * Estimates are great-circle miles multiplied by scale.
+     * Precondition: 0 <= scale <= 1. */
+    public GreatCircleHeuristic(CsrGraph g, File coordinates, double scale)
+        throws FileNotFoundException {
+        int n = g.size();
+        lat = new double[n];
+        lon = new double[n];
+        cosLat = new double[n];
+        Arrays.fill(lat, Double.NaN);
+        Arrays.fill(lon, Double.NaN);
+        this.scale = scale * EARTH_RADIUS_MILES;
+
+        Scanner sc = new Scanner(coordinates);
+        while (sc.hasNextLine()) {
+            String line = sc.nextLine().trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] data = line.split("[\\s,]+");
+            int v = g.indexOf(data[0].replace("\"", ""));
+            if (v < 0) {
+                continue;
+            }
+            lat[v] = Math.toRadians(Double.parseDouble(data[1]));
+            lon[v] = Math.toRadians(Double.parseDouble(data[2]));
+            cosLat[v] = Math.cos(lat[v]);
+        }
+        sc.close();
+    }
+
+    /** Return true if coordinates were read for the node with index v. */
+    public boolean hasCoordinates(int v) {
+        return !Double.isNaN(lat[v]);
+    }
+
+    /** Return the scaled great-circle distance in miles between v and
+     * target, or 0 if either has no coordinates. */
+    @Override
+    public double estimate(int v, int target) {
+        if (Double.isNaN(lat[v]) || Double.isNaN(lat[target])) {
+            return 0.0;
+        }
+        // haversine formula
+        double sinLat = Math.sin((lat[target] - lat[v]) / 2);
+        double sinLon = Math.sin((lon[target] - lon[v]) / 2);
+        double h = sinLat * sinLat
+            + cosLat[v] * cosLat[target] * sinLon * sinLon;
+        return 2 * scale * Math.asin(Math.min(1.0, Math.sqrt(h)));
+    }
+}
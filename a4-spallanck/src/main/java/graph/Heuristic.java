@@ -0,0 +1,11 @@
+package graph;
+
+/** A lower bound on shortest-path distances, used to guide AStar.
+ * An implementation must be admissible: estimate(v, t) must never exceed
+ * the length of the shortest path from v to t. */
+public interface Heuristic {
+
+    /** Return a lower bound on the length of the shortest path from the
+     * node with index v to the node with index target. */
+    double estimate(int v, int target);
+}
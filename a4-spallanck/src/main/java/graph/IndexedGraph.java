@@ -0,0 +1,59 @@
+package graph;
+
+/** A read-only graph whose nodes are numbered 0 .. size() - 1 and whose
+ * edges are numbered so that the outgoing edges of node u are
+ * firstEdge(u) .. lastEdge(u) - 1. These are the only operations Dijkstra's
+ * algorithm needs, so DijkstraWorkspace and ShortestPaths can search any
+ * implementation: CsrGraph keeps its arrays on the Java heap, and
+ * OffHeapGraph keeps them outside it.
+ * Example usage:
+ *     IndexedGraph g = OffHeapGraph.map(new File("graph.snap"));
+ *     int a = g.indexOf("A");
+ *     for (int e = g.firstEdge(a); e < g.lastEdge(a); e++) {
+ *         int b = g.target(e);
+ *         double w = g.weight(e);
+ *     }
+ *  */
+public interface IndexedGraph {
+
+    /** Return the number of nodes in this graph. */
+    int size();
+
+    /** Return the number of edges in this graph. */
+    int edgeCount();
+
+    /** Return the index of the node with id s, or -1 if there is no such
+     * node. */
+    int indexOf(String s);
+
+    /** Return the index of node v, or -1 if v is not in this graph. */
+    default int indexOf(Node v) {
+        return indexOf(v.getId());
+    }
+
+    /** Return the id of the node with index i.
+     * Precondition: 0 <= i < size(). */
+    String id(int i);
+
+    /** Return a Node with the id of the node with index i. Unless an
+     * implementation says otherwise, it is a new Node with no neighbors.
+     * Precondition: 0 <= i < size(). */
+    default Node node(int i) {
+        return new Node(id(i));
+    }
+
+    /** Return the index of the first outgoing edge of node u.
+     * Precondition: 0 <= u < size(). */
+    int firstEdge(int u);
+
+    /** Return one past the index of the last outgoing edge of node u.
+     * Precondition: 0 <= u < size(). */
+    int lastEdge(int u);
+
+    /** Return the node index that edge e leads to.
+     * Precondition: 0 <= e < edgeCount(). */
+    int target(int e);
+
+    /** Return the weight of edge e. Precondition: 0 <= e < edgeCount(). */
+    double weight(int e);
+}
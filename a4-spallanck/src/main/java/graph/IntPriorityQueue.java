@@ -0,0 +1,36 @@
+package graph;
+
+/** A min-priority queue of int node indices with double priorities, as used
+ * by the frontier of Dijkstra's algorithm. Implementations never box
+ * priorities. Node indices must be in [0, capacity), where capacity is given
+ * when the queue is created and may be raised with ensureCapacity.
+ * Queues without decrease-key (see LazyBinaryHeap) may return the same node
+ * more than once from poll; callers must skip an entry whose priority is
+ * larger than the best distance already known for its node. */
+interface IntPriorityQueue {
+
+    /** Return the number of entries in the queue. */
+    int size();
+
+    /** Return true if the queue has no entries. */
+    boolean isEmpty();
+
+    /** Add node v with priority p. If v is already in the queue with a
+     * priority larger than p, lower its priority to p; if its priority is
+     * already at most p, do nothing. */
+    void offer(int v, double p);
+
+    /** Return the smallest priority in the queue.
+     * Precondition: the queue is not empty. */
+    double minPriority();
+
+    /** Remove and return the node with the smallest priority.
+     * Precondition: the queue is not empty. */
+    int poll();
+
+    /** Remove all entries from the queue. */
+    void clear();
+
+    /** Make room for node indices in [0, capacity). */
+    void ensureCapacity(int capacity);
+}
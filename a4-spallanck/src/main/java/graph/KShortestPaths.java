@@ -0,0 +1,242 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/** The k shortest loopless paths between two nodes of a CsrGraph, found
+ * with Yen's algorithm. Each accepted path is followed by spur searches:
+ * for every node on it, a point-to-point Dijkstra from that node to the
+ * target that may not reuse the nodes before it on the path nor leave it
+ * along an edge an accepted path with the same prefix already took. Edges
+ * and nodes are masked with bitsets, so the graph is never copied.
+ *
+ * Three things keep queries cheap. Spur searches start at the node where a
+ * path deviated from its parent (Lawler's refinement), since earlier spurs
+ * were already searched for the parent. Only as many candidates are kept
+ * as paths are still needed, and a spur search gives up once it cannot beat
+ * the worst of them. And the spur searches for one path are independent,
+ * so they can run in parallel, each on a pooled DijkstraWorkspace.
+ * Example usage:
+ *     KShortestPaths ksp = new KShortestPaths(g.freeze());
+ *     for (PathResult p : ksp.query(g.indexOf("YUL"), g.indexOf("YVR"), 10)) {
+ *         System.out.println(p);
+ *     }
+ *  */
+public class KShortestPaths {
+
+    private final CsrGraph graph;
+    private boolean parallel; // whether spur searches run in parallel
+
+    // spur search state not currently in use
+    private final ConcurrentLinkedQueue<Spur> pool =
+        new ConcurrentLinkedQueue<>();
+
+    /** Constructor: prepare to answer queries on g, running spur searches
+     * sequentially. */
+    public KShortestPaths(CsrGraph g) {
+        this(g, false);
+    }
+
+    /** Constructor: prepare to answer queries on g, running the spur
+     * searches of each path in parallel if parallel is true. */
+    public KShortestPaths(CsrGraph g, boolean parallel) {
+        this.graph = g;
+        this.parallel = parallel;
+    }
+
+    /** Set whether the spur searches of each path run in parallel. */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /** Return the at most k shortest loopless paths from the node with index
+     * origin to the node with index target, shortest first. Paths of equal
+     * length are ordered by their node indices. The list is empty if target
+     * is unreachable.
+     * Precondition: both indices are in [0, g.size()) and k >= 0. */
+    public List<PathResult> query(int origin, int target, int k) {
+        ArrayList<Path> accepted = new ArrayList<>();
+        TreeSet<Path> candidates = new TreeSet<>();
+        HashSet<Path> seen = new HashSet<>(); // accepted and candidate paths
+        if (k > 0) {
+            Path first = spur(null, accepted, origin, target, 0,
+                    Double.POSITIVE_INFINITY);
+            if (first != null) {
+                accepted.add(first);
+                seen.add(first);
+            }
+        }
+        while (!accepted.isEmpty() && accepted.size() < k) {
+            Path last = accepted.get(accepted.size() - 1);
+            int needed = k - accepted.size();
+            double bound = candidates.size() < needed
+                ? Double.POSITIVE_INFINITY : candidates.last().length();
+            IntStream spurs = IntStream.range(last.deviation,
+                    last.nodes.length - 1);
+            if (parallel) {
+                spurs = spurs.parallel();
+            }
+            Path[] found = spurs
+                .mapToObj(i -> spur(last, accepted, origin, target, i, bound))
+                .toArray(Path[]::new);
+            for (Path p : found) {
+                if (p != null && seen.add(p)) {
+                    candidates.add(p);
+                }
+            }
+            while (candidates.size() > needed) {
+                candidates.pollLast(); // can never be among the k shortest
+            }
+            Path next = candidates.pollFirst();
+            if (next == null) {
+                break;
+            }
+            accepted.add(next);
+        }
+
+        ArrayList<PathResult> results = new ArrayList<>(accepted.size());
+        for (Path p : accepted) {
+            results.add(new PathResult(graph, origin, target, p.length(),
+                    p.nodes, null));
+        }
+        return results;
+    }
+
+    /* Return the shortest path to target that starts with the first i + 1
+     * nodes of parent, does not revisit them and does not leave parent's
+     * i'th node the way any accepted path with the same first i + 1 nodes
+     * does, or null if there is none no longer than bound. If parent is
+     * null, return the shortest path from origin to target. */
+    private Path spur(Path parent, List<Path> accepted, int origin,
+            int target, int i, double bound) {
+        Spur s = pool.poll();
+        if (s == null) {
+            s = new Spur(graph);
+        }
+        try {
+            int spurNode = parent == null ? origin : parent.nodes[i];
+            double rootLength = parent == null ? 0.0 : parent.dist[i];
+            if (parent != null) {
+                for (int j = 0; j < i; j++) {
+                    s.blockedNodes.set(parent.nodes[j]);
+                }
+                for (Path p : accepted) {
+                    if (p.nodes.length > i + 1 && p.sharesPrefix(parent, i)) {
+                        s.blockEdges(graph, spurNode, p.nodes[i + 1]);
+                    }
+                }
+            }
+            DijkstraWorkspace ws = s.workspace;
+            if (!ws.runMasked(graph, spurNode, target, s.blockedEdges,
+                    s.blockedNodes, bound - rootLength)) {
+                return null;
+            }
+            int hops = 0;
+            for (int v = target; v != spurNode; v = ws.previous(v)) {
+                hops++;
+            }
+            int[] nodes = new int[i + 1 + hops];
+            double[] dist = new double[nodes.length];
+            if (parent != null) {
+                System.arraycopy(parent.nodes, 0, nodes, 0, i + 1);
+                System.arraycopy(parent.dist, 0, dist, 0, i + 1);
+            }
+            for (int v = target, j = nodes.length - 1; j > i;
+                    v = ws.previous(v), j--) {
+                nodes[j] = v;
+                dist[j] = rootLength + ws.distance(v);
+            }
+            nodes[i] = spurNode;
+            dist[i] = rootLength;
+            return new Path(nodes, dist, i);
+        } finally {
+            s.blockedNodes.clear();
+            s.blockedEdges.clear();
+            pool.offer(s);
+        }
+    }
+
+    /* A loopless path found by a query, ordered by length and then by its
+     * node indices. */
+    private static final class Path implements Comparable<Path> {
+
+        final int[] nodes; // node indices along the path
+        final double[] dist; // dist[j] is the length of the path to nodes[j]
+        final int deviation; // index of the node it left its parent at
+
+        Path(int[] nodes, double[] dist, int deviation) {
+            this.nodes = nodes;
+            this.dist = dist;
+            this.deviation = deviation;
+        }
+
+        /* Return the length of the whole path. */
+        double length() {
+            return dist[dist.length - 1];
+        }
+
+        /* Return true if the first i + 1 nodes of this path and p agree. */
+        boolean sharesPrefix(Path p, int i) {
+            for (int j = i; j >= 0; j--) {
+                if (nodes[j] != p.nodes[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int compareTo(Path p) {
+            int c = Double.compare(length(), p.length());
+            if (c != 0) {
+                return c;
+            }
+            for (int j = 0; j < nodes.length && j < p.nodes.length; j++) {
+                if (nodes[j] != p.nodes[j]) {
+                    return Integer.compare(nodes[j], p.nodes[j]);
+                }
+            }
+            return Integer.compare(nodes.length, p.nodes.length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Path && Arrays.equals(nodes, ((Path) o).nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+
+    /* The state one spur search needs: a workspace and the masks of the
+     * edges and nodes it may not use, which are cleared after each use. */
+    private static final class Spur {
+
+        final DijkstraWorkspace workspace;
+        final BitSet blockedEdges;
+        final BitSet blockedNodes;
+
+        Spur(CsrGraph g) {
+            workspace = new DijkstraWorkspace(g.size());
+            blockedEdges = new BitSet(g.edgeCount());
+            blockedNodes = new BitSet(g.size());
+        }
+
+        /* Block every edge of g from u to v. */
+        void blockEdges(CsrGraph g, int u, int v) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                if (g.targets[e] == v) {
+                    blockedEdges.set(e);
+                }
+            }
+        }
+    }
+}
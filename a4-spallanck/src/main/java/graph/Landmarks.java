@@ -0,0 +1,394 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+/** Landmark distance tables for ALT (A*, Landmarks, Triangle inequality).
+ * For each landmark L, the tables store the distance from L to every node
+ * and from every node to L. By the triangle inequality, for any nodes v and
+ * t both d(L,t) - d(L,v) and d(v,L) - d(t,L) are lower bounds on d(v,t), so
+ * the tables are a Heuristic for AStar that needs no coordinates.
+ * Example usage:
+ *     CsrGraph g = // freeze your graph
+ *     Landmarks alt = Landmarks.build(g, 16, Landmarks.Selection.AVOID);
+ *     alt.save(new File("graph.alt"));
+ *     AStar astar = new AStar(g, alt);
+ *  */
+public class Landmarks implements Heuristic {
+
+    /** Strategies for choosing landmarks. */
+    public enum Selection {
+        /** Repeatedly pick the node farthest from the landmarks so far. */
+        FARTHEST,
+        /** Repeatedly pick a node in a region of a shortest path tree that
+         * the landmarks so far bound badly (Goldberg and Werneck). */
+        AVOID
+    }
+
+    // identifies landmark table files
+    private static final int MAGIC = 0x414c5431; // "ALT1"
+
+    private final int n; // number of nodes in the graph
+    private final int k; // number of landmarks
+    private final int[] landmarks; // node index of each landmark
+    // from[v * k + i] is the distance from landmark i to node v, and
+    // to[v * k + i] is the distance from node v to landmark i. The tables
+    // are node-major so that one estimate reads two contiguous runs; their
+    // length n * k is checked to fit in an int (see tableSize).
+    private final double[] from;
+    private final double[] to;
+
+    /* Constructor: wrap tables that are already computed. */
+    private Landmarks(int n, int[] landmarks, double[] from, double[] to) {
+        this.n = n;
+        this.k = landmarks.length;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Choose k landmarks in g with the given strategy and compute their
+     * distance tables, running the searches for different landmarks in
+     * parallel. Precondition: 0 < k <= g.size(). */
+    public static Landmarks build(CsrGraph g, int k, Selection selection) {
+        int[] chosen = selection == Selection.AVOID
+            ? selectAvoid(g, k) : selectFarthest(g, k);
+        return build(g, chosen);
+    }
+
+    /** Compute the distance tables of the given landmarks in g, running the
+     * searches for different landmarks in parallel. Throws
+     * IllegalArgumentException if the tables would need more than
+     * Integer.MAX_VALUE entries.
+     * Precondition: every landmark is a node index of g. */
+    public static Landmarks build(CsrGraph g, int[] landmarks) {
+        int n = g.size();
+        int k = landmarks.length;
+        double[] from = new double[tableSize(n, k)];
+        double[] to = new double[tableSize(n, k)];
+        CsrGraph reverse = g.reverse();
+        // tasks 0 .. k-1 fill the from table, tasks k .. 2k-1 the to table
+        IntStream.range(0, 2 * k).parallel().forEach(task -> {
+            int i = task % k;
+            boolean forward = task < k;
+            DijkstraWorkspace ws = new DijkstraWorkspace(n);
+            ws.run(forward ? g : reverse, landmarks[i]);
+            double[] table = forward ? from : to;
+            for (int v = 0; v < n; v++) {
+                table[Math.multiplyExact(v, k) + i] = ws.distance(v);
+            }
+        });
+        return new Landmarks(n, landmarks.clone(), from, to);
+    }
+
+    /** Return the number of landmarks. */
+    public int size() {
+        return k;
+    }
+
+    /** Return the node index of landmark i. Precondition: 0 <= i < size(). */
+    public int landmark(int i) {
+        return landmarks[i];
+    }
+
+    /** Return the best lower bound on d(v, target) that the landmarks give
+     * by the triangle inequality. Bounds involving unreachable landmarks
+     * are skipped. */
+    @Override
+    public double estimate(int v, int target) {
+        double best = 0.0;
+        int vi = Math.multiplyExact(v, k);
+        int ti = Math.multiplyExact(target, k);
+        for (int i = 0; i < k; i++) {
+            double fromV = from[vi + i];
+            double fromT = from[ti + i];
+            if (fromV != Double.POSITIVE_INFINITY
+                    && fromT != Double.POSITIVE_INFINITY
+                    && fromT - fromV > best) {
+                best = fromT - fromV;
+            }
+            double toV = to[vi + i];
+            double toT = to[ti + i];
+            if (toV != Double.POSITIVE_INFINITY
+                    && toT != Double.POSITIVE_INFINITY
+                    && toV - toT > best) {
+                best = toV - toT;
+            }
+        }
+        return best;
+    }
+
+    /** Write the landmark tables to f, so that they can be read back with
+     * load instead of being computed again. */
+    public void save(File f) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(f)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+            out.writeInt(k);
+            for (int l : landmarks) {
+                out.writeInt(l);
+            }
+            for (double d : from) {
+                out.writeDouble(d);
+            }
+            for (double d : to) {
+                out.writeDouble(d);
+            }
+        }
+    }
+
+    /** Read landmark tables written by save for the graph g.
+     * Throws IOException if f is not a landmark file, was written for a
+     * graph with a different number of nodes, or has a number of landmarks
+     * or a landmark that does not fit the graph. */
+    public static Landmarks load(File f, CsrGraph g) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a landmark file: " + f);
+            }
+            int n = in.readInt();
+            if (n != g.size()) {
+                throw new IOException("Landmark file " + f + " has " + n
+                        + " nodes but the graph has " + g.size());
+            }
+            int k = in.readInt();
+            if (k < 1 || k > n) {
+                throw new IOException("Landmark file " + f + " has " + k
+                        + " landmarks but the graph has " + n + " nodes");
+            }
+            int[] landmarks = new int[k];
+            for (int i = 0; i < k; i++) {
+                landmarks[i] = in.readInt();
+                if (landmarks[i] < 0 || landmarks[i] >= n) {
+                    throw new IOException("Landmark file " + f
+                            + " has a landmark outside the graph: "
+                            + landmarks[i]);
+                }
+            }
+            double[] from;
+            double[] to;
+            try {
+                from = new double[tableSize(n, k)];
+                to = new double[tableSize(n, k)];
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Landmark file " + f + ": "
+                        + e.getMessage());
+            }
+            for (int i = 0; i < from.length; i++) {
+                from[i] = in.readDouble();
+            }
+            for (int i = 0; i < to.length; i++) {
+                to[i] = in.readDouble();
+            }
+            return new Landmarks(n, landmarks, from, to);
+        }
+    }
+
+    /* Return the length n * k of a table for n nodes and k landmarks.
+     * Throws IllegalArgumentException if it does not fit in an int. */
+    private static int tableSize(int n, int k) {
+        try {
+            return Math.multiplyExact(n, k);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Too many landmarks: " + k
+                    + " landmarks on " + n + " nodes need more than "
+                    + Integer.MAX_VALUE + " table entries");
+        }
+    }
+
+    /* Choose k landmarks by farthest-point selection: start from the node
+     * farthest from node 0, then repeatedly add the node whose distance
+     * from the closest landmark so far is largest. Nodes no landmark
+     * reaches count as farthest, so every component gets a landmark. */
+    private static int[] selectFarthest(CsrGraph g, int k) {
+        int n = g.size();
+        DijkstraWorkspace ws = new DijkstraWorkspace(n);
+        double[] closest = new double[n]; // distance to nearest landmark
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        int[] chosen = new int[k];
+        ws.run(g, 0);
+        int next = farthest(ws, n, null);
+        for (int i = 0; i < k; i++) {
+            chosen[i] = next;
+            ws.run(g, next);
+            closest[next] = -1.0; // never pick a landmark twice
+            for (int v = 0; v < n; v++) {
+                if (closest[v] >= 0.0) {
+                    closest[v] = Math.min(closest[v], ws.distance(v));
+                }
+            }
+            next = farthest(ws, n, closest);
+        }
+        return chosen;
+    }
+
+    /* Return the node with the largest score: closest[v] if closest is not
+     * null, otherwise the distance computed by ws. */
+    private static int farthest(DijkstraWorkspace ws, int n,
+            double[] closest) {
+        int best = 0;
+        double bestScore = -1.0;
+        for (int v = 0; v < n; v++) {
+            double score = closest != null ? closest[v] : ws.distance(v);
+            if (score > bestScore) {
+                best = v;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /* Choose k landmarks with the avoid heuristic. Each round grows a
+     * shortest path tree from a random root and weighs each node by how
+     * much the current landmarks underestimate its distance from the root.
+     * Subtrees containing a landmark weigh nothing. The new landmark is the
+     * leaf reached by walking from the root into the heaviest subtree. */
+    private static int[] selectAvoid(CsrGraph g, int k) {
+        int n = g.size();
+        Random random = new Random(n);
+        int[] chosen = Arrays.copyOf(selectFarthest(g, 1), k);
+        boolean[] isLandmark = new boolean[n];
+        // fromL[i][v] and toL[i][v] are the distances from landmark i to v
+        // and from v to landmark i
+        double[][] fromL = new double[k][];
+        double[][] toL = new double[k][];
+        DijkstraWorkspace ws = new DijkstraWorkspace(n);
+        int[] childStart = new int[n + 1];
+        int[] children = new int[n];
+        int[] order = new int[n];
+        double[] size = new double[n];
+        for (int i = 0; i < k; i++) {
+            if (i > 0) {
+                chosen[i] = avoid(g, ws, random.nextInt(n), i, fromL, toL,
+                        isLandmark, childStart, children, order, size);
+            }
+            isLandmark[chosen[i]] = true;
+            fromL[i] = distances(g, ws, chosen[i]);
+            toL[i] = distances(g.reverse(), ws, chosen[i]);
+        }
+        return chosen;
+    }
+
+    /* Return one new landmark by the avoid heuristic, using a shortest path
+     * tree from root and the tables of the first count landmarks. The other
+     * arrays are work space of length n (n + 1 for childStart). */
+    private static int avoid(CsrGraph g, DijkstraWorkspace ws, int root,
+            int count, double[][] fromL, double[][] toL, boolean[] isLandmark,
+            int[] childStart, int[] children, int[] order, double[] size) {
+        int n = g.size();
+        ws.run(g, root);
+
+        // list the children of each node in the shortest path tree
+        Arrays.fill(childStart, 0);
+        for (int j = 0; j < ws.reachedCount(); j++) {
+            int p = ws.previous(ws.reachedNode(j));
+            if (p >= 0) {
+                childStart[p + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        int[] next = Arrays.copyOf(childStart, n);
+        for (int j = 0; j < ws.reachedCount(); j++) {
+            int v = ws.reachedNode(j);
+            int p = ws.previous(v);
+            if (p >= 0) {
+                children[next[p]++] = v;
+            }
+        }
+
+        // order the tree so that parents come before children
+        int reached = 0;
+        order[reached++] = root;
+        for (int j = 0; j < reached; j++) {
+            int v = order[j];
+            for (int c = childStart[v]; c < childStart[v + 1]; c++) {
+                order[reached++] = children[c];
+            }
+        }
+
+        // weigh subtrees bottom up; -1 marks a subtree with a landmark
+        for (int j = reached - 1; j >= 0; j--) {
+            int v = order[j];
+            double lower = 0.0;
+            for (int i = 0; i < count; i++) {
+                double a = fromL[i][v] - fromL[i][root];
+                double b = toL[i][root] - toL[i][v];
+                if (a == a && a > lower) { // a == a is false for NaN
+                    lower = a;
+                }
+                if (b == b && b > lower) {
+                    lower = b;
+                }
+            }
+            double s = ws.distance(v) - lower;
+            boolean covered = isLandmark[v];
+            for (int c = childStart[v]; c < childStart[v + 1]; c++) {
+                int child = children[c];
+                if (size[child] < 0.0) {
+                    covered = true;
+                } else {
+                    s += size[child];
+                }
+            }
+            size[v] = covered ? -1.0 : s;
+        }
+
+        // walk down into the heaviest subtree until reaching a leaf
+        int v = root;
+        while (true) {
+            int heaviest = -1;
+            for (int c = childStart[v]; c < childStart[v + 1]; c++) {
+                int child = children[c];
+                if (size[child] > 0.0
+                        && (heaviest < 0 || size[child] > size[heaviest])) {
+                    heaviest = child;
+                }
+            }
+            if (heaviest < 0) {
+                break;
+            }
+            v = heaviest;
+        }
+        if (!isLandmark[v]) {
+            return v;
+        }
+
+        // every region is covered; fall back to the node farthest from the
+        // landmarks so far
+        double[] closest = new double[n];
+        for (int u = 0; u < n; u++) {
+            closest[u] = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                closest[u] = Math.min(closest[u], fromL[i][u]);
+            }
+            if (isLandmark[u]) {
+                closest[u] = -1.0;
+            }
+        }
+        return farthest(ws, n, closest);
+    }
+
+    /* Return the distances from origin to every node of g. */
+    private static double[] distances(CsrGraph g, DijkstraWorkspace ws,
+            int origin) {
+        ws.run(g, origin);
+        double[] d = new double[g.size()];
+        for (int v = 0; v < d.length; v++) {
+            d[v] = ws.distance(v);
+        }
+        return d;
+    }
+}
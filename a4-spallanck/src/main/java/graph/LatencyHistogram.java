@@ -0,0 +1,97 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A thread-safe histogram of non-negative long values, such as latencies
+ * in nanoseconds, in the style of HdrHistogram. Values below 128 are
+ * counted exactly; larger values fall into buckets that split each power of
+ * two into 64 equal parts, so every recorded value is known to within
+ * about 1.6% with a fixed 30KB of counts covering the whole long range.
+ * Recording is one atomic increment and never blocks. */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 7; // values below 2^SUB_BITS exact
+    private static final int HALF = 1 << (SUB_BITS - 1); // buckets per octave
+
+    // counts[i] is the number of values recorded in bucket i
+    private final AtomicLongArray counts =
+        new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+    private final LongAdder total = new LongAdder(); // number of values
+    private final LongAdder sum = new LongAdder(); // sum of values
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /** Record value v. Negative values are recorded as 0. */
+    public void record(long v) {
+        v = Math.max(0, v);
+        counts.incrementAndGet(index(v));
+        total.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /** Return the number of values recorded. */
+    public long count() {
+        return total.sum();
+    }
+
+    /** Return the mean of the values recorded, or 0 if there are none. */
+    public double mean() {
+        long n = total.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /** Return the largest value recorded, or 0 if there are none. */
+    public long max() {
+        return max.get();
+    }
+
+    /** Return a value that at least the given percentage of recorded
+     * values do not exceed, accurate to the bucket width; 0 if nothing was
+     * recorded. Precondition: 0 <= percentile <= 100. */
+    public long percentile(double percentile) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highest(i), max());
+            }
+        }
+        return max();
+    }
+
+    /** Forget every recorded value. */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /** Return the bucket of value v >= 0. */
+    static int index(long v) {
+        if (v < 2 * HALF) {
+            return (int) v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+        return shift * HALF + (int) (v >>> shift);
+    }
+
+    /** Return the largest value in bucket i. */
+    static long highest(int i) {
+        if (i < 2 * HALF) {
+            return i;
+        }
+        int shift = i / HALF - 1;
+        long lowest = (long) (i - shift * HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,99 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A binary min-heap of (node, priority) entries without decrease-key.
+ * Instead of lowering a node's priority, offer adds another entry for the
+ * node, so a node may be returned by poll more than once. The heap needs no
+ * position index and its entries are stored in two flat arrays, which makes
+ * each operation cheap at the cost of a larger heap. */
+class LazyBinaryHeap implements IntPriorityQueue {
+
+    private int[] node; // node[i] is the node of entry i
+    private double[] priority; // priority[i] is the priority of entry i
+    private int size; // number of entries in the heap
+
+    /** Constructor: create an empty heap with room for capacity entries
+     * before it has to grow. */
+    LazyBinaryHeap(int capacity) {
+        capacity = Math.max(capacity, 16);
+        node = new int[capacity];
+        priority = new double[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Add an entry for node v with priority p, whether or not v already
+     * has entries in the heap. */
+    @Override
+    public void offer(int v, double p) {
+        if (size == node.length) {
+            node = Arrays.copyOf(node, 2 * size);
+            priority = Arrays.copyOf(priority, 2 * size);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priority[parent] <= p) {
+                break;
+            }
+            node[i] = node[parent];
+            priority[i] = priority[parent];
+            i = parent;
+        }
+        node[i] = v;
+        priority[i] = p;
+    }
+
+    @Override
+    public double minPriority() {
+        return priority[0];
+    }
+
+    @Override
+    public int poll() {
+        int v = node[0];
+        size--;
+        if (size > 0) {
+            int last = node[size];
+            double p = priority[size];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= size) {
+                    break;
+                }
+                if (c + 1 < size && priority[c + 1] < priority[c]) {
+                    c++;
+                }
+                if (priority[c] >= p) {
+                    break;
+                }
+                node[i] = node[c];
+                priority[i] = priority[c];
+                i = c;
+            }
+            node[i] = last;
+            priority[i] = p;
+        }
+        return v;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    /** Does nothing: entries are not indexed by node. */
+    @Override
+    public void ensureCapacity(int capacity) {
+    }
+}
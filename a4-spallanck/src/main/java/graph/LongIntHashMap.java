@@ -0,0 +1,98 @@
+package graph;
+
+import java.util.Arrays;
+
+/** An open-addressing hash map from long keys to int values, with no boxing.
+ * Typically the key packs a pair of node indices as
+ * ((long) a << 32) | b; see key. Removal is not supported. */
+class LongIntHashMap {
+
+    private long[] keys; // keys[i] is the key in slot i, if used[i]
+    private int[] values; // values[i] is the value for keys[i]
+    private boolean[] used; // used[i] is true if slot i holds an entry
+    private int size; // number of entries
+    private final int missing; // value returned for absent keys
+
+    /** Constructor: create an empty map with room for about expected
+     * entries. get returns missing for keys that are not in the map. */
+    LongIntHashMap(int expected, int missing) {
+        int capacity = 16;
+        while (capacity < 2 * expected) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        this.missing = missing;
+    }
+
+    /** Return the key for the ordered pair of ints (a, b). */
+    static long key(int a, int b) {
+        return ((long) a << 32) | (b & 0xffffffffL);
+    }
+
+    /** Return the number of entries in the map. */
+    int size() {
+        return size;
+    }
+
+    /** Return the value for key k, or the missing value if k is absent. */
+    int get(long k) {
+        int mask = keys.length - 1;
+        for (int i = hash(k) & mask; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == k) {
+                return values[i];
+            }
+        }
+        return missing;
+    }
+
+    /** Associate key k with value v, replacing any previous value. */
+    void put(long k, int v) {
+        int mask = keys.length - 1;
+        int i = hash(k) & mask;
+        while (used[i]) {
+            if (keys[i] == k) {
+                values[i] = v;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        keys[i] = k;
+        values[i] = v;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /* Double the table and reinsert every entry. */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[2 * oldKeys.length];
+        values = new int[keys.length];
+        used = new boolean[keys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /* Spread the bits of k over an int (the mix step of MurmurHash3). */
+    private static int hash(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        return (int) k;
+    }
+}
@@ -0,0 +1,451 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/** A fast parser for DB1B CSV files that produces the same Graph as
+ * DB1BParser. The file is memory-mapped and scanned byte by byte. The
+ * origin, destination and distance columns are found once from the header.
+ * Airport codes are interned straight from the mapped bytes, so only one
+ * String is created per distinct airport, and distances are parsed without
+ * creating Strings. The file is split at line boundaries into chunks that
+ * are parsed in parallel and then merged into the graph in file order, so
+ * that rows for the same edge are combined exactly as in DB1BParser.
+ * Commas inside quoted fields are not treated as delimiters. */
+public class MappedDB1BParser extends GraphParser {
+
+    // the largest chunk mapped at once; a single mapping is limited to 2GB
+    private static final long MAX_CHUNK = 1L << 30;
+
+    private final int chunks; // number of chunks to split the file into
+    private RandomAccessFile file; // the open file
+    private long dataStart; // offset of the first byte after the header
+    private int originCol; // column indices of the fields we need
+    private int destCol;
+    private int distanceCol;
+
+    /** Constructor: create a parser that splits files into one chunk per
+     * available processor. */
+    public MappedDB1BParser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Constructor: create a parser that splits files into the given number
+     * of chunks (more for files over 1GB). Precondition: chunks > 0. */
+    public MappedDB1BParser(int chunks) {
+        this.chunks = chunks;
+    }
+
+    /** Open the given file and read its header line. */
+    @Override
+    public void open(File f) throws FileNotFoundException {
+        long startTime = System.nanoTime();
+        file = new RandomAccessFile(f, "r");
+        boolean opened = false;
+        try {
+            parseHeaders(readHeaderLine());
+            recordPhase("header", startTime);
+            opened = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!opened) {
+                closeQuietly();
+            }
+        }
+    }
+
+    /* Close the file after a failure, keeping the original exception. */
+    private void closeQuietly() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // the failure that led here is the one to report
+        }
+    }
+
+    /** Parse an opened file and return a Graph representing the data in the
+     * file. Rows are combined in primitive arrays before the Graph is built,
+     * so each distinct edge is put into the Graph once.
+     * Precondition: open() has been successfully called. */
+    @Override
+    public Graph parse() {
+        EdgeAggregator edges = parseEdges();
+        long startTime = System.nanoTime();
+        Graph g = edges.toGraph();
+        recordPhase("build", startTime);
+        return g;
+    }
+
+    /** Parse an opened file and return its rows combined with the
+     * aggregation policy, without building a graph from them; see
+     * GraphSnapshot.write(EdgeAggregator, File).
+     * Precondition: open() has been successfully called. */
+    EdgeAggregator parseEdges() {
+        return parseInto(new EdgeAggregator(aggregation));
+    }
+
+    /** Parse an opened file and return a CsrGraph that keeps one edge per
+     * row, including parallel edges between the same pair of airports.
+     * Precondition: open() has been successfully called. */
+    public CsrGraph parseMultigraph() {
+        EdgeAggregator edges = parseInto(EdgeAggregator.multigraph());
+        long startTime = System.nanoTime();
+        CsrGraph g = edges.toCsrGraph();
+        recordPhase("build", startTime);
+        return g;
+    }
+
+    /* Parse an opened file, add its rows to edges in file order, and
+     * return edges. */
+    private EdgeAggregator parseInto(EdgeAggregator edges) {
+        try {
+            long startTime = System.nanoTime();
+            Chunk[] parsed;
+            try {
+                long[] bounds = chunkBounds();
+                FileChannel channel = file.getChannel();
+                parsed = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i],
+                                bounds[i + 1]))
+                    .toArray(Chunk[]::new);
+            } finally {
+                file.close();
+            }
+            recordPhase("scan", startTime);
+            startTime = System.nanoTime();
+            for (Chunk c : parsed) {
+                c.addTo(edges);
+            }
+            recordPhase("merge", startTime);
+            return edges;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* Return the header line of the file and set dataStart just past it. */
+    private String readHeaderLine() throws IOException {
+        StringBuilder header = new StringBuilder();
+        file.seek(0);
+        int b;
+        while ((b = file.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                header.append((char) b);
+            }
+        }
+        dataStart = file.getFilePointer();
+        return header.toString();
+    }
+
+    /* Find the columns of the fields we need, matching header names the
+     * same way DB1BParser does. */
+    private void parseHeaders(String headerLine) throws IOException {
+        HashMap<String,Integer> fieldKey = new HashMap<String,Integer>();
+        String[] headers = headerLine.split(",");
+        for (int i = 0; i < headers.length; i++) {
+            fieldKey.put(headers[i].replace("\"","").toLowerCase(), i);
+        }
+        if (!fieldKey.containsKey("origin") || !fieldKey.containsKey("dest")
+                || !fieldKey.containsKey("distance")) {
+            throw new IOException("Missing origin, dest or distance column");
+        }
+        originCol = fieldKey.get("origin");
+        destCol = fieldKey.get("dest");
+        distanceCol = fieldKey.get("distance");
+    }
+
+    /* Split the data into ranges that each start at the beginning of a line
+     * and return their boundaries, from dataStart to the end of the file. */
+    private long[] chunkBounds() throws IOException {
+        long size = file.length();
+        long length = size - dataStart;
+        int count = (int) Math.max(chunks, (length + MAX_CHUNK - 1) / MAX_CHUNK);
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        for (int i = 1; i < count; i++) {
+            long pos = Math.max(dataStart + length * i / count,
+                    bounds.get(bounds.size() - 1));
+            // move forward to the start of the next line
+            file.seek(pos);
+            int b;
+            while ((b = file.read()) != -1 && b != '\n') {
+                pos++;
+            }
+            pos = b == -1 ? size : pos + 1;
+            if (pos > bounds.get(bounds.size() - 1) && pos < size) {
+                bounds.add(pos);
+            }
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /* Map the bytes from start to end and parse the rows in them. */
+    private Chunk parseChunk(FileChannel channel, long start, long end) {
+        Chunk c = new Chunk();
+        if (end <= start) {
+            return c;
+        }
+        MappedByteBuffer buf;
+        try {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limit = buf.limit();
+        int maxCol = Math.max(originCol, Math.max(destCol, distanceCol));
+        int pos = 0;
+        while (pos < limit) {
+            // scan one line, recording where each needed field starts/ends
+            int col = 0;
+            int fieldStart = pos;
+            int origin = -1;
+            int dest = -1;
+            double distance = Double.NaN;
+            boolean quoted = false;
+            while (true) {
+                byte b = pos < limit ? buf.get(pos) : (byte) '\n';
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if ((b == ',' && !quoted) || b == '\n') {
+                    int fieldEnd = pos;
+                    if (b == '\n' && fieldEnd > fieldStart
+                            && buf.get(fieldEnd - 1) == '\r') {
+                        fieldEnd--;
+                    }
+                    if (col == originCol) {
+                        origin = c.codes.intern(buf, fieldStart, fieldEnd);
+                    } else if (col == destCol) {
+                        dest = c.codes.intern(buf, fieldStart, fieldEnd);
+                    } else if (col == distanceCol) {
+                        distance = parseDouble(buf, fieldStart, fieldEnd);
+                    }
+                    col++;
+                    fieldStart = pos + 1;
+                    if (b == '\n') {
+                        pos++;
+                        break;
+                    }
+                }
+                pos++;
+            }
+            if (col > maxCol) {
+                c.add(origin, dest, distance);
+            }
+        }
+        return c;
+    }
+
+    /* Parse the decimal number in bytes start .. end-1 of buf, ignoring
+     * quotes and surrounding spaces. Plain decimals with up to 15
+     * significant digits are parsed directly; dividing the exact digits by
+     * an exact power of ten gives the same correctly rounded result as
+     * Double.parseDouble. Anything else falls back to Double.parseDouble. */
+    static double parseDouble(ByteBuffer buf, int start, int end) {
+        while (start < end && (buf.get(start) == '"' || buf.get(start) == ' ')) {
+            start++;
+        }
+        while (end > start && (buf.get(end - 1) == '"'
+                    || buf.get(end - 1) == ' ')) {
+            end--;
+        }
+        boolean negative = start < end && buf.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        long digits = 0;
+        int count = 0; // significant digits read
+        int scale = 0; // digits after the decimal point
+        boolean point = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (digits != 0 || b != '0') {
+                    count++;
+                }
+                digits = digits * 10 + (b - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (i == end && any && count <= 15 && scale < POWERS_OF_TEN.length) {
+            double value = digits / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        byte[] bytes = new byte[end - start];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = buf.get(start + j);
+        }
+        return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    // exact powers of ten representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** The rows parsed from one chunk: parallel arrays of interned origin
+     * and destination codes and distances, in file order. */
+    private static class Chunk {
+        final CodeTable codes = new CodeTable();
+        int[] origins = new int[1024];
+        int[] dests = new int[1024];
+        double[] distances = new double[1024];
+        int size;
+
+        /** Append a row. */
+        void add(int origin, int dest, double distance) {
+            if (size == origins.length) {
+                origins = Arrays.copyOf(origins, 2 * size);
+                dests = Arrays.copyOf(dests, 2 * size);
+                distances = Arrays.copyOf(distances, 2 * size);
+            }
+            origins[size] = origin;
+            dests[size] = dest;
+            distances[size] = distance;
+            size++;
+        }
+
+        /** Add this chunk's rows to edges, in order. */
+        void addTo(EdgeAggregator edges) {
+            int[] nodes = new int[codes.size()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = edges.node(codes.get(i));
+            }
+            for (int i = 0; i < size; i++) {
+                edges.add(nodes[origins[i]], nodes[dests[i]], distances[i]);
+            }
+        }
+    }
+
+    /** Interns airport codes read from a buffer, giving each distinct code
+     * a small int id without creating a String for every field. Quotes
+     * around a code are dropped, as DB1BParser does. */
+    static class CodeTable {
+        private byte[] bytes = new byte[1024]; // the bytes of every code
+        private int used; // number of bytes used
+        private int[] start = new int[64]; // start[id] is where id begins
+        private int[] length = new int[64]; // length[id] is its length
+        private String[] strings = new String[64]; // strings[id], lazily
+        private int size; // number of codes
+        private int[] slots = new int[128]; // hash table of id + 1, 0 = free
+
+        /** Return the number of distinct codes. */
+        int size() {
+            return size;
+        }
+
+        /** Return the code with the given id as a String. */
+        String get(int id) {
+            if (strings[id] == null) {
+                strings[id] = new String(bytes, start[id], length[id],
+                        StandardCharsets.US_ASCII);
+            }
+            return strings[id];
+        }
+
+        /** Return the id of the code in bytes from .. to-1 of buf, adding
+         * it if it is new. */
+        int intern(ByteBuffer buf, int from, int to) {
+            // drop quotes, as DB1BParser's replace("\"","") does for codes
+            while (from < to && buf.get(from) == '"') {
+                from++;
+            }
+            while (to > from && buf.get(to - 1) == '"') {
+                to--;
+            }
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + buf.get(i);
+            }
+            int mask = slots.length - 1;
+            for (int s = (h ^ (h >>> 16)) & mask; ; s = (s + 1) & mask) {
+                int id = slots[s] - 1;
+                if (id < 0) {
+                    return add(buf, from, to, s);
+                }
+                if (length[id] == to - from && sameBytes(id, buf, from)) {
+                    return id;
+                }
+            }
+        }
+
+        /* Return true if code id equals the bytes of buf from from on. */
+        private boolean sameBytes(int id, ByteBuffer buf, int from) {
+            int st = start[id];
+            for (int i = 0; i < length[id]; i++) {
+                if (bytes[st + i] != buf.get(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /* Add the code in bytes from .. to-1 of buf at hash slot s and
+         * return its id. */
+        private int add(ByteBuffer buf, int from, int to, int s) {
+            int len = to - from;
+            if (used + len > bytes.length) {
+                bytes = Arrays.copyOf(bytes,
+                        Math.max(used + len, 2 * bytes.length));
+            }
+            for (int i = 0; i < len; i++) {
+                bytes[used + i] = buf.get(from + i);
+            }
+            if (size == start.length) {
+                start = Arrays.copyOf(start, 2 * size);
+                length = Arrays.copyOf(length, 2 * size);
+                strings = Arrays.copyOf(strings, 2 * size);
+            }
+            int id = size++;
+            start[id] = used;
+            length[id] = len;
+            used += len;
+            slots[s] = id + 1;
+            if (2 * size > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        /* Double the hash table and reinsert every code. */
+        private void rehash() {
+            slots = new int[2 * slots.length];
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int h = 0;
+                for (int i = 0; i < length[id]; i++) {
+                    h = 31 * h + bytes[start[id] + i];
+                }
+                int s = (h ^ (h >>> 16)) & mask;
+                while (slots[s] != 0) {
+                    s = (s + 1) & mask;
+                }
+                slots[s] = id + 1;
+            }
+        }
+    }
+}
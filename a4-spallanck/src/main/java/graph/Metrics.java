@@ -0,0 +1,17 @@
+package graph;
+
+/** Switches the instrumentation of searches and parsers on or off. It is
+ * off unless the JVM is started with -Dgraph.metrics=true. Because ENABLED
+ * is a static final constant, the JIT compiler removes every disabled
+ * measurement from the compiled code, so leaving the instrumentation in
+ * costs nearly nothing. When it is on, each search records a QueryStats and
+ * everything is aggregated in MetricsRegistry.global(). */
+public final class Metrics {
+
+    /** True if instrumentation is on. */
+    public static final boolean ENABLED = Boolean.getBoolean("graph.metrics");
+
+    /* Not instantiable. */
+    private Metrics() {
+    }
+}
@@ -0,0 +1,93 @@
+package graph;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Named counters and latency histograms aggregated over all searches and
+ * parses, safe to update from any thread. Searches record their QueryStats
+ * here and parsers record the time of each phase, when Metrics.ENABLED.
+ * Example usage:
+ *     MetricsRegistry.global().report(System.out);
+ *     long p99 = MetricsRegistry.global().histogram("query.nanos")
+ *         .percentile(99);
+ *  */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String,LongAdder> counters =
+        new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String,LatencyHistogram> histograms =
+        new ConcurrentHashMap<>();
+
+    // the metrics every search updates, looked up once
+    private final LatencyHistogram queryNanos = histogram("query.nanos");
+    private final LongAdder queries = counter("query.count");
+    private final LongAdder settled = counter("query.settled");
+    private final LongAdder relaxed = counter("query.relaxed");
+    private final LongAdder decreaseKeys = counter("query.decreaseKeys");
+    private final LatencyHistogram peakQueueSize =
+        histogram("query.peakQueueSize");
+
+    /** Return the registry that searches and parsers record into. */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /** Return the counter with the given name, creating it if needed. */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /** Return the histogram with the given name, creating it if needed. */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /** Add the stats of one search. */
+    public void record(QueryStats stats) {
+        queries.increment();
+        queryNanos.record(stats.nanos());
+        settled.add(stats.settled());
+        relaxed.add(stats.relaxed());
+        decreaseKeys.add(stats.decreaseKeys());
+        peakQueueSize.record(stats.peakQueueSize());
+    }
+
+    /** Add the time a parser took for one phase of parsing, under
+     * "parse.<parser>.<phase>". */
+    public void recordPhase(String parser, String phase, long nanos) {
+        histogram("parse." + parser + "." + phase).record(nanos);
+    }
+
+    /** Reset every counter and histogram. */
+    public void reset() {
+        for (LongAdder c : counters.values()) {
+            c.reset();
+        }
+        for (LatencyHistogram h : histograms.values()) {
+            h.reset();
+        }
+    }
+
+    /** Print every counter, and the count, mean, median, 99th percentile
+     * and maximum of every histogram that has values, sorted by name. */
+    public void report(PrintStream out) {
+        for (Map.Entry<String,LongAdder> e
+                : new TreeMap<>(counters).entrySet()) {
+            out.println(e.getKey() + ": " + e.getValue().sum());
+        }
+        for (Map.Entry<String,LatencyHistogram> e
+                : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            if (h.count() > 0) {
+                out.printf("%s: count=%d mean=%.1f p50=%d p99=%d max=%d%n",
+                        e.getKey(), h.count(), h.mean(), h.percentile(50),
+                        h.percentile(99), h.max());
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Shortest paths that take the number of legs (edges) into account as well
+ * as distance. hopLimited finds the shortest path with at most a given
+ * number of legs, and pareto finds every path that no other path beats on
+ * both distance and legs.
+ *
+ * Both run Bellman-Ford by rounds: round r extends the paths found in round
+ * r - 1 by one edge, so after round r every node knows its shortest path
+ * with at most r legs. A node gets a new label (distance, legs, parent
+ * label) in round r only if its path with r legs is strictly shorter than
+ * every path with fewer legs, so the labels of a node are exactly its
+ * Pareto frontier. Labels live in parallel primitive arrays and only the
+ * labels made in the previous round are extended, so each round costs time
+ * proportional to the edges leaving the nodes that improved.
+ * Example usage:
+ *     MultiCriteriaPaths mc = new MultiCriteriaPaths(g.freeze());
+ *     PathResult twoLegs = mc.hopLimited(a, b, 2);
+ *     for (PathResult p : mc.pareto(a, b)) {
+ *         int legs = p.indices().length - 1;
+ *     }
+ *  */
+public class MultiCriteriaPaths {
+
+    private final CsrGraph graph;
+
+    // label l reached node labelNode[l] with distance labelDist[l] and
+    // labelLegs[l] legs, by extending label labelParent[l] (-1 at the
+    // origin); labelOlder[l] is the label of the same node with the next
+    // fewer legs, or -1
+    private int[] labelNode = new int[16];
+    private double[] labelDist = new double[16];
+    private int[] labelLegs = new int[16];
+    private int[] labelParent = new int[16];
+    private int[] labelOlder = new int[16];
+    private int labelCount;
+
+    // best[v] is the label of node v with the most legs, and so the
+    // shortest distance, found so far, or -1 if v has not been reached
+    private final int[] best;
+
+    /** Constructor: prepare to answer queries on g. */
+    public MultiCriteriaPaths(CsrGraph g) {
+        graph = g;
+        best = new int[g.size()];
+        Arrays.fill(best, -1);
+    }
+
+    /** Return the shortest path from the node with index origin to the node
+     * with index target that has at most maxLegs legs. If no such path
+     * exists the result is unreachable.
+     * Precondition: both indices are in [0, g.size()) and maxLegs >= 0. */
+    public PathResult hopLimited(int origin, int target, int maxLegs) {
+        search(origin, target, maxLegs);
+        return result(origin, target, best[target]);
+    }
+
+    /** Return the Pareto-optimal paths from the node with index origin to
+     * the node with index target in increasing order of legs (and so
+     * decreasing distance): every path in the list is shorter than every
+     * path with fewer legs. The list is empty if target is unreachable.
+     * Precondition: both indices are in [0, g.size()). */
+    public List<PathResult> pareto(int origin, int target) {
+        return pareto(origin, target, Integer.MAX_VALUE);
+    }
+
+    /** As above, considering only paths with at most maxLegs legs.
+     * Precondition: maxLegs >= 0. */
+    public List<PathResult> pareto(int origin, int target, int maxLegs) {
+        search(origin, target, maxLegs);
+        ArrayList<PathResult> frontier = new ArrayList<>();
+        for (int l = best[target]; l != -1; l = labelOlder[l]) {
+            frontier.add(result(origin, target, l));
+        }
+        Collections.reverse(frontier);
+        return frontier;
+    }
+
+    /** Return the number of labels the last query made, which is the
+     * number of Pareto-optimal (distance, legs) pairs it found over all
+     * nodes. */
+    public int labelCount() {
+        return labelCount;
+    }
+
+    /* Make the labels of every node on paths from origin with at most
+     * maxLegs legs. Labels that are no shorter than the best path to target
+     * found so far are not made, since extending them cannot give a path
+     * to target that is Pareto-optimal. */
+    private void search(int origin, int target, int maxLegs) {
+        for (int l = 0; l < labelCount; l++) {
+            best[labelNode[l]] = -1;
+        }
+        labelCount = 0;
+        best[origin] = add(origin, 0.0, 0, -1);
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+        int roundStart = 0; // first label made in the previous round
+        for (int r = 1; r <= maxLegs && roundStart < labelCount; r++) {
+            int roundEnd = labelCount;
+            for (int l = roundStart; l < roundEnd; l++) {
+                int u = labelNode[l];
+                double du = labelDist[l];
+                if (u == target) {
+                    continue; // longer paths through target are dominated
+                }
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int w = targets[e];
+                    double d = du + weights[e];
+                    if (best[target] != -1 && d >= labelDist[best[target]]) {
+                        continue;
+                    }
+                    int b = best[w];
+                    if (b == -1 || d < labelDist[b]) {
+                        if (b != -1 && labelLegs[b] == r) {
+                            // improve the label w already got this round
+                            labelDist[b] = d;
+                            labelParent[b] = l;
+                        } else {
+                            int nl = add(w, d, r, l);
+                            labelOlder[nl] = b;
+                            best[w] = nl;
+                        }
+                    }
+                }
+            }
+            roundStart = roundEnd;
+        }
+    }
+
+    /* Add a label for node v with the given distance, legs and parent and
+     * no older label, and return its index. */
+    private int add(int v, double dist, int legs, int parent) {
+        if (labelCount == labelNode.length) {
+            int capacity = 2 * labelCount;
+            labelNode = Arrays.copyOf(labelNode, capacity);
+            labelDist = Arrays.copyOf(labelDist, capacity);
+            labelLegs = Arrays.copyOf(labelLegs, capacity);
+            labelParent = Arrays.copyOf(labelParent, capacity);
+            labelOlder = Arrays.copyOf(labelOlder, capacity);
+        }
+        labelNode[labelCount] = v;
+        labelDist[labelCount] = dist;
+        labelLegs[labelCount] = legs;
+        labelParent[labelCount] = parent;
+        labelOlder[labelCount] = -1;
+        return labelCount++;
+    }
+
+    /* Return the result for the path of label l from origin to target, or
+     * an unreachable result if l is -1. */
+    private PathResult result(int origin, int target, int l) {
+        if (l == -1) {
+            return new PathResult(graph, origin, target,
+                    Double.POSITIVE_INFINITY, null, null);
+        }
+        int[] path = new int[labelLegs[l] + 1];
+        for (int p = l; p != -1; p = labelParent[p]) {
+            path[labelLegs[p]] = labelNode[p];
+        }
+        return new PathResult(graph, origin, target, labelDist[l], path, null);
+    }
+}
@@ -0,0 +1,190 @@
+package graph;
+
+/** A nested partition of the nodes of a CsrGraph into cells on several
+ * levels, for CustomizableRoutes. Level 1 has the smallest cells, of at
+ * most cellSize nodes; each cell on level l + 1 is a union of cells on
+ * level l and has at most FANOUT times as many nodes. The partition only
+ * looks at which nodes are joined, in either direction, never at weights,
+ * so it stays valid however the graph is re-weighted.
+ *
+ * Cells come from recursive bisection: a breadth-first search from a node
+ * far from the rest of the part (found by a first search) orders the part,
+ * and the first half of that order becomes one side. Sides stay connected
+ * where the part is, and tend to have short boundaries on road- and
+ * airline-like graphs.
+ * Example usage:
+ *     MultiLevelPartition p = MultiLevelPartition.build(g, 64, 3);
+ *     int c = p.cell(1, g.indexOf("YUL"));
+ *  */
+public class MultiLevelPartition {
+
+    /** The factor by which the largest cell size grows from one level to
+     * the next. */
+    public static final int FANOUT = 8;
+
+    private final int levels;
+    // cells[l - 1][v] is the cell of node v on level l
+    private final int[][] cells;
+    private final int[] cellCounts; // cellCounts[l - 1] is the number on l
+
+    /* Constructor: wrap a finished partition. */
+    private MultiLevelPartition(int[][] cells, int[] cellCounts) {
+        this.levels = cells.length;
+        this.cells = cells;
+        this.cellCounts = cellCounts;
+    }
+
+    /** Partition g into levels levels, with at most cellSize nodes in each
+     * cell on level 1. Precondition: cellSize >= 1 and levels >= 1. */
+    public static MultiLevelPartition build(CsrGraph g, int cellSize,
+            int levels) {
+        if (cellSize < 1 || levels < 1) {
+            throw new IllegalArgumentException("Bad partition size: "
+                    + cellSize + " nodes, " + levels + " levels");
+        }
+        return new Bisector(g, cellSize, levels).run();
+    }
+
+    /** Return the number of levels. */
+    public int levels() {
+        return levels;
+    }
+
+    /** Return the number of cells on level l.
+     * Precondition: 1 <= l <= levels(). */
+    public int cellCount(int l) {
+        return cellCounts[l - 1];
+    }
+
+    /** Return the cell of node v on level l, in [0, cellCount(l)).
+     * Precondition: 1 <= l <= levels() and 0 <= v < g.size(). */
+    public int cell(int l, int v) {
+        return cells[l - 1][v];
+    }
+
+    /** Return the cells of every node on level l, indexed by node; the
+     * array is shared, not copied. */
+    int[] cells(int l) {
+        return cells[l - 1];
+    }
+
+    /* The state of one recursive bisection. */
+    private static class Bisector {
+
+        private final CsrGraph g;
+        private final CsrGraph r; // g reversed, for incoming edges
+        private final long[] maxSize; // maxSize[l - 1] is the cell limit
+        private final int[][] cells;
+        private final int[] cellCounts;
+
+        private final int[] nodes; // the parts, each a contiguous range
+        private final int[] part; // part[v] is the stamp of v's part
+        private final int[] seen; // seen[v] is the stamp of v's last search
+        private final int[] order; // work space for breadth-first orders
+        private int stamp;
+
+        Bisector(CsrGraph g, int cellSize, int levels) {
+            this.g = g;
+            this.r = g.reverse();
+            int n = g.size();
+            maxSize = new long[levels];
+            long size = cellSize;
+            for (int l = 0; l < levels; l++) {
+                maxSize[l] = size;
+                size = Math.min(size * FANOUT, Integer.MAX_VALUE);
+            }
+            cells = new int[levels][n];
+            cellCounts = new int[levels];
+            nodes = new int[n];
+            for (int v = 0; v < n; v++) {
+                nodes[v] = v;
+            }
+            part = new int[n];
+            seen = new int[n];
+            order = new int[n];
+        }
+
+        MultiLevelPartition run() {
+            if (nodes.length > 0) {
+                split(0, nodes.length, Long.MAX_VALUE);
+            }
+            return new MultiLevelPartition(cells, cellCounts);
+        }
+
+        /* Make nodes[lo .. hi) a cell on every level whose limit it meets
+         * and its parent's size does not, then bisect it until it fits on
+         * level 1. */
+        private void split(int lo, int hi, long parentSize) {
+            int size = hi - lo;
+            for (int l = 0; l < maxSize.length; l++) {
+                if (size <= maxSize[l] && parentSize > maxSize[l]) {
+                    int c = cellCounts[l]++;
+                    for (int i = lo; i < hi; i++) {
+                        cells[l][nodes[i]] = c;
+                    }
+                }
+            }
+            if (size <= maxSize[0]) {
+                return;
+            }
+            int partStamp = ++stamp;
+            for (int i = lo; i < hi; i++) {
+                part[nodes[i]] = partStamp;
+            }
+            // search once to find a far node, then order the part from it
+            int far = search(lo, hi, nodes[lo], partStamp);
+            search(lo, hi, far, partStamp);
+            System.arraycopy(order, 0, nodes, lo, size);
+            int mid = lo + size / 2;
+            split(lo, mid, size);
+            split(mid, hi, size);
+        }
+
+        /* Put the nodes of the part nodes[lo .. hi), stamped partStamp, in
+         * order[0 .. hi - lo) in breadth-first order from start over edges
+         * in both directions, continuing from the next unseen node of the
+         * part whenever a search runs out. Return the last node ordered by
+         * the search from start. */
+        private int search(int lo, int hi, int start, int partStamp) {
+            int s = ++stamp;
+            int tail = 0;
+            int last = start;
+            int next = lo; // next node of the part to restart from
+            while (tail < hi - lo) {
+                int root = start;
+                if (seen[root] == s) {
+                    while (seen[nodes[next]] == s) {
+                        next++;
+                    }
+                    root = nodes[next];
+                }
+                seen[root] = s;
+                int head = tail;
+                order[tail++] = root;
+                while (head < tail) {
+                    int u = order[head++];
+                    tail = visit(g, u, s, partStamp, tail);
+                    tail = visit(r, u, s, partStamp, tail);
+                }
+                if (root == start) {
+                    last = order[tail - 1];
+                }
+            }
+            return last;
+        }
+
+        /* Append the unseen neighbors of u in h that are in the part to
+         * order, starting at tail, and return the new tail. */
+        private int visit(CsrGraph h, int u, int s, int partStamp,
+                int tail) {
+            for (int e = h.offsets[u]; e < h.offsets[u + 1]; e++) {
+                int w = h.targets[e];
+                if (part[w] == partStamp && seen[w] != s) {
+                    seen[w] = s;
+                    order[tail++] = w;
+                }
+            }
+            return tail;
+        }
+    }
+}
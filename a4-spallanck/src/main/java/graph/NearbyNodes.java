@@ -0,0 +1,70 @@
+package graph;
+
+import java.util.Arrays;
+
+/** The immutable answer to a range or nearest-neighbor query on a
+ * CsrGraph: the nodes found, in increasing order of their distance from
+ * the origin, stored in two parallel primitive arrays. The origin itself is
+ * never included.
+ * Example usage:
+ *     NearbyNodes near = service.withinDistance(g.indexOf("YUL"), 500);
+ *     for (int i = 0; i < near.size(); i++) {
+ *         System.out.println(near.id(i) + " " + near.distance(i));
+ *     }
+ *  */
+public final class NearbyNodes {
+
+    private final CsrGraph graph; // the graph the query was answered on
+    private final int origin; // node index of the origin
+    private final int[] nodes; // node indices, closest first
+    private final double[] dist; // dist[i] is the distance to nodes[i]
+
+    /** Constructor: the first size entries of nodes and dist, which are not
+     * copied unless they are longer than size. */
+    NearbyNodes(CsrGraph g, int origin, int[] nodes, double[] dist,
+            int size) {
+        this.graph = g;
+        this.origin = origin;
+        this.nodes = nodes.length == size ? nodes : Arrays.copyOf(nodes, size);
+        this.dist = dist.length == size ? dist : Arrays.copyOf(dist, size);
+    }
+
+    /** Return the node index of the origin. */
+    public int origin() {
+        return origin;
+    }
+
+    /** Return the number of nodes found. */
+    public int size() {
+        return nodes.length;
+    }
+
+    /** Return the index of the i'th closest node found.
+     * Precondition: 0 <= i < size(). */
+    public int node(int i) {
+        return nodes[i];
+    }
+
+    /** Return the id of the i'th closest node found.
+     * Precondition: 0 <= i < size(). */
+    public String id(int i) {
+        return graph.id(nodes[i]);
+    }
+
+    /** Return the length of the shortest path to the i'th closest node
+     * found. Precondition: 0 <= i < size(). */
+    public double distance(int i) {
+        return dist[i];
+    }
+
+    /** Return a copy of the indices of the nodes found, closest first. */
+    public int[] nodes() {
+        return nodes.clone();
+    }
+
+    /** Return a copy of the distances to the nodes found, in increasing
+     * order. */
+    public double[] distances() {
+        return dist.clone();
+    }
+}
@@ -15,6 +15,10 @@ public class Node {
     //  v -> the weight of the edge
      private HashMap<Node,Double> neighbors;
 
+    // the position of this node in the Graph that created it, or -1 if it
+    // was not created by a Graph
+    int index = -1;
+
     /** Constructor: create node with the given id */
     public Node(String id) {
         this.id = id;
@@ -38,6 +42,11 @@ public class Node {
         neighbors.put(neighbor, weight);
     }
 
+    /** Remove the edge to neighbor, if there is one. */
+    public void removeNeighbor(Node neighbor) {
+        neighbors.remove(neighbor);
+    }
+
     /** returns the Node's unique identifier */
     @Override
     public String toString() {
@@ -0,0 +1,122 @@
+package graph;
+
+import java.util.Arrays;
+
+/** Orders for relabeling the nodes of a CsrGraph so that nodes a search
+ * visits close together in time also sit close together in memory. The
+ * orders look at edges in both directions, so a directed graph is ordered
+ * like its undirected version.
+ * Example usage:
+ *     CsrGraph g = graph.freeze(NodeOrder.REVERSE_CUTHILL_MCKEE);
+ *  */
+public enum NodeOrder {
+
+    /** Breadth-first order from the node of highest degree, then from the
+     * node of highest degree not yet ordered, and so on. */
+    BFS {
+        @Override
+        int[] order(CsrGraph g) {
+            return breadthFirst(g, byDegree(g, false), false);
+        }
+    },
+
+    /** Reverse Cuthill-McKee: breadth-first from a node of lowest degree,
+     * visiting the neighbors of each node in increasing order of degree,
+     * and then reversed. Keeps the edges of each node within a narrow band
+     * of indices. */
+    REVERSE_CUTHILL_MCKEE {
+        @Override
+        int[] order(CsrGraph g) {
+            int[] order = breadthFirst(g, byDegree(g, true), true);
+            for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            return order;
+        }
+    },
+
+    /** Nodes in decreasing order of degree, so the hubs that most searches
+     * pass through share a few cache lines. */
+    HUBS_FIRST {
+        @Override
+        int[] order(CsrGraph g) {
+            return byDegree(g, false);
+        }
+    };
+
+    /** Return the nodes of g in this order: element i is the current index
+     * of the node that gets index i. */
+    abstract int[] order(CsrGraph g);
+
+    /* Return the nodes of g sorted by the number of edges entering or
+     * leaving them, ascending if ascending is true and descending
+     * otherwise, with ties broken by index. */
+    private static int[] byDegree(CsrGraph g, boolean ascending) {
+        int n = g.size();
+        CsrGraph r = g.reverse();
+        long[] keys = new long[n];
+        for (int v = 0; v < n; v++) {
+            long degree = g.degree(v) + r.degree(v);
+            keys[v] = (ascending ? degree : Integer.MAX_VALUE - degree) << 32
+                | v;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /* Return the nodes of g in breadth-first order over edges in both
+     * directions, starting each new component at the first unvisited node
+     * of starts. Neighbors are visited in increasing order of degree if
+     * byDegree is true, and in index order otherwise. */
+    private static int[] breadthFirst(CsrGraph g, int[] starts,
+            boolean byDegree) {
+        int n = g.size();
+        CsrGraph r = g.reverse();
+        CsrGraph[] both = {g, r};
+        int[] rank = new int[n]; // rank[v] is the position of v in starts
+        for (int i = 0; i < n; i++) {
+            rank[starts[i]] = i;
+        }
+        boolean[] visited = new boolean[n];
+        int[] order = new int[n];
+        int[] neighbors = new int[0];
+        int tail = 0;
+        for (int s : starts) {
+            if (visited[s]) {
+                continue;
+            }
+            visited[s] = true;
+            int head = tail;
+            order[tail++] = s;
+            while (head < tail) {
+                int u = order[head++];
+                int count = 0;
+                int degree = g.degree(u) + r.degree(u);
+                if (neighbors.length < degree) {
+                    neighbors = new int[Math.max(degree, 2 * neighbors.length)];
+                }
+                for (CsrGraph h : both) {
+                    for (int e = h.offsets[u]; e < h.offsets[u + 1]; e++) {
+                        int w = h.targets[e];
+                        if (!visited[w]) {
+                            visited[w] = true;
+                            neighbors[count++] = byDegree ? rank[w] : w;
+                        }
+                    }
+                }
+                Arrays.sort(neighbors, 0, count);
+                for (int i = 0; i < count; i++) {
+                    order[tail++] = byDegree ? starts[neighbors[i]]
+                        : neighbors[i];
+                }
+            }
+        }
+        return order;
+    }
+}
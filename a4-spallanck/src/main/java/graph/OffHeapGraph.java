@@ -0,0 +1,191 @@
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/** An immutable graph in compressed-sparse-row form whose edge offsets,
+ * targets, weights, node ids and id index all live outside the Java heap,
+ * either in direct buffers or in a memory-mapped GraphSnapshot file. The
+ * heap holds only a few buffer objects whatever the size of the graph, so
+ * large graphs neither need a large -Xmx nor lengthen garbage collection
+ * pauses; a mapped graph is paged in by the operating system as searches
+ * touch it. The arrays are kept in the snapshot layout in a SegmentedBuffer
+ * addressed by long offsets, so they may take more than 2GB. Searches
+ * still keep their per-node state in a DijkstraWorkspace on the heap.
+ * Ids are decoded from UTF-8 on each call to id, and indexOf looks them up
+ * in an open-addressing hash table of node indices.
+ * Example usage:
+ *     OffHeapGraph g = OffHeapGraph.map(new File("graph.snap"));
+ *     ShortestPaths sp = new ShortestPaths();
+ *     sp.compute(g, g.indexOf("YUL"));
+ *     double miles = sp.shortestPathLength(g.indexOf("YVR"));
+ *  */
+public final class OffHeapGraph implements IndexedGraph {
+
+    private final int n; // number of nodes
+    private final int m; // number of edges
+    // the graph in the GraphSnapshot layout; the positions of its arrays
+    // follow
+    private final SegmentedBuffer data;
+    // edges of node u are the ints at offsetsAt + 4u and offsetsAt + 4(u+1)
+    private final long offsetsAt;
+    private final long targetsAt; // edge e leads to the int at targetsAt + 4e
+    private final long weightsAt; // edge e weighs the double at weightsAt + 8e
+    // node i's id is the UTF-8 bytes from idBytesAt + the ith to idBytesAt +
+    // the (i+1)th int at idOffsetsAt
+    private final long idOffsetsAt;
+    private final long idBytesAt;
+    // the int in slot s holds 1 + the index of a node whose id hashes near
+    // s, or 0 if empty; there are a power of two slots, at least twice n
+    private final SegmentedBuffer idTable;
+    private final long slotMask; // the number of slots - 1
+
+    /* Constructor: wrap a graph in the snapshot layout, and build the id
+     * table in direct segments of 2^shift bytes. */
+    private OffHeapGraph(SegmentedBuffer data, int shift) {
+        this.data = data;
+        n = data.getInt(8);
+        m = data.getInt(12);
+        offsetsAt = GraphSnapshot.offsetsAt(n);
+        targetsAt = GraphSnapshot.targetsAt(n);
+        weightsAt = GraphSnapshot.weightsAt(n, m);
+        idOffsetsAt = GraphSnapshot.stringOffsetsAt();
+        idBytesAt = GraphSnapshot.stringsAt(n, m);
+        long capacity = 16;
+        while (capacity < 2L * n) {
+            capacity <<= 1;
+        }
+        slotMask = capacity - 1;
+        idTable = SegmentedBuffer.allocateDirect(
+                Math.multiplyExact(4L, capacity), shift);
+        for (int i = 0; i < n; i++) {
+            int start = idOffset(i);
+            long s = hash(data, idBytesAt + start, idOffset(i + 1) - start)
+                & slotMask;
+            while (idTable.getInt(4 * s) != 0) {
+                s = (s + 1) & slotMask;
+            }
+            idTable.putInt(4 * s, i + 1);
+        }
+    }
+
+    /** Return an off-heap copy of g in direct buffers. Throws
+     * IllegalArgumentException if the node ids take 2GB or more in
+     * UTF-8. */
+    public static OffHeapGraph copyOf(CsrGraph g) {
+        return copyOf(g, SegmentedBuffer.DEFAULT_SHIFT);
+    }
+
+    /** As above, in direct segments of 2^shift bytes. */
+    static OffHeapGraph copyOf(CsrGraph g, int shift) {
+        int n = g.size();
+        int m = g.edgeCount();
+        byte[][] ids = GraphSnapshot.encodeIds(g::id, n);
+        SegmentedBuffer data = SegmentedBuffer.allocateDirect(
+                GraphSnapshot.size(ids, m), shift);
+        GraphSnapshot.putLayout(data, ids, g.offsets);
+        data.putInts(GraphSnapshot.targetsAt(n), g.targets);
+        data.putDoubles(GraphSnapshot.weightsAt(n, m), g.weights);
+        return new OffHeapGraph(data, shift);
+    }
+
+    /** Return the graph in snapshot file f (see GraphSnapshot), read in
+     * place from a memory mapping of f without copying its arrays. Throws
+     * FileNotFoundException if f cannot be opened, and IOException if it is
+     * not a valid snapshot. */
+    public static OffHeapGraph map(File f) throws IOException {
+        return map(f, SegmentedBuffer.DEFAULT_SHIFT);
+    }
+
+    /** As above, mapping f in segments of 2^shift bytes. */
+    static OffHeapGraph map(File f, int shift) throws IOException {
+        return new OffHeapGraph(GraphSnapshot.map(f, shift), shift);
+    }
+
+    /* Return the position of node i's id among the id bytes. */
+    private int idOffset(int i) {
+        return data.getInt(idOffsetsAt + 4L * i);
+    }
+
+    /* Return a hash of the length bytes of buf from position start. */
+    private static int hash(SegmentedBuffer buf, long start, int length) {
+        int h = 1;
+        for (long i = start; i < start + length; i++) {
+            h = 31 * h + buf.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /* Return the same hash as above of the bytes of key. */
+    private static int hash(byte[] key) {
+        int h = 1;
+        for (byte b : key) {
+            h = 31 * h + b;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int edgeCount() {
+        return m;
+    }
+
+    @Override
+    public int indexOf(String s) {
+        byte[] key = s.getBytes(StandardCharsets.UTF_8);
+        for (long slot = hash(key) & slotMask; idTable.getInt(4 * slot) != 0;
+                slot = (slot + 1) & slotMask) {
+            int i = idTable.getInt(4 * slot) - 1;
+            int start = idOffset(i);
+            if (idOffset(i + 1) - start == key.length
+                    && matches(key, idBytesAt + start)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* Return true if the bytes of key equal the id bytes from at. */
+    private boolean matches(byte[] key, long at) {
+        for (int j = 0; j < key.length; j++) {
+            if (key[j] != data.get(at + j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String id(int i) {
+        int start = idOffset(i);
+        byte[] bytes = new byte[idOffset(i + 1) - start];
+        data.get(idBytesAt + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int firstEdge(int u) {
+        return data.getInt(offsetsAt + 4L * u);
+    }
+
+    @Override
+    public int lastEdge(int u) {
+        return data.getInt(offsetsAt + 4L * (u + 1));
+    }
+
+    @Override
+    public int target(int e) {
+        return data.getInt(targetsAt + 4L * e);
+    }
+
+    @Override
+    public double weight(int e) {
+        return data.getDouble(weightsAt + 8L * e);
+    }
+}
@@ -0,0 +1,178 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A pairing heap of int node indices with double priorities. The heap is
+ * stored in parallel arrays indexed by node, so inserting and lowering a
+ * priority take O(1) time and allocate nothing; poll takes amortized
+ * O(log n) time. */
+class PairingHeap implements IntPriorityQueue {
+
+    private double[] key; // key[v] is the priority of node v
+    private int[] child; // child[v] is the leftmost child of v, or -1
+    private int[] next; // next[v] is the right sibling of v, or -1
+    // prev[v] is the left sibling of v, or its parent if v is a leftmost
+    // child, or -1 if v is the root
+    private int[] prev;
+    private boolean[] in; // in[v] is true if v is in the heap
+    private int[] scratch; // work space for melding the children of a root
+    private int root; // the node with the smallest priority, or -1
+    private int size; // number of nodes in the heap
+
+    /** Constructor: create an empty heap for node indices in
+     * [0, capacity). */
+    PairingHeap(int capacity) {
+        key = new double[capacity];
+        child = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        in = new boolean[capacity];
+        scratch = new int[capacity];
+        root = -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void offer(int v, double p) {
+        if (!in[v]) {
+            in[v] = true;
+            key[v] = p;
+            child[v] = -1;
+            next[v] = -1;
+            prev[v] = -1;
+            root = root < 0 ? v : meld(root, v);
+            size++;
+        } else if (p < key[v]) {
+            key[v] = p;
+            if (v != root) {
+                cut(v);
+                root = meld(root, v);
+            }
+        }
+    }
+
+    @Override
+    public double minPriority() {
+        return key[root];
+    }
+
+    @Override
+    public int poll() {
+        int r = root;
+        in[r] = false;
+        size--;
+        root = mergePairs(child[r]);
+        if (root >= 0) {
+            prev[root] = -1;
+            next[root] = -1;
+        }
+        return r;
+    }
+
+    @Override
+    public void clear() {
+        if (root >= 0) {
+            // walk the tree to unmark every remaining node
+            int top = 0;
+            scratch[top++] = root;
+            while (top > 0) {
+                int v = scratch[--top];
+                in[v] = false;
+                for (int c = child[v]; c >= 0; c = next[c]) {
+                    scratch[top++] = c;
+                }
+            }
+        }
+        root = -1;
+        size = 0;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity <= in.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, 2 * in.length);
+        key = Arrays.copyOf(key, newCapacity);
+        child = Arrays.copyOf(child, newCapacity);
+        next = Arrays.copyOf(next, newCapacity);
+        prev = Arrays.copyOf(prev, newCapacity);
+        in = Arrays.copyOf(in, newCapacity);
+        scratch = Arrays.copyOf(scratch, newCapacity);
+    }
+
+    /* Detach the subtree rooted at v from its parent and siblings.
+     * Precondition: v is not the root. */
+    private void cut(int v) {
+        int p = prev[v];
+        if (child[p] == v) {
+            child[p] = next[v];
+        } else {
+            next[p] = next[v];
+        }
+        if (next[v] >= 0) {
+            prev[next[v]] = p;
+        }
+        next[v] = -1;
+        prev[v] = -1;
+    }
+
+    /* Meld the trees rooted at a and b, which have no siblings, and return
+     * the root of the result. */
+    private int meld(int a, int b) {
+        if (key[b] < key[a]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int c = child[a];
+        next[b] = c;
+        if (c >= 0) {
+            prev[c] = b;
+        }
+        prev[b] = a;
+        child[a] = b;
+        return a;
+    }
+
+    /* Meld the sibling list starting at first into one tree with the
+     * standard two-pass strategy and return its root, or -1 if the list is
+     * empty. */
+    private int mergePairs(int first) {
+        // first pass: meld neighbouring pairs from left to right
+        int count = 0;
+        int a = first;
+        while (a >= 0) {
+            int b = next[a];
+            next[a] = -1;
+            prev[a] = -1;
+            if (b < 0) {
+                scratch[count++] = a;
+                break;
+            }
+            int rest = next[b];
+            next[b] = -1;
+            prev[b] = -1;
+            scratch[count++] = meld(a, b);
+            a = rest;
+        }
+        if (count == 0) {
+            return -1;
+        }
+        // second pass: meld the pairs from right to left
+        int result = scratch[count - 1];
+        for (int i = count - 2; i >= 0; i--) {
+            result = meld(scratch[i], result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,161 @@
+package graph;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/** Answers shortest path queries on one shared, immutable CsrGraph from any
+ * number of threads at once. Each query borrows a DijkstraWorkspace from a
+ * lock-free pool and returns it afterwards, so threads never block each
+ * other and the pool never holds more workspaces than the largest number of
+ * queries that ran at the same time. Unlike a ThreadLocal, this also suits
+ * many short-lived (for example virtual) threads. Results are immutable
+ * PathResults.
+ * Example usage:
+ *     PathQueryService service = new PathQueryService(g.freeze());
+ *     // on any thread:
+ *     PathResult r = service.query("YUL", "YVR");
+ *     double miles = r.distance();
+ *  */
+public class PathQueryService {
+
+    private final CsrGraph graph;
+    private final QueueKind queueKind; // queue kind of new workspaces
+    private final int arity; // heap arity of new workspaces
+
+    // workspaces not currently used by a query
+    private final ConcurrentLinkedQueue<DijkstraWorkspace> pool =
+        new ConcurrentLinkedQueue<>();
+
+    /** Constructor: a service answering queries on g. */
+    public PathQueryService(CsrGraph g) {
+        this(g, QueueKind.DARY_HEAP, DaryHeap.DEFAULT_ARITY);
+    }
+
+    /** Constructor: a service answering queries on g with Dijkstra frontiers
+     * of the given kind and arity. Precondition: arity >= 2. */
+    public PathQueryService(CsrGraph g, QueueKind kind, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2: "
+                    + arity);
+        }
+        this.graph = g;
+        this.queueKind = kind;
+        this.arity = arity;
+    }
+
+    /** Return the graph this service answers queries on. */
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    /** Return the shortest path from the node with id origin to the node
+     * with id destination. Throws IllegalArgumentException if either node
+     * is not in the graph. */
+    public PathResult query(String origin, String destination) {
+        return query(indexOf(origin), indexOf(destination));
+    }
+
+    /** Return the shortest path from the node with index origin to the node
+     * with index destination.
+     * Precondition: 0 <= origin, destination < graph().size(). */
+    public PathResult query(int origin, int destination) {
+        DijkstraWorkspace ws = borrow();
+        try {
+            ws.run(graph, origin, destination);
+            return result(graph, ws, origin, destination);
+        } finally {
+            pool.offer(ws);
+        }
+    }
+
+    /** Return the length of the shortest path from the node with index
+     * origin to the node with index destination, or
+     * Double.POSITIVE_INFINITY if there is none. Unlike query, this builds
+     * no path.
+     * Precondition: 0 <= origin, destination < graph().size(). */
+    public double distance(int origin, int destination) {
+        DijkstraWorkspace ws = borrow();
+        try {
+            ws.run(graph, origin, destination);
+            return ws.distance(destination);
+        } finally {
+            pool.offer(ws);
+        }
+    }
+
+    /** Return the shortest path tree of the node with index origin, with
+     * the shortest paths to all nodes.
+     * Precondition: 0 <= origin < graph().size(). */
+    public ShortestPathTree tree(int origin) {
+        DijkstraWorkspace ws = borrow();
+        try {
+            ws.run(graph, origin);
+            return ShortestPathTree.of(graph, ws, origin);
+        } finally {
+            pool.offer(ws);
+        }
+    }
+
+    /** Return every node whose shortest path from the node with index
+     * origin is at most radius long, closest first. The search stops at the
+     * radius, so a small radius only touches the origin's neighborhood.
+     * Precondition: 0 <= origin < graph().size(). */
+    public NearbyNodes withinDistance(int origin, double radius) {
+        return nearest(origin, radius, Integer.MAX_VALUE);
+    }
+
+    /** Return the k nodes closest to the node with index origin, closest
+     * first, or every node reachable from it if there are fewer. Ties at
+     * the k'th distance are broken arbitrarily.
+     * Precondition: 0 <= origin < graph().size() and k >= 0. */
+    public NearbyNodes kNearest(int origin, int k) {
+        return nearest(origin, Double.POSITIVE_INFINITY, k);
+    }
+
+    /* Return at most maxCount nodes other than origin within radius of it,
+     * closest first. */
+    private NearbyNodes nearest(int origin, double radius, int maxCount) {
+        DijkstraWorkspace ws = borrow();
+        try {
+            return ws.nearest(graph, origin, radius, maxCount);
+        } finally {
+            pool.offer(ws);
+        }
+    }
+
+    /** Return the index of the node with the given id, or throw
+     * IllegalArgumentException if there is none. */
+    int indexOf(String id) {
+        int i = graph.indexOf(id);
+        if (i < 0) {
+            throw new IllegalArgumentException("No such node: " + id);
+        }
+        return i;
+    }
+
+    /* Take a workspace from the pool, or create one if it is empty. */
+    private DijkstraWorkspace borrow() {
+        DijkstraWorkspace ws = pool.poll();
+        return ws != null ? ws : new DijkstraWorkspace(graph.size(), queueKind,
+                arity);
+    }
+
+    /** Return the result for destination of a search from origin on g whose
+     * distances, predecessors and stats are in ws. */
+    static PathResult result(CsrGraph g, DijkstraWorkspace ws, int origin,
+            int destination) {
+        if (!ws.reached(destination)) {
+            return new PathResult(g, origin, destination,
+                    Double.POSITIVE_INFINITY, null, ws.stats());
+        }
+        int hops = 0;
+        for (int v = ws.previous(destination); v != -1; v = ws.previous(v)) {
+            hops++;
+        }
+        int[] path = new int[hops + 1];
+        for (int v = destination; v != -1; v = ws.previous(v)) {
+            path[hops--] = v;
+        }
+        return new PathResult(g, origin, destination, ws.distance(destination),
+                path, ws.stats());
+    }
+}
@@ -0,0 +1,99 @@
+package graph;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/** The immutable answer to a shortest path query on a CsrGraph: the length
+ * of the shortest path from an origin to a destination and the nodes along
+ * it. Results can be shared freely between threads. */
+public final class PathResult {
+
+    private final CsrGraph graph; // the graph the query was answered on
+    private final int origin; // node index of the origin
+    private final int destination; // node index of the destination
+    private final double distance; // length of the path, or infinity
+    private final int[] path; // node indices along the path, or null
+    private final QueryStats stats; // what the search did, or null
+
+    /** Constructor: a result for a query on g from origin to destination.
+     * path holds the node indices along the shortest path, including both
+     * ends, or is null if destination is unreachable; it is not copied.
+     * stats is what the search did, or null. */
+    PathResult(CsrGraph g, int origin, int destination, double distance,
+            int[] path, QueryStats stats) {
+        this.graph = g;
+        this.origin = origin;
+        this.destination = destination;
+        this.distance = distance;
+        this.path = path;
+        this.stats = stats;
+    }
+
+    /** Return the node index of the origin. */
+    public int origin() {
+        return origin;
+    }
+
+    /** Return the node index of the destination. */
+    public int destination() {
+        return destination;
+    }
+
+    /** Return true if there is a path from the origin to the destination. */
+    public boolean isReachable() {
+        return path != null;
+    }
+
+    /** Return the length of the shortest path, or Double.POSITIVE_INFINITY
+     * if there is no path. */
+    public double distance() {
+        return distance;
+    }
+
+    /** Return what the search that answered the query did, or null if
+     * Metrics.ENABLED is false or the path was read from a
+     * ShortestPathTree. */
+    public QueryStats stats() {
+        return stats;
+    }
+
+    /** Return a copy of the node indices along the shortest path, including
+     * both ends, or null if there is no path. */
+    public int[] indices() {
+        return path == null ? null : path.clone();
+    }
+
+    /** Return a read-only list of the ids of the nodes along the shortest
+     * path, including both ends, or null if there is no path. */
+    public List<String> ids() {
+        if (path == null) {
+            return null;
+        }
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i) {
+                return graph.id(path[i]);
+            }
+
+            @Override
+            public int size() {
+                return path.length;
+            }
+        };
+    }
+
+    /** Return the path as node ids separated by spaces followed by its
+     * length, or a message if there is no path. */
+    @Override
+    public String toString() {
+        if (path == null) {
+            return "No path from " + graph.id(origin) + " to "
+                + graph.id(destination);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int v : path) {
+            sb.append(graph.id(v)).append(' ');
+        }
+        return sb.append(distance).toString();
+    }
+}
@@ -0,0 +1,145 @@
+package graph;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/** A shortest path read straight from the predecessor array of a
+ * ShortestPaths computation, without copying it. The number of hops and the
+ * length are available without building the path, and the nodes can be
+ * iterated or copied once into an array. A view is only valid until the
+ * next compute call on the ShortestPaths that returned it.
+ * Example usage:
+ *     sp.compute(a);
+ *     PathView p = sp.path(b);
+ *     int hops = p.hopCount();
+ *     for (Node v : p) {
+ *         System.out.print(v + " ");
+ *     }
+ *  */
+public final class PathView implements Iterable<Node> {
+
+    /** The predecessor array a view reads: node indices, each node's
+     * predecessor on its shortest path, and the Node for each index. */
+    interface Predecessors {
+        /** Return the index of the node before v, or -1 at the origin. */
+        int previous(int v);
+
+        /** Return the Node with index v. */
+        Node node(int v);
+    }
+
+    private final Predecessors tree; // the predecessor array read
+    private final int destination; // index of the last node
+    private final double length; // length of the path
+
+    /** Constructor: the path in tree ending at the node with index
+     * destination, which has the given length. */
+    PathView(Predecessors tree, int destination, double length) {
+        this.tree = tree;
+        this.destination = destination;
+        this.length = length;
+    }
+
+    /** Return the length of the path. */
+    public double length() {
+        return length;
+    }
+
+    /** Return the number of edges on the path; 0 if it has only the
+     * origin. */
+    public int hopCount() {
+        int hops = 0;
+        for (int v = tree.previous(destination); v != -1;
+                v = tree.previous(v)) {
+            hops++;
+        }
+        return hops;
+    }
+
+    /** Return the first node of the path. */
+    public Node origin() {
+        int v = destination;
+        while (tree.previous(v) != -1) {
+            v = tree.previous(v);
+        }
+        return tree.node(v);
+    }
+
+    /** Return the last node of the path. */
+    public Node destination() {
+        return tree.node(destination);
+    }
+
+    /** Return the node indices along the path, from origin to destination.
+     * The indices are those of the computation: CsrGraph indices for a
+     * computation on a CsrGraph, discovery order otherwise. */
+    public int[] toIndexArray() {
+        int hops = hopCount();
+        int[] path = new int[hops + 1];
+        for (int v = destination; v != -1; v = tree.previous(v)) {
+            path[hops--] = v;
+        }
+        return path;
+    }
+
+    /** Return the nodes along the path, from origin to destination. */
+    public Node[] toArray() {
+        int hops = hopCount();
+        Node[] path = new Node[hops + 1];
+        for (int v = destination; v != -1; v = tree.previous(v)) {
+            path[hops--] = tree.node(v);
+        }
+        return path;
+    }
+
+    /** Return the nodes along the path in a new LinkedList, from origin to
+     * destination. */
+    public LinkedList<Node> toLinkedList() {
+        LinkedList<Node> path = new LinkedList<>();
+        for (int v = destination; v != -1; v = tree.previous(v)) {
+            path.addFirst(tree.node(v));
+        }
+        return path;
+    }
+
+    /** Return an iterator over the nodes of the path from origin to
+     * destination. The node indices are gathered into one array when
+     * iteration starts; no other storage is allocated. */
+    @Override
+    public Iterator<Node> iterator() {
+        return new Iterator<Node>() {
+            private int[] path; // the indices, gathered on first use
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (path == null) {
+                    path = toIndexArray();
+                }
+                return next < path.length;
+            }
+
+            @Override
+            public Node next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return tree.node(path[next++]);
+            }
+        };
+    }
+
+    /** Return the ids of the nodes on the path separated by spaces. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Node v : this) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(v.getId());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package graph;
+
+/** What one shortest path search did: how many nodes it settled, edges it
+ * relaxed and decrease-key operations it made, the largest size of its
+ * frontier, and how long it took. Only recorded when Metrics.ENABLED. */
+public final class QueryStats {
+
+    private final long settled;
+    private final long relaxed;
+    private final long decreaseKeys;
+    private final int peakQueueSize;
+    private final long nanos;
+
+    /** Constructor: stats with the given values. */
+    QueryStats(long settled, long relaxed, long decreaseKeys,
+            int peakQueueSize, long nanos) {
+        this.settled = settled;
+        this.relaxed = relaxed;
+        this.decreaseKeys = decreaseKeys;
+        this.peakQueueSize = peakQueueSize;
+        this.nanos = nanos;
+    }
+
+    /** Return the number of nodes taken off the frontier and settled. */
+    public long settled() {
+        return settled;
+    }
+
+    /** Return the number of edges relaxed. */
+    public long relaxed() {
+        return relaxed;
+    }
+
+    /** Return the number of times a reached node got a shorter distance. */
+    public long decreaseKeys() {
+        return decreaseKeys;
+    }
+
+    /** Return the largest number of entries on the frontier at once. */
+    public int peakQueueSize() {
+        return peakQueueSize;
+    }
+
+    /** Return the wall time of the search in nanoseconds. */
+    public long nanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "settled=" + settled + " relaxed=" + relaxed
+            + " decreaseKeys=" + decreaseKeys + " peakQueueSize="
+            + peakQueueSize + " micros=" + nanos / 1000;
+    }
+}
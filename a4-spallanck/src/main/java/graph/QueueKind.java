@@ -0,0 +1,38 @@
+package graph;
+
+/** The priority queues ShortestPaths can use for Dijkstra's frontier.
+ * Example usage:
+ *     ShortestPaths sp = new ShortestPaths();
+ *     sp.setQueue(QueueKind.DARY_HEAP, 8);
+ *  */
+public enum QueueKind {
+
+    /** An indexed d-ary heap with decrease-key (see DaryHeap). */
+    DARY_HEAP {
+        @Override
+        IntPriorityQueue create(int capacity, int arity) {
+            return new DaryHeap(capacity, arity);
+        }
+    },
+
+    /** A pairing heap with O(1) decrease-key (see PairingHeap). */
+    PAIRING_HEAP {
+        @Override
+        IntPriorityQueue create(int capacity, int arity) {
+            return new PairingHeap(capacity);
+        }
+    },
+
+    /** A binary heap that allows duplicate entries instead of decrease-key
+     * (see LazyBinaryHeap). */
+    LAZY_BINARY_HEAP {
+        @Override
+        IntPriorityQueue create(int capacity, int arity) {
+            return new LazyBinaryHeap(capacity);
+        }
+    };
+
+    /** Return a new empty queue of this kind for node indices in
+     * [0, capacity). arity is only used by DARY_HEAP. */
+    abstract IntPriorityQueue create(int capacity, int arity);
+}
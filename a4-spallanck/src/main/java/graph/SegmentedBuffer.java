@@ -0,0 +1,232 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/** A little-endian buffer of any number of bytes, addressed by long
+ * offsets. A ByteBuffer is indexed by int and so holds less than 2GB; this
+ * class splits its bytes into segments of 2^shift bytes each (the last may
+ * be shorter), either direct buffers or mappings of one file. Ints must be
+ * stored at multiples of 4 and longs and doubles at multiples of 8, so that
+ * none straddles two segments. Bulk reads and writes cross segments freely.
+ * Example usage:
+ *     SegmentedBuffer buf = SegmentedBuffer.allocateDirect(5L << 30,
+ *             SegmentedBuffer.DEFAULT_SHIFT);
+ *     buf.putDouble(4L << 30, 1.5);
+ *  */
+final class SegmentedBuffer {
+
+    /** The default shift: segments of 1GB. */
+    static final int DEFAULT_SHIFT = 30;
+
+    private final ByteBuffer[] segments;
+    // the only segment, if there is just one, so reads can skip the lookup
+    private final ByteBuffer single;
+    private final long capacity; // the total number of bytes
+    private final int shift; // segments hold 2^shift bytes
+    private final long mask; // 2^shift - 1, the offset within a segment
+
+    /* Constructor: wrap segments of 2^shift bytes holding capacity bytes. */
+    private SegmentedBuffer(ByteBuffer[] segments, long capacity, int shift) {
+        this.segments = segments;
+        this.single = segments.length == 1 ? segments[0] : null;
+        this.capacity = capacity;
+        this.shift = shift;
+        this.mask = (1L << shift) - 1;
+    }
+
+    /** Return a buffer of capacity zeroed bytes in direct segments of
+     * 2^shift bytes. Precondition: 3 <= shift <= 30. */
+    static SegmentedBuffer allocateDirect(long capacity, int shift) {
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(capacity, shift)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(segmentLength(capacity,
+                        shift, i)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new SegmentedBuffer(segments, capacity, shift);
+    }
+
+    /** Return a buffer over the first capacity bytes of the file open in
+     * channel, in mappings of 2^shift bytes with the given mode. The
+     * mappings stay valid after channel is closed.
+     * Precondition: 3 <= shift <= 30. */
+    static SegmentedBuffer map(FileChannel channel, FileChannel.MapMode mode,
+            long capacity, int shift) throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(capacity, shift)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = channel.map(mode, (long) i << shift,
+                    segmentLength(capacity, shift, i))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new SegmentedBuffer(segments, capacity, shift);
+    }
+
+    /* Return the number of segments of 2^shift bytes that hold capacity
+     * bytes. Throws IllegalArgumentException if there would be too many. */
+    private static int segmentCount(long capacity, int shift) {
+        if (capacity < 0 || shift < 3 || shift > DEFAULT_SHIFT) {
+            throw new IllegalArgumentException("Bad buffer size: " + capacity
+                    + " bytes in segments of 2^" + shift);
+        }
+        return Math.toIntExact((capacity + (1L << shift) - 1) >>> shift);
+    }
+
+    /* Return the number of bytes in segment i of a buffer of capacity
+     * bytes. */
+    private static int segmentLength(long capacity, int shift, int i) {
+        return (int) Math.min(1L << shift, capacity - ((long) i << shift));
+    }
+
+    /** Return the number of bytes in this buffer. */
+    long capacity() {
+        return capacity;
+    }
+
+    /* Return the segment holding byte at. */
+    private ByteBuffer segment(long at) {
+        return segments[(int) (at >>> shift)];
+    }
+
+    /* Return the position of byte at within its segment. */
+    private int offset(long at) {
+        return (int) (at & mask);
+    }
+
+    /** Return the byte at position at. */
+    byte get(long at) {
+        return segment(at).get(offset(at));
+    }
+
+    /** Return the int at position at, a multiple of 4. */
+    int getInt(long at) {
+        if (single != null) {
+            return single.getInt((int) at);
+        }
+        return segment(at).getInt(offset(at));
+    }
+
+    /** Store v at position at, a multiple of 4. */
+    void putInt(long at, int v) {
+        segment(at).putInt(offset(at), v);
+    }
+
+    /** Return the long at position at, a multiple of 8. */
+    long getLong(long at) {
+        return segment(at).getLong(offset(at));
+    }
+
+    /** Store v at position at, a multiple of 8. */
+    void putLong(long at, long v) {
+        segment(at).putLong(offset(at), v);
+    }
+
+    /** Return the double at position at, a multiple of 8. */
+    double getDouble(long at) {
+        if (single != null) {
+            return single.getDouble((int) at);
+        }
+        return segment(at).getDouble(offset(at));
+    }
+
+    /** Store v at position at, a multiple of 8. */
+    void putDouble(long at, double v) {
+        segment(at).putDouble(offset(at), v);
+    }
+
+    /* Return a view of the bytes of the segment holding at from at to the
+     * end of that segment or to end, whichever is first. */
+    private ByteBuffer window(long at, long end) {
+        ByteBuffer d = segment(at).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long segmentEnd = (at | mask) + 1;
+        d.position(offset(at))
+            .limit(offset(at) + (int) (Math.min(end, segmentEnd) - at));
+        return d.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Copy dst.length bytes from position at into dst. */
+    void get(long at, byte[] dst) {
+        for (int i = 0; i < dst.length; ) {
+            ByteBuffer w = window(at + i, at + dst.length);
+            int count = w.remaining();
+            w.get(dst, i, count);
+            i += count;
+        }
+    }
+
+    /** Copy the bytes of src to position at. */
+    void put(long at, byte[] src) {
+        for (int i = 0; i < src.length; ) {
+            ByteBuffer w = window(at + i, at + src.length);
+            int count = w.remaining();
+            w.put(src, i, count);
+            i += count;
+        }
+    }
+
+    /** Copy dst.length ints from position at, a multiple of 4, into dst. */
+    void getInts(long at, int[] dst) {
+        long end = at + 4L * dst.length;
+        for (int i = 0; i < dst.length; ) {
+            ByteBuffer w = window(at + 4L * i, end);
+            int count = w.remaining() / 4;
+            w.asIntBuffer().get(dst, i, count);
+            i += count;
+        }
+    }
+
+    /** Copy the ints of src to position at, a multiple of 4. */
+    void putInts(long at, int[] src) {
+        long end = at + 4L * src.length;
+        for (int i = 0; i < src.length; ) {
+            ByteBuffer w = window(at + 4L * i, end);
+            int count = w.remaining() / 4;
+            w.asIntBuffer().put(src, i, count);
+            i += count;
+        }
+    }
+
+    /** Copy dst.length doubles from position at, a multiple of 8, into
+     * dst. */
+    void getDoubles(long at, double[] dst) {
+        long end = at + 8L * dst.length;
+        for (int i = 0; i < dst.length; ) {
+            ByteBuffer w = window(at + 8L * i, end);
+            int count = w.remaining() / 8;
+            w.asDoubleBuffer().get(dst, i, count);
+            i += count;
+        }
+    }
+
+    /** Copy the doubles of src to position at, a multiple of 8. */
+    void putDoubles(long at, double[] src) {
+        long end = at + 8L * src.length;
+        for (int i = 0; i < src.length; ) {
+            ByteBuffer w = window(at + 8L * i, end);
+            int count = w.remaining() / 8;
+            w.asDoubleBuffer().put(src, i, count);
+            i += count;
+        }
+    }
+
+    /** Add the first length bytes of this buffer to crc. */
+    void update(CRC32 crc, long length) {
+        for (long at = 0; at < length; ) {
+            ByteBuffer w = window(at, length);
+            at += w.remaining();
+            crc.update(w);
+        }
+    }
+
+    /** Write any changes to mapped segments out to their file. */
+    void force() {
+        for (ByteBuffer segment : segments) {
+            if (segment instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package graph;
+
+/** The immutable shortest path tree of one origin in a CsrGraph: the length
+ * of the shortest path to every node and each node's predecessor on it,
+ * stored in two primitive arrays. Any number of threads can extract paths
+ * from the same tree. */
+public final class ShortestPathTree {
+
+    private final CsrGraph graph; // the graph the tree was computed on
+    private final int origin; // node index of the origin
+    private final double[] dist; // dist[v] is the distance to v, or infinity
+    private final int[] prev; // prev[v] is v's predecessor, or -1
+
+    /* Constructor: wrap arrays that are already computed. */
+    private ShortestPathTree(CsrGraph g, int origin, double[] dist,
+            int[] prev) {
+        this.graph = g;
+        this.origin = origin;
+        this.dist = dist;
+        this.prev = prev;
+    }
+
+    /** Return the tree of a search on g from origin to all nodes whose
+     * distances and predecessors are in ws. */
+    static ShortestPathTree of(CsrGraph g, DijkstraWorkspace ws, int origin) {
+        int n = g.size();
+        double[] dist = new double[n];
+        int[] prev = new int[n];
+        for (int v = 0; v < n; v++) {
+            dist[v] = ws.distance(v);
+            prev[v] = ws.previous(v);
+        }
+        return new ShortestPathTree(g, origin, dist, prev);
+    }
+
+    /** Return the graph this tree spans. */
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    /** Return the node index of the origin. */
+    public int origin() {
+        return origin;
+    }
+
+    /** Return the length of the shortest path from the origin to v, or
+     * Double.POSITIVE_INFINITY if v is unreachable.
+     * Precondition: 0 <= v < graph().size(). */
+    public double distance(int v) {
+        return dist[v];
+    }
+
+    /** Return the node before v on a shortest path from the origin, or -1
+     * if v is the origin or unreachable.
+     * Precondition: 0 <= v < graph().size(). */
+    public int previous(int v) {
+        return prev[v];
+    }
+
+    /** Return the shortest path from the origin to destination.
+     * Precondition: 0 <= destination < graph().size(). */
+    public PathResult path(int destination) {
+        if (dist[destination] == Double.POSITIVE_INFINITY) {
+            return new PathResult(graph, origin, destination,
+                    Double.POSITIVE_INFINITY, null, null);
+        }
+        int hops = 0;
+        for (int v = prev[destination]; v != -1; v = prev[v]) {
+            hops++;
+        }
+        int[] path = new int[hops + 1];
+        for (int v = destination; v != -1; v = prev[v]) {
+            path[hops--] = v;
+        }
+        return new PathResult(graph, origin, destination, dist[destination],
+                path, null);
+    }
+
+    /** Return the approximate number of bytes this tree occupies. */
+    public long bytes() {
+        return 64 + (long) dist.length * Double.BYTES
+            + (long) prev.length * Integer.BYTES;
+    }
+}
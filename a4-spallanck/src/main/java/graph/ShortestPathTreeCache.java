@@ -0,0 +1,210 @@
+package graph;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A bounded cache of shortest path trees keyed by origin, in front of a
+ * PathQueryService. A query for a cached origin costs one walk along the
+ * tree's predecessor array. The first query for an origin computes its whole
+ * tree; concurrent queries for the same origin wait for that one search
+ * instead of starting their own. When the trees' total size exceeds the
+ * memory budget, the least recently used (LRU) or least frequently used
+ * (LFU) trees are evicted. Hits, misses and evictions are counted.
+ * Example usage:
+ *     ShortestPathTreeCache cache = new ShortestPathTreeCache(
+ *         new PathQueryService(g.freeze()), 64 << 20,
+ *         ShortestPathTreeCache.Eviction.LFU);
+ *     PathResult r = cache.query("ATL", "YVR");
+ *  */
+public class ShortestPathTreeCache {
+
+    /** Which tree to evict when the cache is over its budget. */
+    public enum Eviction {
+        /** The tree whose origin was queried least recently. */
+        LRU,
+        /** The tree whose origin was queried least often; ties go to the
+         * one queried least recently. */
+        LFU
+    }
+
+    private final PathQueryService service; // computes missing trees
+    private final long maxBytes; // memory budget for cached trees
+    private final Eviction eviction;
+
+    // the cached and in-flight trees by origin
+    private final ConcurrentHashMap<Integer,Entry> entries =
+        new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong(); // size of done trees
+    private final AtomicLong clock = new AtomicLong(); // orders accesses
+    private final Object evictLock = new Object(); // one evictor at a time
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** Constructor: a cache of trees computed by service that holds at most
+     * about maxBytes bytes of trees, evicting by the given policy. A tree
+     * larger than the whole budget is computed but not kept. */
+    public ShortestPathTreeCache(PathQueryService service, long maxBytes,
+            Eviction eviction) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: "
+                    + maxBytes);
+        }
+        this.service = service;
+        this.maxBytes = maxBytes;
+        this.eviction = eviction;
+    }
+
+    /** Return the shortest path from the node with id origin to the node
+     * with id destination. Throws IllegalArgumentException if either node
+     * is not in the graph. */
+    public PathResult query(String origin, String destination) {
+        return query(service.indexOf(origin), service.indexOf(destination));
+    }
+
+    /** Return the shortest path from the node with index origin to the node
+     * with index destination.
+     * Precondition: 0 <= origin, destination < graph size. */
+    public PathResult query(int origin, int destination) {
+        return tree(origin).path(destination);
+    }
+
+    /** Return the shortest path tree of the node with index origin, from
+     * the cache if possible.
+     * Precondition: 0 <= origin < graph size. */
+    public ShortestPathTree tree(int origin) {
+        Entry e = entries.get(origin);
+        if (e == null) {
+            Entry created = new Entry();
+            e = entries.putIfAbsent(origin, created);
+            if (e == null) {
+                misses.increment();
+                return compute(origin, created);
+            }
+        }
+        hits.increment();
+        e.touch();
+        return e.future.join();
+    }
+
+    /* Compute the tree of origin for the new entry e, then make room for
+     * it. If the search fails, forget e so that a later query retries. */
+    private ShortestPathTree compute(int origin, Entry e) {
+        ShortestPathTree tree;
+        try {
+            tree = service.tree(origin);
+        } catch (RuntimeException | Error ex) {
+            entries.remove(origin, e);
+            e.future.completeExceptionally(ex);
+            throw ex;
+        }
+        e.bytes = tree.bytes();
+        e.touch();
+        e.future.complete(tree);
+        bytes.addAndGet(e.bytes);
+        if (bytes.get() > maxBytes) {
+            evict(origin);
+        }
+        return tree;
+    }
+
+    /* Remove finished trees other than keep's until the cache fits its
+     * budget, or remove keep's tree too if it alone is over budget. */
+    private void evict(int keep) {
+        synchronized (evictLock) {
+            while (bytes.get() > maxBytes) {
+                Integer victim = null;
+                Entry worst = null;
+                for (Map.Entry<Integer,Entry> me : entries.entrySet()) {
+                    Entry e = me.getValue();
+                    if (me.getKey() != keep && e.future.isDone()
+                            && !e.future.isCompletedExceptionally()
+                            && (worst == null || e.before(worst, eviction))) {
+                        victim = me.getKey();
+                        worst = e;
+                    }
+                }
+                if (worst == null) {
+                    victim = keep;
+                    worst = entries.get(keep);
+                    if (worst == null) {
+                        return;
+                    }
+                }
+                if (entries.remove(victim, worst)) {
+                    bytes.addAndGet(-worst.bytes);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /** Return the number of queries answered from a cached or in-flight
+     * tree. */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** Return the number of queries that had to compute a tree. */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** Return the number of trees evicted to stay within the budget. */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /** Return the number of cached and in-flight trees. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Return the approximate number of bytes the cached trees occupy. */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    /** Remove every tree. Counters are not reset. */
+    public void clear() {
+        synchronized (evictLock) {
+            for (Map.Entry<Integer,Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                if (e.future.isDone() && entries.remove(me.getKey(), e)) {
+                    bytes.addAndGet(-e.bytes);
+                }
+            }
+        }
+    }
+
+    /** A cached or in-flight tree with its access statistics. */
+    private class Entry {
+        final CompletableFuture<ShortestPathTree> future =
+            new CompletableFuture<>();
+        volatile long bytes; // size of the tree once it is done
+        volatile long lastUsed; // clock value of the latest access
+        final LongAdder uses = new LongAdder(); // number of accesses
+
+        /** Record an access. */
+        void touch() {
+            lastUsed = clock.incrementAndGet();
+            uses.increment();
+        }
+
+        /** Return true if this entry should be evicted before other. */
+        boolean before(Entry other, Eviction policy) {
+            if (policy == Eviction.LFU) {
+                long mine = uses.sum();
+                long theirs = other.uses.sum();
+                if (mine != theirs) {
+                    return mine < theirs;
+                }
+            }
+            return lastUsed < other.lastUsed;
+        }
+    }
+}
@@ -5,12 +5,19 @@ returns information regarding the shortest paths between
 specified nodes in the graph. */
 package graph;
 
-import heap.Heap;
 import java.util.Map;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 
 /** Provides an implementation of Dijkstra's single-source shortest paths
  * algorithm.
@@ -22,46 +29,343 @@ import java.io.FileNotFoundException;
  *   Node b = g.getNode("B");
  *   LinkedList<Node> abPath = sp.getShortestPath(b);
  *   double abPathLength = sp.getShortestPathLength(b);
+ * The same queries can be answered on a frozen graph without boxing:
+ *   CsrGraph csr = g.freeze();
+ *   sp.compute(csr, csr.indexOf("A"));
+ *   double abPathLength = sp.shortestPathLength(csr.indexOf("B"));
  *   */
 public class ShortestPaths {
+
+    /** The algorithms compute can use. Both give the same distances. */
+    public enum Engine {
+        /** Sequential Dijkstra's algorithm. */
+        DIJKSTRA,
+        /** Parallel delta-stepping (see DeltaStepping); suited to single
+         * large searches of the whole graph. Never stops early. */
+        DELTA_STEPPING
+    }
+
     // stores auxiliary data associated with each node for the shortest
     // paths computation:
     private HashMap<Node,PathData> paths;
 
+    // the graph of the last compute(IndexedGraph, int) call, or null if the
+    // last computation was done with compute(Node):
+    private IndexedGraph csr;
+    // holds the distances and predecessors computed on csr; kept between
+    // computations so that it can be reused:
+    private DijkstraWorkspace workspace;
+
+    // frontier and discovery order of compute(Node), kept between
+    // computations so that they can be reused:
+    private IntPriorityQueue nodeFrontier;
+    private ArrayList<Node> discovered;
+    // nodePrev[i] is the discovery index of the predecessor of the i-th
+    // discovered node, or -1; PathViews read it
+    private int[] nodePrev = new int[16];
+
+    // counts for the current compute(Node) search, kept only if
+    // Metrics.ENABLED, and the stats of the last computation:
+    private long settled;
+    private long relaxed;
+    private long decreaseKeys;
+    private int peakQueueSize;
+    private QueryStats lastStats;
+
+    // the kind of priority queue used for the frontier, and the arity used
+    // if it is a d-ary heap:
+    private QueueKind queueKind = QueueKind.DARY_HEAP;
+    private int arity = DaryHeap.DEFAULT_ARITY;
+
+    // the algorithm used by compute, and the delta-stepping engine of the
+    // last graph it was used on:
+    private Engine engine = Engine.DIJKSTRA;
+    private DeltaStepping deltaStepping;
+
+    /** Use the given algorithm for later computations. */
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    /** Use a priority queue of the given kind for the frontier of later
+     * computations. */
+    public void setQueue(QueueKind kind) {
+        setQueue(kind, DaryHeap.DEFAULT_ARITY);
+    }
+
+    /** Use a priority queue of the given kind for the frontier of later
+     * computations; if kind is DARY_HEAP, each heap slot has up to arity
+     * children. Precondition: arity >= 2. */
+    public void setQueue(QueueKind kind, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2: "
+                    + arity);
+        }
+        queueKind = kind;
+        this.arity = arity;
+        workspace = null;
+        nodeFrontier = null;
+    }
+
     /** Compute the shortest path to all nodes from origin using Dijkstra's
      * algorithm. Fill in the paths field, which associates each Node with its
      * PathData record, storing total distance from the source, and the
      * backpointer to the previous node on the shortest path.
      * Precondition: origin is a node in the Graph.*/
     public void compute(Node origin) {
+        compute(origin, null);
+    }
+
+    /** Compute the shortest path from origin to destination using Dijkstra's
+     * algorithm, stopping as soon as destination is settled. Afterwards,
+     * shortestPath(destination) and shortestPathLength(destination) are
+     * final; results for other nodes may be incomplete. If destination is
+     * null, compute the shortest paths to all nodes.
+     * Precondition: origin is a node in the Graph.*/
+    public void compute(Node origin, Node destination) {
+        csr = null;
         paths = new HashMap<Node,PathData>();
-        Heap<Node, Double> frontier = new Heap<>();
-        frontier.add(origin, 0.0);
-        paths.put(origin, new PathData(0.0, null));
-        while (frontier.size() != 0) {
-            Node f = frontier.poll();
-            for (Node w : f.getNeighbors().keySet()) {
-                double fD = paths.get(f).distance;
-                double weight = f.getNeighbors().get(w);
-                if (!paths.containsKey(w)) { //haven't seen before
-                    paths.put(w, new PathData((fD + weight), f));
-                    frontier.add(w, (fD + weight));
-                } else if ((fD +  weight) < paths.get(w).distance) {
-                    PathData temp = paths.get(w);
-                    temp.distance = (fD + weight);
-                    temp.previous = f;
-                    paths.put(w, temp);
-                    frontier.changePriority(w, (fD + weight));
+        lastStats = null;
+        if (engine == Engine.DELTA_STEPPING) {
+            computeDeltaStepping(origin);
+        } else if (!Metrics.ENABLED) {
+            search(origin, destination);
+        } else {
+            long startTime = System.nanoTime();
+            settled = 0;
+            relaxed = 0;
+            decreaseKeys = 0;
+            peakQueueSize = 1;
+            search(origin, destination);
+            lastStats = new QueryStats(settled, relaxed, decreaseKeys,
+                    peakQueueSize, System.nanoTime() - startTime);
+            MetricsRegistry.global().record(lastStats);
+        }
+    }
+
+    /* Run Dijkstra's algorithm as described for compute(Node, Node). */
+    private void search(Node origin, Node destination) {
+        // nodes are numbered in the order they are discovered so that the
+        // frontier can be keyed by int:
+        if (nodeFrontier == null) {
+            nodeFrontier = queueKind.create(16, arity);
+            discovered = new ArrayList<>();
+        }
+        IntPriorityQueue frontier = nodeFrontier;
+        frontier.clear();
+        discovered.clear();
+        discovered.add(origin);
+        paths.put(origin, new PathData(0.0, null, 0));
+        nodePrev[0] = -1;
+        frontier.offer(0, 0.0);
+        while (!frontier.isEmpty()) {
+            double fD = frontier.minPriority();
+            int fIndex = frontier.poll();
+            Node f = discovered.get(fIndex);
+            if (fD > paths.get(f).distance) {
+                continue; // stale duplicate entry
+            }
+            if (Metrics.ENABLED) {
+                settled++;
+            }
+            if (f.equals(destination)) {
+                return;
+            }
+            if (Metrics.ENABLED) {
+                relaxed += f.getNeighbors().size();
+            }
+            for (Map.Entry<Node,Double> edge : f.getNeighbors().entrySet()) {
+                Node w = edge.getKey();
+                double d = fD + edge.getValue();
+                PathData wData = paths.get(w);
+                if (wData == null) { //haven't seen before
+                    wData = new PathData(d, f, discovered.size());
+                    discovered.add(w);
+                    paths.put(w, wData);
+                    frontier.ensureCapacity(discovered.size());
+                    if (wData.index == nodePrev.length) {
+                        nodePrev = Arrays.copyOf(nodePrev, 2 * wData.index);
+                    }
+                    nodePrev[wData.index] = fIndex;
+                    frontier.offer(wData.index, d);
+                    if (Metrics.ENABLED) {
+                        peakQueueSize = Math.max(peakQueueSize,
+                                frontier.size());
+                    }
+                } else if (d < wData.distance) {
+                    wData.distance = d;
+                    wData.previous = f;
+                    nodePrev[wData.index] = fIndex;
+                    frontier.offer(wData.index, d);
+                    if (Metrics.ENABLED) {
+                        decreaseKeys++;
+                        peakQueueSize = Math.max(peakQueueSize,
+                                frontier.size());
+                    }
                 }
             }
         }
     }
 
+    /** Compute the shortest path to all nodes of g from the node with index
+     * origin using Dijkstra's algorithm directly on g's edges, which may be
+     * a CsrGraph or an OffHeapGraph. Fill in
+     * the workspace's dist and prev arrays, which store the total distance
+     * from the source and the index of the previous node on the shortest
+     * path.
+     * The arrays are reused by later calls, so repeated calls on graphs of
+     * the same size allocate nothing.
+     * Precondition: 0 <= origin < g.size(). */
+    public void compute(IndexedGraph g, int origin) {
+        compute(g, origin, -1);
+    }
+
+    /** Compute the shortest path on g from the node with index origin to the
+     * node with index destination, stopping as soon as destination is
+     * settled. Results for other nodes may be incomplete. If destination is
+     * -1, compute the shortest paths to all nodes. The DELTA_STEPPING
+     * engine is only used if g is a CsrGraph; other graphs use Dijkstra.
+     * Precondition: 0 <= origin < g.size() and
+     * -1 <= destination < g.size(). */
+    public void compute(IndexedGraph g, int origin, int destination) {
+        paths = null;
+        csr = g;
+        if (workspace == null || workspace.capacity() < g.size()) {
+            workspace = new DijkstraWorkspace(g.size(), queueKind, arity);
+        }
+        if (engine == Engine.DELTA_STEPPING && g instanceof CsrGraph) {
+            runDeltaStepping((CsrGraph) g, origin);
+            workspace.load(deltaStepping, origin, g.size());
+            lastStats = null;
+        } else {
+            workspace.run(g, origin, destination);
+            lastStats = workspace.stats();
+        }
+    }
+
+    /** Return what the last computation did, or null if Metrics.ENABLED is
+     * false or the engine was DELTA_STEPPING. */
+    public QueryStats lastStats() {
+        return lastStats;
+    }
+
+    /* Fill in the paths field with delta-stepping on a CSR copy of the
+     * part of the graph reachable from origin. */
+    private void computeDeltaStepping(Node origin) {
+        CsrGraph g = CsrGraph.reachableFrom(origin);
+        runDeltaStepping(g, 0);
+        if (discovered == null) {
+            discovered = new ArrayList<>();
+        }
+        discovered.clear();
+        if (nodePrev.length < g.size()) {
+            nodePrev = new int[g.size()];
+        }
+        for (int v = 0; v < g.size(); v++) {
+            int p = deltaStepping.previous(v);
+            paths.put(g.node(v), new PathData(deltaStepping.distance(v),
+                        p < 0 ? null : g.node(p), v));
+            discovered.add(g.node(v));
+            nodePrev[v] = p;
+        }
+    }
+
+    /* Run delta-stepping on g from origin, reusing the engine if the last
+     * run was on the same graph. */
+    private void runDeltaStepping(CsrGraph g, int origin) {
+        if (deltaStepping == null || deltaStepping.graph() != g) {
+            deltaStepping = new DeltaStepping(g);
+        }
+        deltaStepping.run(origin);
+    }
+
+    /** Returns the length of the shortest path from the origin to the node
+     * with index destination. If no path exists, return
+     * Double.POSITIVE_INFINITY.
+     * Precondition: compute(g, origin) has been called and
+     * 0 <= destination < g.size(). */
+    public double shortestPathLength(int destination) {
+        return workspace.distance(destination);
+    }
+
+    /** Returns the node indices along the shortest path from the origin to
+     * the node with index destination, including both ends. If no path
+     * exists, return null.
+     * Precondition: compute(g, origin) has been called and
+     * 0 <= destination < g.size(). */
+    public int[] shortestPathIndices(int destination) {
+        PathView path = path(destination);
+        return path == null ? null : path.toIndexArray();
+    }
+
+    /** Returns a view of the shortest path from the origin to the node with
+     * index destination, read from the computed predecessors without
+     * copying, or null if no path exists. The view is valid until the next
+     * compute call.
+     * Precondition: compute(g, origin) has been called and
+     * 0 <= destination < g.size(). */
+    public PathView path(int destination) {
+        if (!workspace.reached(destination)) {
+            return null;
+        }
+        return new PathView(csrTree, destination,
+                workspace.distance(destination));
+    }
+
+    /** Returns a view of the shortest path from the origin to destination,
+     * read from the computed predecessors without copying, or null if no
+     * path exists. The view is valid until the next compute call.
+     * Precondition: destination is a node in the graph, and compute(origin)
+     * has been called. */
+    public PathView path(Node destination) {
+        if (csr != null) {
+            int d = csr.indexOf(destination);
+            return d < 0 ? null : path(d);
+        }
+        PathData data = paths.get(destination);
+        if (data == null) {
+            return null;
+        }
+        return new PathView(nodeTree, data.index, data.distance);
+    }
+
+    // the predecessors of the last compute(Node) call
+    private final PathView.Predecessors nodeTree =
+        new PathView.Predecessors() {
+            @Override
+            public int previous(int v) {
+                return nodePrev[v];
+            }
+
+            @Override
+            public Node node(int v) {
+                return discovered.get(v);
+            }
+        };
+
+    // the predecessors of the last compute(IndexedGraph, int) call
+    private final PathView.Predecessors csrTree =
+        new PathView.Predecessors() {
+            @Override
+            public int previous(int v) {
+                return workspace.previous(v);
+            }
+
+            @Override
+            public Node node(int v) {
+                return csr.node(v);
+            }
+        };
+
     /** Returns the length  the shortest path from the origin to destination.
      * If no path exists, return Double.POSITIVE_INFINITY.
      * Precondition: destination is a node in the graph, and compute(origin)
      * has been called. */
     public double shortestPathLength(Node destination) {
+        if (csr != null) {
+            int d = csr.indexOf(destination);
+            return d < 0 ? Double.POSITIVE_INFINITY : workspace.distance(d);
+        }
         PathData temp = paths.get(destination);
         if (temp != null) {
             return temp.distance;
@@ -76,20 +380,8 @@ public class ShortestPaths {
      * Precondition: destination is a node in the graph, and compute(origin)
      * has been called. */
     public LinkedList<Node> shortestPath(Node destination) {
-        PathData temp = paths.get(destination);
-        if (temp != null) {
-            LinkedList<Node> path = new LinkedList<>();
-            path.addFirst(destination);
-            Node tmpN = destination;
-            while (paths.get(tmpN) != null) {
-                if (paths.get(tmpN).previous != null) { //don't add dest twice if it = origin
-                    path.addFirst(paths.get(tmpN).previous);
-                }
-                tmpN = paths.get(tmpN).previous;
-            }
-            return path;
-        }
-        return null;
+        PathView path = path(destination);
+        return path == null ? null : path.toLinkedList();
     }
 
     /** Inner class representing data used by Dijkstra's algorithm in the
@@ -97,11 +389,13 @@ public class ShortestPaths {
     class PathData {
         double distance; // distance of the shortest path from source
         Node previous; // previous node in the path from the source
+        int index; // the node's key in the frontier
 
-        /** constructor: initialize distance and previous node */
-        public PathData(double dist, Node prev) {
+        /** constructor: initialize distance, previous node and index */
+        public PathData(double dist, Node prev, int index) {
             distance = dist;
             previous = prev;
+            this.index = index;
         }
     }
 
@@ -110,17 +404,30 @@ public class ShortestPaths {
      * flight data. See GraphParser, BasicParser, and DB1BParser for more.*/
     protected static Graph parseGraph(String fileType, String fileName) throws
         FileNotFoundException {
+        return parseGraph(fileType, fileName, EdgeAggregation.LAST);
+    }
+
+    /* As above, combining rows for an edge that already exists according
+     * to aggregation. */
+    protected static Graph parseGraph(String fileType, String fileName,
+            EdgeAggregation aggregation) throws FileNotFoundException {
         // create an appropriate parser for the given file type
         GraphParser parser;
         if (fileType.equals("basic")) {
             parser = new BasicParser();
         } else if (fileType.equals("db1b")) {
             parser = new DB1BParser();
+        } else if (fileType.equals("db1b-mmap")) {
+            parser = new MappedDB1BParser();
+        } else if (fileType.equals("snapshot")) {
+            parser = new SnapshotParser();
         } else {
             throw new IllegalArgumentException(
                     "Unsupported file type: " + fileType);
         }
 
+        parser.setAggregation(aggregation);
+
         // open the given file
         parser.open(new File(fileName));
 
@@ -128,15 +435,49 @@ public class ShortestPaths {
         return parser.parse();
     }
 
+    /* Return the graph with the given type and filename, frozen. A snapshot
+     * is loaded straight into a CsrGraph by GraphSnapshot.load; going
+     * through parseGraph would copy it into a Graph only to freeze it. */
+    static CsrGraph parseFrozen(String fileType, String fileName) throws
+        FileNotFoundException {
+        CsrGraph csr;
+        if (fileType.equals("snapshot")) {
+            long startTime = System.nanoTime();
+            try {
+                csr = GraphSnapshot.load(new File(fileName));
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (Metrics.ENABLED) {
+                MetricsRegistry.global().recordPhase("GraphSnapshot", "load",
+                        System.nanoTime() - startTime);
+            }
+        } else {
+            csr = parseGraph(fileType, fileName).freeze();
+        }
+        return csr;
+    }
+
     /** Takes command line arguments to access and parse a graph 
      * and comute the shortests paths associated with the given user
-     * input
+     * input. With --batch in place of the origin, reads many queries from
+     * queryFile, or from standard input if it is absent or "-", and writes
+     * their results as TSV, or in binary with --binary; see BatchQueries.
+     * Usage: ShortestPaths fileType fileName origin [destination]
+     *        ShortestPaths fileType fileName --batch [queryFile] [--binary]
      * Precondition: User input is well formed and valid */
     public static void main(String[] args) {
         // read command line args
         String fileType = args[0];
         String fileName = args[1];
         String origCode = args[2];
+        if (origCode.equals("--batch")) {
+            batch(fileType, fileName,
+                    Arrays.copyOfRange(args, 3, args.length));
+            return;
+        }
         
         String destCode = null;
         if (args.length == 4) {
@@ -144,48 +485,86 @@ public class ShortestPaths {
         }
         
         // parse a graph with the given type and filename
-        Graph graph;
+        CsrGraph csr;
         try {
-            graph = parseGraph(fileType, fileName);
+            csr = parseFrozen(fileType, fileName);
         } catch (FileNotFoundException e) {
             System.out.println("Could not open file " + fileName);
             return;
         }
-        graph.report();
-        ShortestPaths sp = new ShortestPaths();
+        csr.report();
         /* error checking to make sure user does not specify
         a node not contained in the graph */
-        if (!graph.getNodes().containsKey(origCode)) {
+        int origin = csr.indexOf(origCode);
+        if (origin < 0) {
             System.out.println("The origin node specified is not contained within graph");
             return;
         }
-        Node origin = graph.getNode(origCode);
-        sp.compute(origin);
         /* if a destination is specified, prints the path
         between origin and destination as well as the length of
         that path, or tells the user there is no path between 
         the origin and destination */
         if (args.length == 4) {
-            Node dest = graph.getNode(destCode);
-            LinkedList<Node> pathLetter = sp.shortestPath(dest);
-            Double length = sp.shortestPathLength(dest);
-            if (pathLetter == null) {
+            int dest = csr.indexOf(destCode);
+            PathResult result = dest < 0 ? null
+                : new PathQueryService(csr).query(origin, dest);
+            if (result == null || !result.isReachable()) {
                 System.out.println("No path exists between these nodes.");
                 return;
             }
-            for (Node a : pathLetter) {
-                System.out.print(a.getId() + " ");
-            }
-            System.out.println(length);
+            System.out.println(result);
         } else {
             /* If no destination is specified, prints all nodes reachable from
             the origin and the distance between them */
+            ShortestPaths sp = new ShortestPaths();
+            // a full report settles the whole graph; spread it over cores
+            sp.setEngine(Engine.DELTA_STEPPING);
+            sp.compute(csr, origin);
             System.out.println("Shortest paths from " + origCode + ":");
-            for (Node a : sp.paths.keySet()) {
-                double lengthP = sp.paths.get(a).distance;
-                String code = a.getId();
-                System.out.println(code + ": " + lengthP);
+            for (int v = 0; v < csr.size(); v++) {
+                double lengthP = sp.shortestPathLength(v);
+                if (lengthP < Double.POSITIVE_INFINITY) {
+                    System.out.println(csr.id(v) + ": " + lengthP);
+                }
+            }
+        }
+        if (Metrics.ENABLED) {
+            MetricsRegistry.global().report(System.err);
+        }
+    }
+
+    /* Parse a graph with the given type and filename once, then answer the
+     * queries named by the remaining command line arguments in options. */
+    private static void batch(String fileType, String fileName,
+            String[] options) {
+        String queryFile = "-";
+        BatchQueries.Format format = BatchQueries.Format.TSV;
+        for (String option : options) {
+            if (option.equals("--binary")) {
+                format = BatchQueries.Format.BINARY;
+            } else {
+                queryFile = option;
             }
         }
+        CsrGraph csr;
+        try {
+            csr = parseFrozen(fileType, fileName);
+        } catch (FileNotFoundException e) {
+            System.err.println("Could not open file " + fileName);
+            return;
+        }
+        BatchQueries batch = new BatchQueries(csr, format);
+        try (Reader in = queryFile.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new InputStreamReader(new FileInputStream(queryFile),
+                    StandardCharsets.UTF_8)) {
+            long count = batch.run(in, System.out);
+            System.err.println("Answered " + count + " queries.");
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+        }
+        if (Metrics.ENABLED) {
+            MetricsRegistry.global().report(System.err);
+        }
     }
 }
@@ -0,0 +1,42 @@
+package graph;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/** Parser for graph snapshots written by GraphSnapshot. No text is parsed:
+ * the snapshot's arrays are loaded from a memory-mapped file and turned
+ * into a Graph. Callers that only need a CsrGraph can skip the Graph and
+ * call GraphSnapshot.load directly. */
+public class SnapshotParser extends GraphParser {
+
+    private CsrGraph csr; // the loaded snapshot
+
+    /** Open the given snapshot file and load it. */
+    @Override
+    public void open(File f) throws FileNotFoundException {
+        if (!f.isFile()) {
+            throw new FileNotFoundException(f.getPath());
+        }
+        long startTime = System.nanoTime();
+        try {
+            csr = GraphSnapshot.load(f);
+            recordPhase("load", startTime);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Return a Graph with the nodes and edges of the opened snapshot.
+     * Precondition: open() has been successfully called. */
+    @Override
+    public Graph parse() {
+        long startTime = System.nanoTime();
+        Graph g = csr.toGraph(aggregation);
+        recordPhase("build", startTime);
+        return g;
+    }
+}
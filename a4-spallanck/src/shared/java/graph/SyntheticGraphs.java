@@ -0,0 +1,180 @@
+package graph;
+
+import java.util.Random;
+
+/** Deterministic generators of synthetic graphs for benchmarks and tests.
+ * Every node is placed at a point in a 3000 x 3000 square, roughly the size
+ * of North America in miles, and each edge weighs the distance between its
+ * ends, rounded up. Nodes are named "N0", "N1", ... The same arguments
+ * always give the same graph.
+ * Example usage:
+ *     Graph g = SyntheticGraphs.Shape.HUB_AND_SPOKE.generate(10000, 4, 42);
+ *  */
+public class SyntheticGraphs {
+
+    // side of the square nodes are placed in
+    private static final double SIDE = 3000.0;
+
+    /** The shapes of graph that can be generated. */
+    public enum Shape {
+        /** Random sparse graph: every node has degree edges to nodes chosen
+         * uniformly at random. */
+        RANDOM {
+            @Override
+            public Graph generate(int n, int degree, long seed) {
+                return random(n, degree, seed);
+            }
+        },
+        /** Road-like grid: nodes on a square lattice, each joined both ways
+         * to its four neighbors. degree is ignored. */
+        GRID {
+            @Override
+            public Graph generate(int n, int degree, long seed) {
+                int side = Math.max(1, (int) Math.round(Math.sqrt(n)));
+                return grid(side, side, seed);
+            }
+        },
+        /** Scale-free airline-like network: each new node is joined both
+         * ways to degree existing nodes chosen in proportion to their
+         * degree, so a few hubs collect most routes. */
+        HUB_AND_SPOKE {
+            @Override
+            public Graph generate(int n, int degree, long seed) {
+                return hubAndSpoke(n, degree, seed);
+            }
+        };
+
+        /** Return a graph of this shape with about n nodes and about
+         * degree edges per node, generated from seed. */
+        public abstract Graph generate(int n, int degree, long seed);
+    }
+
+    /* Not instantiable. */
+    private SyntheticGraphs() {
+    }
+
+    /** Return a graph with n nodes in which each node has degree edges to
+     * distinct nodes chosen uniformly at random, generated from seed.
+     * Precondition: 0 <= degree < n. */
+    public static Graph random(int n, int degree, long seed) {
+        Random random = new Random(seed);
+        Graph g = new Graph();
+        Node[] nodes = createNodes(g, n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        place(random, x, y);
+        for (int u = 0; u < n; u++) {
+            while (nodes[u].getNeighbors().size() < degree) {
+                int v = random.nextInt(n);
+                if (v != u) {
+                    g.addEdge(nodes[u], nodes[v], distance(x, y, u, v));
+                }
+            }
+        }
+        return g;
+    }
+
+    /** Return a rows x cols grid in which each node has edges both ways to
+     * its horizontal and vertical neighbors. Nodes are jittered slightly
+     * around their lattice points, with the jitter generated from seed. */
+    public static Graph grid(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        int n = rows * cols;
+        Graph g = new Graph();
+        Node[] nodes = createNodes(g, n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double step = SIDE / Math.max(rows, cols);
+        for (int i = 0; i < n; i++) {
+            x[i] = (i % cols + 0.25 * random.nextDouble()) * step;
+            y[i] = (i / cols + 0.25 * random.nextDouble()) * step;
+        }
+        for (int i = 0; i < n; i++) {
+            if (i % cols + 1 < cols) {
+                addBothWays(g, nodes, x, y, i, i + 1);
+            }
+            if (i + cols < n) {
+                addBothWays(g, nodes, x, y, i, i + cols);
+            }
+        }
+        return g;
+    }
+
+    /** Return a scale-free graph with n nodes grown by preferential
+     * attachment (Barabasi and Albert): the first degree + 1 nodes are all
+     * joined to each other, and each later node is joined both ways to
+     * degree distinct earlier nodes, each chosen with probability
+     * proportional to its degree. Precondition: 1 <= degree < n. */
+    public static Graph hubAndSpoke(int n, int degree, long seed) {
+        Random random = new Random(seed);
+        Graph g = new Graph();
+        Node[] nodes = createNodes(g, n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        place(random, x, y);
+        // every edge end is listed once, so a uniform pick from the list
+        // picks a node with probability proportional to its degree
+        int[] ends = new int[2 * (degree * (degree + 1) / 2
+                + (n - degree - 1) * degree)];
+        int count = 0;
+        int core = Math.min(n, degree + 1);
+        for (int u = 0; u < core; u++) {
+            for (int v = u + 1; v < core; v++) {
+                addBothWays(g, nodes, x, y, u, v);
+                ends[count++] = u;
+                ends[count++] = v;
+            }
+        }
+        int[] chosen = new int[degree];
+        for (int u = core; u < n; u++) {
+            int k = 0;
+            while (k < degree) {
+                int v = ends[random.nextInt(count)];
+                boolean fresh = true;
+                for (int j = 0; j < k; j++) {
+                    fresh &= chosen[j] != v;
+                }
+                if (fresh) {
+                    chosen[k++] = v;
+                }
+            }
+            for (int j = 0; j < degree; j++) {
+                addBothWays(g, nodes, x, y, u, chosen[j]);
+                ends[count++] = u;
+                ends[count++] = chosen[j];
+            }
+        }
+        return g;
+    }
+
+    /* Create nodes N0 .. N(n-1) in g and return them. */
+    private static Node[] createNodes(Graph g, int n) {
+        Node[] nodes = new Node[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = g.getNode("N" + i);
+        }
+        return nodes;
+    }
+
+    /* Place every node uniformly at random in the square. */
+    private static void place(Random random, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] = SIDE * random.nextDouble();
+            y[i] = SIDE * random.nextDouble();
+        }
+    }
+
+    /* Add edges u -> v and v -> u weighing the distance between them. */
+    private static void addBothWays(Graph g, Node[] nodes, double[] x,
+            double[] y, int u, int v) {
+        double d = distance(x, y, u, v);
+        g.addEdge(nodes[u], nodes[v], d);
+        g.addEdge(nodes[v], nodes[u], d);
+    }
+
+    /* Return the distance between nodes u and v, rounded up to a whole
+     * number of at least 1. */
+    private static double distance(double[] x, double[] y, int u, int v) {
+        return Math.max(1.0, Math.ceil(Math.hypot(x[u] - x[v], y[u] - y[v])));
+    }
+}
@@ -0,0 +1,106 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/* Tests for the goal-directed point-to-point searches, which must agree
+with ShortestPaths on every query. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class AStarTest {
+
+    /* Checks that a search agrees with Dijkstra between all pairs of
+    nodes of g. */
+    private void checkAllPairs(CsrGraph g, AStar astar) {
+        TestGraphs.checkAllPairs(g, g, 1, astar::query, astar::path);
+    }
+
+    /** Tests that the great-circle heuristic is a lower bound
+    * on every edge of FakeCanada.txt */
+    @Test
+    public void test00GreatCircleAdmissible() throws FileNotFoundException {
+        CsrGraph g = TestGraphs.parse("FakeCanada.txt");
+        GreatCircleHeuristic h = new GreatCircleHeuristic(g,
+                new File(TestGraphs.getResource("FakeCanadaCoords.txt")));
+        for (int u = 0; u < g.size(); u++) {
+            assertTrue(h.hasCoordinates(u));
+            for (int e = g.firstEdge(u); e < g.lastEdge(u); e++) {
+                double gc = h.estimate(u, g.target(e));
+                assertTrue(gc > 0 && gc <= g.weight(e));
+            }
+        }
+    }
+
+    /** Tests A* with the great-circle heuristic on FakeCanada.txt */
+    @Test
+    public void test10AStarFakeCanada() throws FileNotFoundException {
+        CsrGraph g = TestGraphs.parse("FakeCanada.txt");
+        GreatCircleHeuristic h = new GreatCircleHeuristic(g,
+                new File(TestGraphs.getResource("FakeCanadaCoords.txt")));
+        checkAllPairs(g, new AStar(g, h));
+    }
+
+    /** Tests A* with no coordinates, where it must behave
+    * like Dijkstra */
+    @Test
+    public void test20AStarZeroHeuristic() {
+        CsrGraph g = TestGraphs.parse("Simple2.txt");
+        Heuristic zero = new Heuristic() {
+            public double estimate(int v, int target) {
+                return 0;
+            }
+        };
+        checkAllPairs(g, new AStar(g, zero));
+    }
+
+    /** Tests A* with landmarks chosen by both strategies on
+    * Simple2.txt, and that saved landmark tables load back */
+    @Test
+    public void test30Landmarks() throws IOException {
+        CsrGraph g = TestGraphs.parse("Simple2.txt");
+        for (Landmarks.Selection selection : Landmarks.Selection.values()) {
+            Landmarks alt = Landmarks.build(g, 3, selection);
+            assertEquals(3, alt.size());
+            checkAllPairs(g, new AStar(g, alt));
+
+            File f = File.createTempFile("landmarks", ".alt");
+            f.deleteOnExit();
+            alt.save(f);
+            Landmarks loaded = Landmarks.load(f, g);
+            for (int v = 0; v < g.size(); v++) {
+                for (int t = 0; t < g.size(); t++) {
+                    assertEquals(alt.estimate(v, t), loaded.estimate(v, t), 0);
+                }
+            }
+        }
+    }
+
+    /** Tests that landmark files with a bad number of landmarks are
+    rejected before any table is allocated */
+    @Test
+    public void test40LandmarkFileChecks() throws IOException {
+        CsrGraph g = TestGraphs.parse("Simple2.txt");
+        File f = File.createTempFile("landmarks", ".alt");
+        f.deleteOnExit();
+        Landmarks.build(g, 2, Landmarks.Selection.FARTHEST).save(f);
+        for (int k : new int[] {0, -1, g.size() + 1, Integer.MAX_VALUE}) {
+            try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+                raf.seek(8); // after the magic number and node count
+                raf.writeInt(k);
+            }
+            try {
+                Landmarks.load(f, g);
+                fail("Loaded a landmark file with " + k + " landmarks");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("landmarks"));
+            }
+        }
+    }
+}
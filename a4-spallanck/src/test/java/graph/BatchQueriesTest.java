@@ -0,0 +1,112 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/* Tests for batched queries, whose results must agree with ShortestPaths
+in both output formats. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BatchQueriesTest {
+
+    /* Returns queries for every pair of nodes of g, in an order that
+    mixes origins, followed by an all-destinations query for node 0 and
+    some lines to skip. */
+    private String allPairs(CsrGraph g) {
+        StringBuilder sb = new StringBuilder("# every pair\n");
+        for (int t = 0; t < g.size(); t++) {
+            for (int s = 0; s < g.size(); s++) {
+                sb.append(g.id(s)).append(' ').append(g.id(t)).append('\n');
+            }
+        }
+        sb.append('\n').append(g.id(0)).append('\n');
+        sb.append("NOWHERE ").append(g.id(0)).append('\n');
+        return sb.toString();
+    }
+
+    /** Tests TSV results against ShortestPaths on Simple2.txt */
+    @Test
+    public void test00Tsv() throws IOException {
+        CsrGraph g = TestGraphs.parse("Simple2.txt");
+        BatchQueries batch = new BatchQueries(g, BatchQueries.Format.TSV);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = batch.run(new StringReader(allPairs(g)), out);
+        assertEquals(g.size() * g.size() + 1, count);
+
+        ShortestPaths sp = new ShortestPaths();
+        HashMap<String,Integer> allFromFirst = new HashMap<>();
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8)
+            .split("\n");
+        for (String line : lines) {
+            String[] fields = line.split("\t", -1);
+            assertEquals(4, fields.length);
+            int s = g.indexOf(fields[0]);
+            int t = g.indexOf(fields[1]);
+            sp.compute(g, s);
+            assertEquals(sp.shortestPathLength(t),
+                    Double.parseDouble(fields[2]), 0);
+            int[] path = sp.shortestPathIndices(t);
+            StringBuilder ids = new StringBuilder();
+            for (int i = 0; path != null && i < path.length; i++) {
+                ids.append(i > 0 ? " " : "").append(g.id(path[i]));
+            }
+            assertEquals(ids.toString(), fields[3]);
+            if (s == 0) {
+                allFromFirst.merge(fields[1], 1, Integer::sum);
+            }
+        }
+        // node 0 answers one query per node and one per reachable node
+        sp.compute(g, 0);
+        for (int t = 0; t < g.size(); t++) {
+            boolean reachable = sp.shortestPathLength(t)
+                < Double.POSITIVE_INFINITY;
+            assertEquals(reachable ? 2 : 1, (int) allFromFirst.get(g.id(t)));
+        }
+    }
+
+    /** Tests that binary results decode to the same answers */
+    @Test
+    public void test10Binary() throws IOException {
+        CsrGraph g = TestGraphs.parse("FakeCanada.txt");
+        BatchQueries batch = new BatchQueries(g, BatchQueries.Format.BINARY);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = batch.run(new StringReader(allPairs(g)), out);
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(BatchQueries.MAGIC, in.readInt());
+        assertEquals(g.size(), in.readInt());
+        for (int v = 0; v < g.size(); v++) {
+            assertEquals(g.id(v), in.readUTF());
+        }
+        ShortestPaths sp = new ShortestPaths();
+        int records = 0;
+        while (in.available() > 0) {
+            int s = in.readInt();
+            int t = in.readInt();
+            double distance = in.readDouble();
+            int[] path = new int[in.readInt()];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = in.readInt();
+            }
+            sp.compute(g, s);
+            assertEquals(sp.shortestPathLength(t), distance, 0);
+            if (path.length == 0) {
+                assertNull(sp.shortestPathIndices(t));
+            } else {
+                assertArrayEquals(sp.shortestPathIndices(t), path);
+            }
+            records++;
+        }
+        assertTrue(records >= count);
+    }
+}
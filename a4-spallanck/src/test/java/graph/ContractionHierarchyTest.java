@@ -0,0 +1,101 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+import java.util.LinkedList;
+
+/* Tests that Contraction Hierarchy queries return the same paths and
+lengths as ShortestPaths. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ContractionHierarchyTest {
+
+    /* Checks a hierarchy for the graph in the given file against Dijkstra
+    between all pairs of nodes. */
+    private void checkAllPairs(String fileName) {
+        Graph g = TestGraphs.parseGraph("basic", fileName);
+        ContractionHierarchy ch = ContractionHierarchy.build(g);
+        ShortestPaths sp = new ShortestPaths();
+        for (Node origin : g.getNodes().values()) {
+            sp.compute(origin);
+            for (Node dest : g.getNodes().values()) {
+                assertEquals(sp.shortestPathLength(dest),
+                        ch.shortestPathLength(origin, dest), 0);
+                LinkedList<Node> path = ch.shortestPath(origin, dest);
+                if (sp.shortestPath(dest) == null) {
+                    assertNull(path);
+                } else {
+                    // ties may be broken differently, so check that the
+                    // path is a real path of the shortest length
+                    assertEquals(origin, path.getFirst());
+                    assertEquals(dest, path.getLast());
+                    assertEquals(sp.shortestPathLength(dest),
+                            pathLength(path), 0);
+                }
+            }
+        }
+    }
+
+    /* Returns the total weight of the edges along path, or infinity if
+    some edge does not exist. */
+    private double pathLength(LinkedList<Node> path) {
+        double length = 0;
+        Node prev = null;
+        for (Node v : path) {
+            if (prev != null) {
+                Double w = prev.getNeighbors().get(v);
+                if (w == null) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                length += w;
+            }
+            prev = v;
+        }
+        return length;
+    }
+
+    /** Tests all pairs on Simple1.txt */
+    @Test
+    public void test00Simple1() {
+        checkAllPairs("Simple1.txt");
+    }
+
+    /** Tests all pairs on Simple2.txt */
+    @Test
+    public void test10Simple2() {
+        checkAllPairs("Simple2.txt");
+    }
+
+    /** Tests all pairs on FakeCanada.txt, a directed cycle */
+    @Test
+    public void test20FakeCanada() {
+        checkAllPairs("FakeCanada.txt");
+    }
+
+    /** Tests a path that needs a shortcut to be unpacked */
+    @Test
+    public void test30Unpacking() {
+        Graph g = new Graph();
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        Node c = g.getNode("C");
+        Node d = g.getNode("D");
+        g.addEdge(a, b, 1);
+        g.addEdge(b, c, 1);
+        g.addEdge(c, d, 1);
+        g.addEdge(a, d, 10);
+        ContractionHierarchy ch = ContractionHierarchy.build(g);
+        LinkedList<Node> expected = new LinkedList<>();
+        expected.add(a);
+        expected.add(b);
+        expected.add(c);
+        expected.add(d);
+        assertEquals(expected, ch.shortestPath(a, d));
+        assertEquals(3, ch.shortestPathLength(a, d), 0);
+        assertNull(ch.shortestPath(d, a));
+    }
+}
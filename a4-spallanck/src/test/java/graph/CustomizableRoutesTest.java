@@ -0,0 +1,116 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.Random;
+
+/* Tests that customizable route queries return the same lengths as
+ShortestPaths, before and after the graph is re-weighted. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class CustomizableRoutesTest {
+
+    /* Checks routes on g, whose weights are those of w, against Dijkstra
+    from every step'th origin to every node. */
+    private void checkQueries(CustomizableRoutes routes, CsrGraph g,
+            CsrGraph w, int step) {
+        TestGraphs.checkAllPairs(g, w, step, routes::query, routes::path);
+    }
+
+    /* Returns g with weights instead of its own. */
+    private CsrGraph reweighted(CsrGraph g, double[] weights) {
+        String[] ids = new String[g.size()];
+        for (int v = 0; v < g.size(); v++) {
+            ids[v] = g.id(v);
+        }
+        return new CsrGraph(ids, g.offsets, g.targets, weights);
+    }
+
+    /** Tests all pairs on the small graphs, with tiny cells */
+    @Test
+    public void test00SmallGraphs() {
+        for (String file : new String[] {"Simple1.txt", "Simple2.txt",
+                "FakeCanada.txt"}) {
+            CsrGraph g = TestGraphs.parse(file);
+            CustomizableRoutes routes = new CustomizableRoutes(g,
+                    MultiLevelPartition.build(g, 2, 3));
+            checkQueries(routes, g, g, 1);
+        }
+    }
+
+    /** Tests that cells are nested and no larger than their limits */
+    @Test
+    public void test10Partition() {
+        CsrGraph g = SyntheticGraphs.grid(20, 30, 1).freeze();
+        MultiLevelPartition p = MultiLevelPartition.build(g, 10, 3);
+        assertEquals(3, p.levels());
+        for (int l = 1; l <= p.levels(); l++) {
+            int[] sizes = new int[p.cellCount(l)];
+            for (int v = 0; v < g.size(); v++) {
+                sizes[p.cell(l, v)]++;
+            }
+            long limit = 10L * (l == 1 ? 1 : l == 2
+                    ? MultiLevelPartition.FANOUT
+                    : MultiLevelPartition.FANOUT * MultiLevelPartition.FANOUT);
+            for (int size : sizes) {
+                assertTrue(size > 0 && size <= limit);
+            }
+        }
+        for (int u = 0; u < g.size(); u++) {
+            for (int v = 0; v < g.size(); v++) {
+                for (int l = 1; l < p.levels(); l++) {
+                    if (p.cell(l, u) == p.cell(l, v)) {
+                        assertEquals(p.cell(l + 1, u), p.cell(l + 1, v));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Tests synthetic graphs before and after customizing new weights */
+    @Test
+    public void test20Customize() {
+        Random random = new Random(7);
+        CsrGraph[] graphs = {SyntheticGraphs.grid(25, 25, 2).freeze(),
+            SyntheticGraphs.random(500, 3, 3).freeze(),
+            SyntheticGraphs.hubAndSpoke(400, 3, 4).freeze()};
+        for (CsrGraph g : graphs) {
+            CustomizableRoutes routes = new CustomizableRoutes(g,
+                    MultiLevelPartition.build(g, 8, 3));
+            checkQueries(routes, g, g, 37);
+            double[] weights = new double[g.edgeCount()];
+            for (int e = 0; e < weights.length; e++) {
+                weights[e] = g.weights[e] * (0.5 + 4 * random.nextDouble());
+            }
+            routes.customize(weights);
+            checkQueries(routes, g, reweighted(g, weights), 41);
+        }
+    }
+
+    /** Tests the default build and bad weights */
+    @Test
+    public void test30BuildAndErrors() {
+        CsrGraph g = SyntheticGraphs.grid(40, 40, 5).freeze();
+        CustomizableRoutes routes = CustomizableRoutes.build(g);
+        assertTrue(routes.partition().levels() >= 2);
+        assertTrue(routes.overlayEdgeCount() > 0);
+        checkQueries(routes, g, g, 199);
+        try {
+            routes.customize(new double[g.edgeCount() - 1]);
+            fail("Expected an exception for too few weights");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        double[] negative = g.weights.clone();
+        negative[3] = -1;
+        try {
+            routes.customize(negative);
+            fail("Expected an exception for a negative weight");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
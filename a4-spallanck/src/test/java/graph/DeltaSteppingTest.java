@@ -0,0 +1,39 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+/* Runs every ShortestPathsTest case with the delta-stepping engine, which
+must compute exactly the same paths and distances as Dijkstra. */
+public class DeltaSteppingTest extends ShortestPathsTest {
+
+    /* Creates a ShortestPaths that uses delta-stepping. */
+    @Override
+    protected ShortestPaths newShortestPaths() {
+        ShortestPaths sp = new ShortestPaths();
+        sp.setEngine(ShortestPaths.Engine.DELTA_STEPPING);
+        return sp;
+    }
+
+    /** Tests bucket widths far below and above the edge weights, so that
+     * buckets overflow the cyclic array or all fall into one */
+    @Test
+    public void test97BucketWidths() {
+        CsrGraph g = SyntheticGraphs.grid(30, 30, 3).freeze();
+        DijkstraWorkspace ws = new DijkstraWorkspace(g.size());
+        for (double delta : new double[] {1e-3, 0.7, 50, 1e12}) {
+            DeltaStepping ds = new DeltaStepping(g, delta,
+                    ForkJoinPool.commonPool());
+            for (int origin = 0; origin < g.size(); origin += 97) {
+                ds.run(origin);
+                ws.run(g, origin);
+                for (int v = 0; v < g.size(); v++) {
+                    assertEquals(ws.distance(v), ds.distance(v), 0);
+                }
+            }
+        }
+    }
+}
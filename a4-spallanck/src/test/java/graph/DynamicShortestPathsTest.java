@@ -0,0 +1,132 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Random;
+
+/* Tests for incremental shortest path repair, which must always agree with
+computing the shortest paths from scratch. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DynamicShortestPathsTest {
+
+    /* Checks that dsp agrees with a fresh ShortestPaths computation on g
+    for every node. */
+    private void assertRepaired(Graph g, DynamicShortestPaths dsp) {
+        ShortestPaths sp = new ShortestPaths();
+        sp.compute(dsp.origin());
+        for (Node v : g.getNodes().values()) {
+            double expected = sp.shortestPathLength(v);
+            assertEquals(v.getId(), expected, dsp.shortestPathLength(v), 1e-9);
+            LinkedList<Node> path = dsp.shortestPath(v);
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertNull(path);
+                continue;
+            }
+            // the path must exist in g and have the right length
+            assertEquals(dsp.origin(), path.getFirst());
+            assertEquals(v, path.getLast());
+            double length = 0;
+            Node previous = null;
+            for (Node u : path) {
+                if (previous != null) {
+                    length += previous.getNeighbors().get(u);
+                }
+                previous = u;
+            }
+            assertEquals(expected, length, 1e-9);
+        }
+    }
+
+    /** Tests repairs after each kind of change on a small graph. */
+    @Test
+    public void test00Changes() {
+        Graph g = new Graph();
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        Node c = g.getNode("C");
+        Node d = g.getNode("D");
+        g.addEdge(a, b, 1);
+        g.addEdge(b, c, 1);
+        g.addEdge(c, d, 1);
+        g.addEdge(a, d, 10);
+        DynamicShortestPaths dsp = new DynamicShortestPaths(g, a);
+        assertEquals(3.0, dsp.shortestPathLength(d), 0);
+
+        g.addEdge(b, c, 20); // tree edge gets longer
+        assertEquals(10.0, dsp.shortestPathLength(d), 0);
+        assertEquals(21.0, dsp.shortestPathLength(c), 0);
+        g.addEdge(a, c, 2); // new shortcut
+        assertEquals(3.0, dsp.shortestPathLength(d), 0);
+        g.removeEdge(a, c); // tree edge removed
+        assertEquals(10.0, dsp.shortestPathLength(d), 0);
+        g.removeEdge(a, b);
+        assertEquals(Double.POSITIVE_INFINITY, dsp.shortestPathLength(b), 0);
+        assertNull(dsp.shortestPath(b));
+
+        Node e = g.getNode("E"); // nodes created after the computation
+        g.addEdge(d, e, 1);
+        assertEquals(11.0, dsp.shortestPathLength(e), 0);
+        assertRepaired(g, dsp);
+
+        dsp.detach();
+        g.addEdge(a, e, 1);
+        assertEquals(11.0, dsp.shortestPathLength(e), 0);
+    }
+
+    /** Tests that a change near the end of a long chain repairs few
+    nodes. */
+    @Test
+    public void test10RepairIsLocal() {
+        Graph g = new Graph();
+        for (int i = 0; i < 1000; i++) {
+            g.addEdge(g.getNode("N" + i), g.getNode("N" + (i + 1)), 1);
+        }
+        DynamicShortestPaths dsp = new DynamicShortestPaths(g, g.getNode("N0"));
+        assertEquals(1001, dsp.lastRepairSize());
+        g.addEdge(g.getNode("N990"), g.getNode("N991"), 5);
+        assertEquals(10, dsp.lastRepairSize());
+        assertEquals(1004.0, dsp.shortestPathLength(g.getNode("N1000")), 0);
+        g.addEdge(g.getNode("N0"), g.getNode("N995"), 2);
+        assertEquals(6, dsp.lastRepairSize());
+        assertEquals(7.0, dsp.shortestPathLength(g.getNode("N1000")), 0);
+    }
+
+    /** Tests random sequences of insertions, weight changes and removals
+    against recomputing from scratch, including with an aggregation
+    policy. */
+    @Test
+    public void test20RandomChanges() {
+        for (EdgeAggregation policy : new EdgeAggregation[] {
+                EdgeAggregation.LAST, EdgeAggregation.MIN}) {
+            Random random = new Random(11);
+            Graph g = new Graph(policy);
+            ArrayList<Node> nodes = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                nodes.add(g.getNode("N" + i));
+            }
+            for (int i = 0; i < 150; i++) {
+                g.addEdge(nodes.get(random.nextInt(60)),
+                        nodes.get(random.nextInt(60)), 1 + random.nextInt(20));
+            }
+            DynamicShortestPaths dsp = new DynamicShortestPaths(g,
+                    nodes.get(0));
+            assertRepaired(g, dsp);
+            for (int step = 0; step < 300; step++) {
+                Node u = nodes.get(random.nextInt(60));
+                Node v = nodes.get(random.nextInt(60));
+                if (random.nextInt(4) == 0) {
+                    g.removeEdge(u, v);
+                } else {
+                    g.addEdge(u, v, 1 + random.nextInt(20));
+                }
+                assertRepaired(g, dsp);
+            }
+        }
+    }
+}
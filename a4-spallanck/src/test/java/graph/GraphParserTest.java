@@ -0,0 +1,238 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+/* Tests for the graph file parsers, which must agree with each other on
+the same input. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class GraphParserTest {
+
+    /* Checks that two graphs have the same nodes and edges. */
+    private void assertSameGraph(Graph expected, Graph actual) {
+        assertEquals(expected.getNodes().keySet(), actual.getNodes().keySet());
+        for (Node u : expected.getNodes().values()) {
+            Map<Node,Double> edges = u.getNeighbors();
+            Map<Node,Double> other = actual.getNode(u.getId()).getNeighbors();
+            assertEquals(edges.size(), other.size());
+            for (Map.Entry<Node,Double> e : edges.entrySet()) {
+                assertEquals(e.getValue(), other.get(e.getKey()));
+            }
+        }
+    }
+
+    /** Tests that the memory-mapped parser builds the same graph as
+    DB1BParser, including the last of several rows for the same edge. */
+    @Test
+    public void test00MappedDB1B() {
+        Graph expected = TestGraphs.parseGraph("db1b", "DB1BSample.csv");
+        assertSameGraph(expected,
+                TestGraphs.parseGraph("db1b-mmap", "DB1BSample.csv"));
+        assertEquals(95.0, expected.getNode("YUL").getNeighbors()
+                .get(expected.getNode("YOW")), 0);
+
+        // splitting the file into many small chunks changes nothing
+        MappedDB1BParser parser = new MappedDB1BParser(16);
+        try {
+            parser.open(new File(TestGraphs.getResource("DB1BSample.csv")));
+        } catch (FileNotFoundException e) {
+            fail("Could not find DB1BSample.csv");
+        }
+        assertSameGraph(expected, parser.parse());
+    }
+
+    /** Tests that distances parse exactly as Double.parseDouble does. */
+    @Test
+    public void test10ParseDouble() {
+        String[] values = {"0", "94.00", "1690.50", "-3.25", "0.1",
+            "123456789.123456", "\"2292.25\"", "1e3", "12345678901234567"};
+        for (String v : values) {
+            ByteBuffer buf = ByteBuffer.wrap(
+                    v.getBytes(StandardCharsets.US_ASCII));
+            assertEquals(Double.parseDouble(v.replace("\"", "")),
+                    MappedDB1BParser.parseDouble(buf, 0, buf.limit()), 0);
+        }
+    }
+
+    /** Tests that a graph survives a round trip through a snapshot file,
+    and that parseGraph reads snapshots. */
+    @Test
+    public void test20SnapshotRoundTrip() throws IOException {
+        Graph expected = TestGraphs.parseGraph("basic", "FakeCanada.txt");
+        File f = File.createTempFile("FakeCanada", ".snap");
+        f.deleteOnExit();
+        GraphSnapshot.write(expected.freeze(), f);
+
+        CsrGraph csr = GraphSnapshot.load(f);
+        assertEquals(expected.getNodes().size(), csr.size());
+        assertSameGraph(expected, csr.toGraph());
+        assertSameGraph(expected,
+                ShortestPaths.parseGraph("snapshot", f.getPath()));
+        assertSameGraph(expected,
+                ShortestPaths.parseFrozen("snapshot", f.getPath()).toGraph());
+    }
+
+    /** Tests that damaged snapshots are rejected. */
+    @Test
+    public void test30SnapshotChecksum() throws IOException {
+        File f = File.createTempFile("Simple2", ".snap");
+        f.deleteOnExit();
+        GraphSnapshot.write(TestGraphs.parse("Simple2.txt"), f);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(raf.length() / 2);
+            int b = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 1);
+        }
+        try {
+            GraphSnapshot.load(f);
+            fail("Loaded a damaged snapshot");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Checksum"));
+        }
+        try {
+            GraphSnapshot.load(new File(TestGraphs.getResource("Simple2.txt")));
+            fail("Loaded a text file as a snapshot");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Not a graph snapshot"));
+        }
+    }
+
+    /** Tests each aggregation policy on the two YUL -> YOW rows of the
+    sample, with both DB1B parsers. */
+    @Test
+    public void test40Aggregation() throws FileNotFoundException {
+        EdgeAggregation[] policies = EdgeAggregation.values();
+        double[] expected = {95, 94, 95, 94.5, 2, 189};
+        for (int i = 0; i < policies.length; i++) {
+            for (String type : new String[] {"db1b", "db1b-mmap"}) {
+                Graph g = ShortestPaths.parseGraph(type,
+                        TestGraphs.getResource("DB1BSample.csv"), policies[i]);
+                assertEquals(policies[i] + " " + type, expected[i],
+                        g.getNode("YUL").getNeighbors()
+                        .get(g.getNode("YOW")), 1e-9);
+                // edges seen once are kept as they are, except by COUNT
+                assertEquals(policies[i] == EdgeAggregation.COUNT ? 1 : 226,
+                        g.getNode("YOW").getNeighbors()
+                        .get(g.getNode("YYZ")), 1e-9);
+            }
+        }
+    }
+
+    /** Tests that a graph keeps folding edges added after parsing, and
+    that a multigraph keeps parallel edges. */
+    @Test
+    public void test50MeanAndMultigraph() {
+        Graph g = new Graph(EdgeAggregation.MEAN);
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        g.addEdge(a, b, 1);
+        g.addEdge(a, b, 2);
+        assertEquals(1.5, a.getNeighbors().get(b), 0);
+        g.addEdge(a, b, 6);
+        assertEquals(3.0, a.getNeighbors().get(b), 0);
+
+        EdgeAggregator edges = new EdgeAggregator(EdgeAggregation.MEAN);
+        edges.add("A", "B", 1);
+        edges.add("A", "B", 2);
+        Graph h = edges.toGraph();
+        h.addEdge(h.getNode("A"), h.getNode("B"), 6);
+        assertEquals(3.0, h.getNode("A").getNeighbors()
+                .get(h.getNode("B")), 0);
+
+        MappedDB1BParser parser = new MappedDB1BParser();
+        try {
+            parser.open(new File(TestGraphs.getResource("DB1BSample.csv")));
+        } catch (FileNotFoundException e) {
+            fail("Could not find DB1BSample.csv");
+        }
+        CsrGraph multi = parser.parseMultigraph();
+        assertEquals(6, multi.edgeCount());
+        int yul = multi.indexOf("YUL");
+        assertEquals(2, multi.degree(yul));
+        assertEquals(multi.target(multi.firstEdge(yul)),
+                multi.target(multi.firstEdge(yul) + 1));
+    }
+
+    /** Tests that off-heap graphs, both copied and mapped from a
+    snapshot, have the same ids and edges and give the same distances
+    as the CsrGraph they came from, also when split into segments of
+    only 8 bytes. */
+    @Test
+    public void test60OffHeap() throws IOException {
+        CsrGraph csr = TestGraphs.parse("FakeCanada.txt");
+        File f = File.createTempFile("FakeCanada", ".snap");
+        f.deleteOnExit();
+        GraphSnapshot.write(csr, f);
+        ShortestPaths expected = new ShortestPaths();
+        ShortestPaths actual = new ShortestPaths();
+        for (OffHeapGraph g : new OffHeapGraph[] {OffHeapGraph.copyOf(csr),
+                OffHeapGraph.map(f), OffHeapGraph.copyOf(csr, 3),
+                OffHeapGraph.map(f, 3)}) {
+            assertEquals(csr.size(), g.size());
+            assertEquals(csr.edgeCount(), g.edgeCount());
+            assertEquals(-1, g.indexOf("XXX"));
+            for (int u = 0; u < csr.size(); u++) {
+                assertEquals(csr.id(u), g.id(u));
+                assertEquals(u, g.indexOf(csr.id(u)));
+                assertEquals(csr.firstEdge(u), g.firstEdge(u));
+                assertEquals(csr.lastEdge(u), g.lastEdge(u));
+            }
+            for (int e = 0; e < csr.edgeCount(); e++) {
+                assertEquals(csr.target(e), g.target(e));
+                assertEquals(csr.weight(e), g.weight(e), 0);
+            }
+            for (int s = 0; s < csr.size(); s++) {
+                expected.compute(csr, s);
+                actual.compute(g, s);
+                for (int t = 0; t < csr.size(); t++) {
+                    assertEquals(expected.shortestPathLength(t),
+                            actual.shortestPathLength(t), 0);
+                    assertArrayEquals(expected.shortestPathIndices(t),
+                            actual.shortestPathIndices(t));
+                }
+                assertEquals(csr.id(s), actual.path(s).origin().getId());
+            }
+        }
+    }
+
+    /** Tests that a snapshot streamed from a parser's edges is the same
+    file as one written from the CsrGraph of those edges. */
+    @Test
+    public void test70StreamedSnapshot() throws IOException {
+        MappedDB1BParser parser = new MappedDB1BParser();
+        parser.setAggregation(EdgeAggregation.MEAN);
+        parser.open(new File(TestGraphs.getResource("DB1BSample.csv")));
+        EdgeAggregator multi = EdgeAggregator.multigraph();
+        for (int i = 0; i < 3; i++) {
+            multi.add("YUL", "YOW", 90 + i);
+            multi.add("YOW", "YYZ", 200);
+        }
+        for (EdgeAggregator edges : new EdgeAggregator[] {
+                parser.parseEdges(), multi}) {
+            File streamed = File.createTempFile("Streamed", ".snap");
+            streamed.deleteOnExit();
+            File copied = File.createTempFile("Copied", ".snap");
+            copied.deleteOnExit();
+            GraphSnapshot.write(edges, streamed);
+            GraphSnapshot.write(edges.toCsrGraph(), copied);
+            assertArrayEquals(Files.readAllBytes(copied.toPath()),
+                    Files.readAllBytes(streamed.toPath()));
+            CsrGraph csr = GraphSnapshot.load(streamed);
+            assertEquals(edges.nodeCount(), csr.size());
+            assertEquals(edges.edgeCount(), csr.edgeCount());
+        }
+    }
+}
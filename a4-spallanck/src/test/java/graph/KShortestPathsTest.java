@@ -0,0 +1,84 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.HashSet;
+import java.util.List;
+
+/* Tests for the k shortest loopless paths, which are checked against
+every simple path of small graphs. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class KShortestPathsTest {
+
+    /* Checks the k shortest paths between all pairs of nodes of g, both
+    sequentially and in parallel. */
+    private void checkAllPairs(CsrGraph g, int k) {
+        KShortestPaths sequential = new KShortestPaths(g);
+        KShortestPaths parallel = new KShortestPaths(g, true);
+        for (int s = 0; s < g.size(); s++) {
+            for (int t = 0; t < g.size(); t++) {
+                List<Double> lengths = TestGraphs.simplePathLengths(g, s, t);
+                List<PathResult> paths = sequential.query(s, t, k);
+                assertEquals(Math.min(k, lengths.size()), paths.size());
+                HashSet<List<String>> distinct = new HashSet<>();
+                for (int i = 0; i < paths.size(); i++) {
+                    PathResult p = paths.get(i);
+                    int[] nodes = p.indices();
+                    assertEquals(s, nodes[0]);
+                    assertEquals(t, nodes[nodes.length - 1]);
+                    assertEquals(lengths.get(i), p.distance(), 1e-9);
+                    assertEquals(p.distance(),
+                            TestGraphs.simplePathLength(g, nodes), 1e-9);
+                    assertTrue(distinct.add(p.ids()));
+                }
+                List<PathResult> inParallel = parallel.query(s, t, k);
+                assertEquals(paths.size(), inParallel.size());
+                for (int i = 0; i < paths.size(); i++) {
+                    assertArrayEquals(paths.get(i).indices(),
+                            inParallel.get(i).indices());
+                }
+            }
+        }
+    }
+
+    /** Tests a graph with a known ordering of routes */
+    @Test
+    public void test00Small() {
+        Graph g = new Graph();
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        Node c = g.getNode("C");
+        Node d = g.getNode("D");
+        g.addEdge(a, b, 1);
+        g.addEdge(b, d, 1);
+        g.addEdge(a, c, 2);
+        g.addEdge(c, d, 2);
+        g.addEdge(b, c, 1);
+        g.addEdge(c, a, 1); // a cycle no path may use
+        CsrGraph csr = g.freeze();
+        KShortestPaths ksp = new KShortestPaths(csr);
+        List<PathResult> paths = ksp.query(csr.indexOf(a), csr.indexOf(d), 5);
+        assertEquals(3, paths.size());
+        assertEquals("[A, B, D]", paths.get(0).ids().toString());
+        assertEquals("[A, B, C, D]", paths.get(1).ids().toString());
+        assertEquals("[A, C, D]", paths.get(2).ids().toString());
+        assertEquals(4, paths.get(2).distance(), 0);
+        assertTrue(ksp.query(csr.indexOf(d), csr.indexOf(a), 5).isEmpty());
+        assertTrue(ksp.query(csr.indexOf(a), csr.indexOf(d), 0).isEmpty());
+        assertEquals(1, ksp.query(csr.indexOf(a), csr.indexOf(a), 5).size());
+    }
+
+    /** Tests all pairs of Simple2.txt and FakeCanada.txt against every
+    * simple path */
+    @Test
+    public void test10AllPairs() {
+        checkAllPairs(TestGraphs.parse("Simple2.txt"), 4);
+        checkAllPairs(TestGraphs.parse("Simple2.txt"), 100);
+        checkAllPairs(TestGraphs.parse("FakeCanada.txt"), 3);
+        checkAllPairs(TestGraphs.parse("FakeCanada.txt"), 100);
+    }
+}
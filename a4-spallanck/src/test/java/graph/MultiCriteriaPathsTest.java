@@ -0,0 +1,85 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.List;
+
+/* Tests for hop-limited and Pareto (distance, legs) shortest paths. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MultiCriteriaPathsTest {
+
+    /* Returns the number of legs of a reachable result. */
+    private int legs(PathResult p) {
+        return p.indices().length - 1;
+    }
+
+    /** Tests a graph where fewer legs cost more distance */
+    @Test
+    public void test00Tradeoff() {
+        Graph g = new Graph();
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        Node c = g.getNode("C");
+        Node d = g.getNode("D");
+        g.addEdge(a, d, 10); // direct
+        g.addEdge(a, b, 3);
+        g.addEdge(b, d, 4); // one connection, 7
+        g.addEdge(b, c, 1);
+        g.addEdge(c, d, 1); // two connections, 5
+        CsrGraph csr = g.freeze();
+        int ia = csr.indexOf(a);
+        int id = csr.indexOf(d);
+        MultiCriteriaPaths mc = new MultiCriteriaPaths(csr);
+        assertFalse(mc.hopLimited(ia, id, 0).isReachable());
+        assertEquals(10, mc.hopLimited(ia, id, 1).distance(), 0);
+        assertEquals(7, mc.hopLimited(ia, id, 2).distance(), 0);
+        assertEquals(5, mc.hopLimited(ia, id, 3).distance(), 0);
+        assertEquals(5, mc.hopLimited(ia, id, 9).distance(), 0);
+        List<PathResult> frontier = mc.pareto(ia, id);
+        assertEquals(3, frontier.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, legs(frontier.get(i)));
+        }
+        assertEquals("[A, B, C, D]", frontier.get(2).ids().toString());
+        assertEquals(2, mc.pareto(ia, id, 2).size());
+        assertTrue(mc.pareto(id, ia).isEmpty());
+    }
+
+    /** Tests that the Pareto frontiers on FakeCanada.txt are
+    * non-dominated, end with the Dijkstra distance and agree with
+    * hop-limited queries */
+    @Test
+    public void test10ParetoFakeCanada() {
+        CsrGraph g = TestGraphs.parse("FakeCanada.txt");
+        MultiCriteriaPaths mc = new MultiCriteriaPaths(g);
+        ShortestPaths sp = new ShortestPaths();
+        for (int s = 0; s < g.size(); s++) {
+            sp.compute(g, s);
+            for (int t = 0; t < g.size(); t++) {
+                List<PathResult> frontier = mc.pareto(s, t);
+                if (sp.shortestPathLength(t) == Double.POSITIVE_INFINITY) {
+                    assertTrue(frontier.isEmpty());
+                    continue;
+                }
+                PathResult last = frontier.get(frontier.size() - 1);
+                assertEquals(sp.shortestPathLength(t), last.distance(), 1e-9);
+                for (int i = 0; i < frontier.size(); i++) {
+                    PathResult p = frontier.get(i);
+                    assertEquals(s, p.indices()[0]);
+                    assertEquals(t, p.indices()[legs(p)]);
+                    if (i > 0) {
+                        PathResult q = frontier.get(i - 1);
+                        assertTrue(legs(q) < legs(p));
+                        assertTrue(q.distance() > p.distance());
+                    }
+                    assertEquals(p.distance(),
+                            mc.hopLimited(s, t, legs(p)).distance(), 1e-9);
+                }
+            }
+        }
+    }
+}
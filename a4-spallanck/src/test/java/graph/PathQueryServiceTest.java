@@ -0,0 +1,213 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Tests for the concurrent query service, which must agree with
+ShortestPaths when queried from many threads at once. */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PathQueryServiceTest {
+
+    /* Returns a random graph with n nodes and m edges. */
+    private CsrGraph randomGraph(int n, int m, long seed) {
+        Random random = new Random(seed);
+        Graph g = new Graph();
+        for (int i = 0; i < n; i++) {
+            g.getNode("N" + i);
+        }
+        for (int i = 0; i < m; i++) {
+            g.addEdge(g.getNode("N" + random.nextInt(n)),
+                    g.getNode("N" + random.nextInt(n)), random.nextInt(100));
+        }
+        return g.freeze();
+    }
+
+    /** Tests results of single queries, including unreachable nodes. */
+    @Test
+    public void test00Query() {
+        CsrGraph g = TestGraphs.parse("Simple1.txt");
+        PathQueryService service = new PathQueryService(g);
+        PathResult r = service.query("S", "A");
+        assertTrue(r.isReachable());
+        assertEquals(8.0, r.distance(), 0);
+        assertEquals(Arrays.asList("S", "C", "A"), r.ids());
+        assertEquals("S C A 8.0", r.toString());
+
+        // changing a returned array does not change the result
+        r.indices()[0] = -1;
+        assertEquals(g.indexOf("S"), r.indices()[0]);
+
+        Graph h = new Graph();
+        h.addEdge(h.getNode("A"), h.getNode("B"), 5);
+        PathResult none = new PathQueryService(h.freeze()).query("B", "A");
+        assertFalse(none.isReachable());
+        assertNull(none.ids());
+        assertEquals(Double.POSITIVE_INFINITY, none.distance(), 0);
+        assertNull(h.findNode("C"));
+        assertEquals(2, h.getNodes().size());
+    }
+
+    /** Tests that concurrent queries from many threads agree with
+    sequential ShortestPaths results. */
+    @Test
+    public void test10Concurrent() throws Exception {
+        CsrGraph g = randomGraph(2000, 8000, 42);
+        PathQueryService service = new PathQueryService(g);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            ArrayList<Future<Void>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final long seed = t;
+                done.add(threads.submit(() -> {
+                    Random random = new Random(seed);
+                    ShortestPaths sp = new ShortestPaths();
+                    for (int q = 0; q < 50; q++) {
+                        int o = random.nextInt(g.size());
+                        int d = random.nextInt(g.size());
+                        sp.compute(g, o);
+                        PathResult r = service.query(o, d);
+                        assertEquals(sp.shortestPathLength(d), r.distance(),
+                                1e-9);
+                        assertEquals(sp.shortestPathLength(d),
+                                service.distance(o, d), 1e-9);
+                        if (r.isReachable()) {
+                            int[] path = r.indices();
+                            assertEquals(o, path[0]);
+                            assertEquals(d, path[path.length - 1]);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> f : done) {
+                f.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    /** Tests that the cache answers like the service, evicts the least
+    recently or least frequently used trees, and counts correctly. */
+    @Test
+    public void test20Cache() {
+        CsrGraph g = TestGraphs.parse("FakeCanada.txt");
+        PathQueryService service = new PathQueryService(g);
+        long treeBytes = service.tree(0).bytes();
+        for (ShortestPathTreeCache.Eviction policy
+                : ShortestPathTreeCache.Eviction.values()) {
+            ShortestPathTreeCache cache = new ShortestPathTreeCache(service,
+                    2 * treeBytes, policy);
+            for (int o = 0; o < g.size(); o++) {
+                for (int d = 0; d < g.size(); d++) {
+                    PathResult r = cache.query(o, d);
+                    assertEquals(service.query(o, d).distance(), r.distance(),
+                            0);
+                }
+            }
+            assertEquals(g.size(), cache.misses());
+            assertEquals(g.size() * (g.size() - 1), cache.hits());
+            assertEquals(g.size() - 2, cache.evictions());
+            assertEquals(2, cache.size());
+            assertEquals(2 * treeBytes, cache.bytes());
+
+            // origin 0 is now the most used, so LFU keeps it and LRU does not
+            cache.clear();
+            cache.query(0, 1);
+            cache.query(0, 2);
+            cache.query(1, 2);
+            cache.query(2, 0);
+            long misses = cache.misses();
+            cache.query(0, 1);
+            assertEquals(policy == ShortestPathTreeCache.Eviction.LFU
+                    ? misses : misses + 1, cache.misses());
+        }
+
+        // a tree over the whole budget is answered but not kept
+        ShortestPathTreeCache tiny = new ShortestPathTreeCache(service, 0,
+                ShortestPathTreeCache.Eviction.LRU);
+        assertEquals(service.query("YUL", "YVR").toString(),
+                tiny.query("YUL", "YVR").toString());
+        assertEquals(0, tiny.size());
+        assertEquals(0, tiny.bytes());
+    }
+
+    /** Tests that concurrent misses for the same origin share one search. */
+    @Test
+    public void test30SingleFlight() throws Exception {
+        CsrGraph g = randomGraph(20000, 100000, 7);
+        ShortestPathTreeCache cache = new ShortestPathTreeCache(
+                new PathQueryService(g), Long.MAX_VALUE,
+                ShortestPathTreeCache.Eviction.LRU);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            ArrayList<Future<ShortestPathTree>> trees = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                trees.add(threads.submit(() -> cache.tree(5)));
+            }
+            ShortestPathTree first = trees.get(0).get();
+            for (Future<ShortestPathTree> f : trees) {
+                assertSame(first, f.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(1, cache.misses());
+        assertEquals(7, cache.hits());
+    }
+
+    /** Tests range and nearest queries against full searches on a random
+    * graph */
+    @Test
+    public void test40Nearby() {
+        CsrGraph g = randomGraph(300, 1200, 11);
+        PathQueryService service = new PathQueryService(g);
+        DijkstraWorkspace ws = new DijkstraWorkspace(g.size());
+        for (int s = 0; s < g.size(); s += 7) {
+            ws.run(g, s);
+            double[] sorted = new double[g.size() - 1];
+            int reachable = 0;
+            for (int v = 0; v < g.size(); v++) {
+                if (v != s && ws.reached(v)) {
+                    sorted[reachable++] = ws.distance(v);
+                }
+            }
+            Arrays.sort(sorted, 0, reachable);
+            for (double radius : new double[] {0, 25, 60, 150, 1e9}) {
+                NearbyNodes near = service.withinDistance(s, radius);
+                int expected = 0;
+                while (expected < reachable && sorted[expected] <= radius) {
+                    expected++;
+                }
+                assertEquals(expected, near.size());
+                checkNearby(ws, near, sorted);
+            }
+            for (int k : new int[] {0, 1, 10, 1000}) {
+                NearbyNodes near = service.kNearest(s, k);
+                assertEquals(Math.min(k, reachable), near.size());
+                checkNearby(ws, near, sorted);
+            }
+        }
+    }
+
+    /* Checks that near lists nodes other than its origin, closest first,
+    at the distances ws found, and that these are the smallest of sorted. */
+    private void checkNearby(DijkstraWorkspace ws, NearbyNodes near,
+            double[] sorted) {
+        for (int i = 0; i < near.size(); i++) {
+            assertNotEquals(near.origin(), near.node(i));
+            assertEquals(ws.distance(near.node(i)), near.distance(i), 0);
+            assertEquals(sorted[i], near.distance(i), 0);
+        }
+    }
+}
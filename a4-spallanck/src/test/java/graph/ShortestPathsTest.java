@@ -5,6 +5,7 @@ the correctness of the ShortestsPaths file */
 package graph;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 import org.junit.FixMethodOrder;
 
 import org.junit.Test;
@@ -27,6 +28,12 @@ public class ShortestPathsTest {
         return resource.getPath();
     }
     
+    /* Creates the ShortestPaths instance every test uses, so that
+    subclasses can run all tests against a different configuration. */
+    protected ShortestPaths newShortestPaths() {
+        return new ShortestPaths();
+    }
+    
     /** Tests on a case where the destination node
     * is not reachable */
     @Test
@@ -35,7 +42,7 @@ public class ShortestPathsTest {
         Node a = g.getNode("A");
         Node b = g.getNode("B");
         g.addEdge(a, b, 5); //only edge from a --> b
-        ShortestPaths sp = new ShortestPaths();
+        ShortestPaths sp = newShortestPaths();
         sp.compute(b);
         LinkedList<Node> abPath = sp.shortestPath(a);
         double abPathLength = sp.shortestPathLength(a);
@@ -53,7 +60,7 @@ public class ShortestPathsTest {
         Node b = g.getNode("B");
         g.addEdge(a, b, 5); // a --> b
         g.addEdge(b, a, 6); // b --> a
-        ShortestPaths sp = new ShortestPaths();
+        ShortestPaths sp = newShortestPaths();
         sp.compute(a);
         LinkedList<Node> abPath = sp.shortestPath(b);
         double abPathLength = sp.shortestPathLength(b);
@@ -82,7 +89,7 @@ public class ShortestPathsTest {
         g.addEdge(a, b, 5);
         g.addEdge(a, c, 1); //part of shorter path
         g.addEdge(c, b, 2); //part of shorter path
-        ShortestPaths sp = new ShortestPaths();
+        ShortestPaths sp = newShortestPaths();
         sp.compute(a);
         LinkedList<Node> abPath = sp.shortestPath(b);
         double abPathLength = sp.shortestPathLength(b);
@@ -103,7 +110,7 @@ public class ShortestPathsTest {
         Graph g = new Graph();
         Node a = g.getNode("A");
         Node b = g.getNode("B");
-        ShortestPaths sp = new ShortestPaths();
+        ShortestPaths sp = newShortestPaths();
         sp.compute(a);
         LinkedList<Node> abPath = sp.shortestPath(b);
         double abPathLength = sp.shortestPathLength(b);
@@ -123,7 +130,7 @@ public class ShortestPathsTest {
             fail("Could not find graph Simple1.txt");
             return;
         }
-        ShortestPaths sp = new ShortestPaths();
+        ShortestPaths sp = newShortestPaths();
         Node s = simple1.getNode("S");
         sp.compute(s);
         LinkedList<Node> abPath = sp.shortestPath(s);
@@ -146,7 +153,7 @@ public class ShortestPathsTest {
     * in lecture */
     @Test
     public void test50LectureGraph() {
-        ShortestPaths sp = new ShortestPaths();
+        ShortestPaths sp = newShortestPaths();
         Graph g = new Graph();
         Node one = g.getNode("1");
         Node two = g.getNode("2");
@@ -177,4 +184,302 @@ public class ShortestPathsTest {
         abPathLength = sp.shortestPathLength(six);
         assertEquals(11, abPathLength, 0);
     }
-}
\ No newline at end of file
+    
+    /** Tests that Dijkstra on a frozen CSR graph agrees with
+    * Dijkstra on the original graph */
+    @Test
+    public void test60FrozenGraph() {
+        String fn = getGraphResource("Simple2.txt");
+        Graph simple2;
+        try {
+            simple2 = ShortestPaths.parseGraph("basic", fn);
+        } catch (FileNotFoundException e) {
+            fail("Could not find graph Simple2.txt");
+            return;
+        }
+        CsrGraph csr = simple2.freeze();
+        assertEquals(simple2.getNodes().size(), csr.size());
+        ShortestPaths expected = newShortestPaths();
+        ShortestPaths sp = newShortestPaths();
+        for (Node origin : simple2.getNodes().values()) {
+            expected.compute(origin);
+            sp.compute(csr, csr.indexOf(origin));
+            for (Node dest : simple2.getNodes().values()) {
+                assertEquals(expected.shortestPathLength(dest),
+                        sp.shortestPathLength(csr.indexOf(dest)), 0);
+                assertEquals(expected.shortestPathLength(dest),
+                        sp.shortestPathLength(dest), 0);
+                assertEquals(expected.shortestPath(dest),
+                        sp.shortestPath(dest));
+            }
+        }
+    }
+    
+    /** Tests that every kind of frontier queue finds the same
+    * shortest paths on the lecture graph */
+    @Test
+    public void test70QueueKinds() {
+        Graph g = new Graph();
+        Node one = g.getNode("1");
+        Node two = g.getNode("2");
+        Node three = g.getNode("3");
+        Node four = g.getNode("4");
+        Node five = g.getNode("5");
+        Node six = g.getNode("6");
+        g.addEdge(one, two, 7);
+        g.addEdge(one, six, 14);
+        g.addEdge(one, three, 9);
+        g.addEdge(two, three, 10);
+        g.addEdge(three, six, 2);
+        g.addEdge(two, four, 15);
+        g.addEdge(three, four, 11);
+        g.addEdge(six, five, 9);
+        g.addEdge(four, five, 6);
+        CsrGraph csr = g.freeze();
+        double[] expected = {0, 7, 9, 20, 20, 11};
+        Node[] nodes = {one, two, three, four, five, six};
+        for (QueueKind kind : QueueKind.values()) {
+            for (int arity = 2; arity <= 8; arity *= 2) {
+                ShortestPaths sp = newShortestPaths();
+                sp.setQueue(kind, arity);
+                sp.compute(one);
+                for (int i = 0; i < nodes.length; i++) {
+                    assertEquals(expected[i], sp.shortestPathLength(nodes[i]), 0);
+                }
+                sp.compute(csr, csr.indexOf(one));
+                for (int i = 0; i < nodes.length; i++) {
+                    assertEquals(expected[i], sp.shortestPathLength(nodes[i]), 0);
+                }
+            }
+        }
+    }
+    
+    /** Tests that a reused workspace forgets the results of
+    * its previous search */
+    @Test
+    public void test80WorkspaceReuse() {
+        Graph g = new Graph();
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        Node c = g.getNode("C");
+        g.addEdge(a, b, 5);
+        g.addEdge(b, c, 1);
+        CsrGraph csr = g.freeze();
+        DijkstraWorkspace ws = new DijkstraWorkspace(csr.size());
+        ws.run(csr, csr.indexOf(a));
+        assertEquals(3, ws.reachedCount());
+        assertEquals(6, ws.distance(csr.indexOf(c)), 0);
+        ws.run(csr, csr.indexOf(b));
+        assertEquals(2, ws.reachedCount());
+        assertFalse(ws.reached(csr.indexOf(a)));
+        assertEquals(Double.POSITIVE_INFINITY, ws.distance(csr.indexOf(a)), 0);
+        assertEquals(-1, ws.previous(csr.indexOf(b)));
+        assertEquals(csr.indexOf(b), ws.previous(csr.indexOf(c)));
+        assertEquals(1, ws.distance(csr.indexOf(c)), 0);
+    }
+    
+    /** Tests that point-to-point and bidirectional searches
+    * agree with a full computation on Simple2.txt */
+    @Test
+    public void test90PointToPoint() {
+        String fn = getGraphResource("Simple2.txt");
+        Graph simple2;
+        try {
+            simple2 = ShortestPaths.parseGraph("basic", fn);
+        } catch (FileNotFoundException e) {
+            fail("Could not find graph Simple2.txt");
+            return;
+        }
+        CsrGraph csr = simple2.freeze();
+        BidirectionalDijkstra bd = new BidirectionalDijkstra(csr);
+        ShortestPaths full = newShortestPaths();
+        ShortestPaths early = newShortestPaths();
+        for (Node origin : simple2.getNodes().values()) {
+            full.compute(origin);
+            for (Node dest : simple2.getNodes().values()) {
+                double expected = full.shortestPathLength(dest);
+                early.compute(origin, dest);
+                assertEquals(expected, early.shortestPathLength(dest), 0);
+                assertEquals(full.shortestPath(dest), early.shortestPath(dest));
+                assertEquals(expected,
+                        bd.query(csr.indexOf(origin), csr.indexOf(dest)), 0);
+                int[] path = bd.path();
+                if (expected == Double.POSITIVE_INFINITY) {
+                    assertNull(path);
+                } else {
+                    assertEquals(csr.indexOf(origin), path[0]);
+                    assertEquals(csr.indexOf(dest), path[path.length - 1]);
+                }
+            }
+        }
+    }
+    
+    /** Tests that every way of computing a distance matrix
+    * agrees with Dijkstra on Simple2.txt */
+    @Test
+    public void test95DistanceMatrix() {
+        String fn = getGraphResource("Simple2.txt");
+        CsrGraph csr;
+        try {
+            csr = ShortestPaths.parseGraph("basic", fn).freeze();
+        } catch (FileNotFoundException e) {
+            fail("Could not find graph Simple2.txt");
+            return;
+        }
+        int[] sources = {0, 3, 5};
+        int[] targets = new int[csr.size()];
+        for (int v = 0; v < targets.length; v++) {
+            targets[v] = targets.length - 1 - v;
+        }
+        ShortestPaths sp = newShortestPaths();
+        for (DistanceMatrix.Strategy strategy
+                : DistanceMatrix.Strategy.values()) {
+            for (boolean offHeap : new boolean[] {false, true}) {
+                DistanceMatrix m = DistanceMatrix.compute(csr, sources,
+                        targets, strategy, offHeap);
+                assertEquals(offHeap, m.isOffHeap());
+                for (int i = 0; i < m.rows(); i++) {
+                    sp.compute(csr, m.source(i));
+                    for (int j = 0; j < m.columns(); j++) {
+                        assertEquals(sp.shortestPathLength(m.target(j)),
+                                m.get(i, j), 0);
+                    }
+                }
+            }
+        }
+
+        // Floyd-Warshall is refused rather than allocating n * n entries
+        int n = DistanceMatrix.FLOYD_WARSHALL_MAX_NODES + 1;
+        String[] ids = new String[n];
+        for (int v = 0; v < n; v++) {
+            ids[v] = "N" + v;
+        }
+        CsrGraph large = new CsrGraph(ids, new int[n + 1], new int[0],
+                new double[0]);
+        try {
+            DistanceMatrix.compute(large, sources, sources,
+                    DistanceMatrix.Strategy.FLOYD_WARSHALL, false);
+            fail("Expected an exception for a graph too large");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /** Tests that path views agree with shortestPath on FakeCanada.txt,
+    on both the graph and its frozen copy */
+    @Test
+    public void test97PathView() {
+        String fn = getGraphResource("FakeCanada.txt");
+        Graph canada;
+        try {
+            canada = ShortestPaths.parseGraph("basic", fn);
+        } catch (FileNotFoundException e) {
+            fail("Could not find graph FakeCanada.txt");
+            return;
+        }
+        CsrGraph csr = canada.freeze();
+        ShortestPaths sp = newShortestPaths();
+        ShortestPaths frozen = newShortestPaths();
+        for (Node origin : canada.getNodes().values()) {
+            sp.compute(origin);
+            frozen.compute(csr, csr.indexOf(origin));
+            for (Node dest : canada.getNodes().values()) {
+                LinkedList<Node> expected = sp.shortestPath(dest);
+                for (PathView view : new PathView[] {sp.path(dest),
+                        frozen.path(dest)}) {
+                    if (expected == null) {
+                        assertNull(view);
+                        continue;
+                    }
+                    assertEquals(expected.size() - 1, view.hopCount());
+                    assertEquals(sp.shortestPathLength(dest), view.length(), 0);
+                    assertEquals(origin, view.origin());
+                    assertEquals(dest, view.destination());
+                    assertArrayEquals(expected.toArray(), view.toArray());
+                    LinkedList<Node> iterated = new LinkedList<>();
+                    for (Node v : view) {
+                        iterated.add(v);
+                    }
+                    assertEquals(expected, iterated);
+                }
+                if (expected != null) {
+                    assertArrayEquals(
+                            frozen.shortestPathIndices(csr.indexOf(dest)),
+                            frozen.path(dest).toIndexArray());
+                }
+            }
+        }
+    }
+
+    /** Tests that the instrumentation counts what a search did,
+    * on the graph, its frozen copy and the registry */
+    @Test
+    public void test98Metrics() {
+        assumeTrue(Metrics.ENABLED);
+        Graph g = new Graph();
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        Node c = g.getNode("C");
+        Node d = g.getNode("D");
+        g.addEdge(a, b, 5);
+        g.addEdge(a, c, 1);
+        g.addEdge(c, b, 1); // improves b from 5 to 2
+        g.addEdge(b, d, 1);
+        CsrGraph csr = g.freeze();
+        MetricsRegistry registry = MetricsRegistry.global();
+        long queries = registry.counter("query.count").sum();
+        ShortestPaths sp = new ShortestPaths();
+        sp.compute(a);
+        sp.compute(csr, csr.indexOf(a));
+        QueryStats frozen = sp.lastStats();
+        sp.compute(a);
+        for (QueryStats stats : new QueryStats[] {sp.lastStats(), frozen}) {
+            assertEquals(4, stats.settled());
+            assertEquals(4, stats.relaxed());
+            assertEquals(1, stats.decreaseKeys());
+            assertEquals(2, stats.peakQueueSize());
+            assertTrue(stats.nanos() >= 0);
+        }
+        assertEquals(queries + 3, registry.counter("query.count").sum());
+        PathResult r = new PathQueryService(csr).query(csr.indexOf(a),
+                csr.indexOf(d));
+        assertEquals(4, r.stats().settled()); // stops once d is settled
+    }
+
+    /** Tests that every node order relabels FakeCanada.txt without
+    * changing any distance, and sorts each node's edges by target */
+    @Test
+    public void test99NodeOrder() {
+        String fn = getGraphResource("FakeCanada.txt");
+        Graph canada;
+        try {
+            canada = ShortestPaths.parseGraph("basic", fn);
+        } catch (FileNotFoundException e) {
+            fail("Could not find graph FakeCanada.txt");
+            return;
+        }
+        CsrGraph csr = canada.freeze();
+        ShortestPaths sp = newShortestPaths();
+        ShortestPaths reordered = newShortestPaths();
+        for (NodeOrder order : NodeOrder.values()) {
+            CsrGraph g = canada.freeze(order);
+            assertEquals(csr.size(), g.size());
+            assertEquals(csr.edgeCount(), g.edgeCount());
+            for (int u = 0; u < g.size(); u++) {
+                assertEquals(u, g.indexOf(g.id(u)));
+                assertSame(canada.findNode(g.id(u)), g.node(u));
+                for (int e = g.firstEdge(u) + 1; e < g.lastEdge(u); e++) {
+                    assertTrue(g.target(e - 1) <= g.target(e));
+                }
+            }
+            for (Node origin : canada.getNodes().values()) {
+                sp.compute(csr, csr.indexOf(origin));
+                reordered.compute(g, g.indexOf(origin));
+                for (Node dest : canada.getNodes().values()) {
+                    assertEquals(sp.shortestPathLength(csr.indexOf(dest)),
+                            reordered.shortestPathLength(g.indexOf(dest)), 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleBiFunction;
+
+/* Fixtures and checks shared by the tests: graphs parsed from the test
+resources, path lengths, and a harness that checks a point-to-point search
+against ShortestPaths between pairs of nodes. */
+final class TestGraphs {
+
+    /* Not instantiable. */
+    private TestGraphs() {
+    }
+
+    /* Returns the filename of a file in the src/test/resources directory
+    at test time. */
+    static String getResource(String fileName) {
+        ClassLoader classLoader = TestGraphs.class.getClassLoader();
+        URL resource = classLoader.getResource(fileName);
+        return resource.getPath();
+    }
+
+    /* Parses a file from the test resources with the given parser type. */
+    static Graph parseGraph(String fileType, String fileName) {
+        try {
+            return ShortestPaths.parseGraph(fileType, getResource(fileName));
+        } catch (FileNotFoundException e) {
+            fail("Could not find graph " + fileName);
+            return null;
+        }
+    }
+
+    /* Parses a basic graph file from the test resources. */
+    static CsrGraph parse(String fileName) {
+        return parseGraph("basic", fileName).freeze();
+    }
+
+    /* Returns the total weight of the lightest edges along path in g, or
+    infinity if some edge does not exist. */
+    static double pathLength(IndexedGraph g, int[] path) {
+        double length = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = g.firstEdge(path[i]); e < g.lastEdge(path[i]); e++) {
+                if (g.target(e) == path[i + 1]) {
+                    best = Math.min(best, g.weight(e));
+                }
+            }
+            length += best;
+        }
+        return length;
+    }
+
+    /* Returns the length of path in g, or fails if it is not a simple
+    path of g. */
+    static double simplePathLength(IndexedGraph g, int[] path) {
+        HashSet<Integer> visited = new HashSet<>();
+        for (int v : path) {
+            assertTrue(visited.add(v));
+        }
+        double length = pathLength(g, path);
+        assertTrue(length < Double.POSITIVE_INFINITY);
+        return length;
+    }
+
+    /* Returns the lengths of every simple path of g from s to t, in
+    increasing order. */
+    static List<Double> simplePathLengths(IndexedGraph g, int s, int t) {
+        List<Double> lengths = new ArrayList<>();
+        simplePaths(g, s, t, 0, new boolean[g.size()], lengths);
+        Collections.sort(lengths);
+        return lengths;
+    }
+
+    /* Adds the lengths of all simple paths of g from v to t that extend
+    a path of length d through the nodes in visited. */
+    private static void simplePaths(IndexedGraph g, int v, int t, double d,
+            boolean[] visited, List<Double> lengths) {
+        if (v == t) {
+            lengths.add(d);
+            return;
+        }
+        visited[v] = true;
+        for (int e = g.firstEdge(v); e < g.lastEdge(v); e++) {
+            if (!visited[g.target(e)]) {
+                simplePaths(g, g.target(e), t, d + g.weight(e), visited,
+                        lengths);
+            }
+        }
+        visited[v] = false;
+    }
+
+    /* Checks a search on g against Dijkstra on weighted, a graph with the
+    same nodes and edges as g and the weights the search uses, from every
+    step'th origin to every node. query returns the length of the shortest
+    path between two nodes, and path the nodes of the last path found, or
+    null if there is none. */
+    static void checkAllPairs(CsrGraph g, CsrGraph weighted, int step,
+            ToDoubleBiFunction<Integer,Integer> query, Supplier<int[]> path) {
+        ShortestPaths sp = new ShortestPaths();
+        for (int s = 0; s < g.size(); s += step) {
+            sp.compute(weighted, s);
+            for (int t = 0; t < g.size(); t++) {
+                double expected = sp.shortestPathLength(t);
+                assertEquals(expected, query.applyAsDouble(s, t), 1e-9);
+                int[] nodes = path.get();
+                if (expected == Double.POSITIVE_INFINITY) {
+                    assertNull(nodes);
+                } else {
+                    // ties may be broken differently, so check that the
+                    // path is a real path of the shortest length
+                    assertEquals(s, nodes[0]);
+                    assertEquals(t, nodes[nodes.length - 1]);
+                    assertEquals(expected, pathLength(weighted, nodes), 1e-9);
+                }
+            }
+        }
+    }
+}